@@ -210,19 +210,32 @@ public class Bytecode {
     public static final int ILLEGAL = 255;
     public static final int END = 256;
 
+    // Lazily built opcode to name table
+    private static String[] names;
+
     public static String forName(int bc) {
-        Field[] fs = Bytecode.class.getFields();
-        try {
-            for (Field field : fs) {
-                field.setAccessible(true);
-                if (field.getInt(null) == bc) {
-                    return field.getName().toLowerCase();
+        if (names == null) {
+            String[] table = new String[END + 1];
+            Field[] fs = Bytecode.class.getFields();
+            try {
+                for (Field field : fs) {
+                    if (field.getType() != int.class) {
+                        continue;
+                    }
+                    int value = field.getInt(null);
+                    if (value >= 0 && value <= END && table[value] == null) {
+                        table[value] = field.getName().toLowerCase();
+                    }
                 }
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            names = table;
+        }
+        if (bc < 0 || bc >= names.length || names[bc] == null) {
+            return "<NotFound>";
         }
-        return "<NotFound>";
+        return names[bc];
     }
 
     public static boolean canTrap(int bc) {
@@ -0,0 +1,367 @@
+package com.kelthuzadx.yarrow.bytecode;
+
+import com.kelthuzadx.yarrow.core.YarrowError;
+
+import java.util.Arrays;
+
+import static com.kelthuzadx.yarrow.bytecode.Bytecode.*;
+
+/**
+ * Decode method bytecode exactly once, all phases iterate over the decoded form by
+ * {@link BytecodeStream}. Everything is kept in primitive arrays indexed by bci, only
+ * entries at the start of instructions are meaningful.
+ * <p>
+ * For wide instructions, bci refers to the wide prefix while opcode is the modified
+ * instruction.
+ *
+ * @author kelthuzadx
+ */
+public class BytecodeIndex {
+    private static final byte START = 1;
+    private static final byte WIDE_PREFIX = 2;
+
+    private final byte[] code;
+    private final byte[] opcode;
+    private final byte[] flags;
+    private final int[] nextBci;
+    // Primary operand, e.g. local index, branch offset, constant pool index,
+    // or position in switchData for switches
+    private final int[] data;
+    // Flattened switch tables, each one is laid out as
+    // [default, numOfCase, lowKey, highKey, key0, dest0, key1, dest1 ...]
+    // Destinations are offsets relative to switch bci
+    private int[] switchData;
+    private int switchDataSize;
+    private final int numOfBytecodes;
+
+    public BytecodeIndex(byte[] code) {
+        this.code = code;
+        this.opcode = new byte[code.length];
+        this.flags = new byte[code.length];
+        this.nextBci = new int[code.length];
+        this.data = new int[code.length];
+        this.switchData = new int[0];
+        this.switchDataSize = 0;
+        this.numOfBytecodes = decode();
+    }
+
+    private int decode() {
+        int count = 0;
+        int bci = 0;
+        while (bci < code.length) {
+            int c = code[bci] & 0xff;
+            flags[bci] = START;
+            count++;
+            if (c == WIDE) {
+                flags[bci] |= WIDE_PREFIX;
+                c = code[bci + 1] & 0xff;
+                opcode[bci] = (byte) c;
+                data[bci] = readU2(bci + 2);
+                nextBci[bci] = bci + (c == IINC ? 6 : 4);
+                bci = nextBci[bci];
+                continue;
+            }
+            opcode[bci] = (byte) c;
+            int length = lengthOf(c);
+            switch (c) {
+                case BIPUSH:
+                    data[bci] = code[bci + 1];
+                    break;
+                case LDC:
+                case ILOAD:
+                case LLOAD:
+                case FLOAD:
+                case DLOAD:
+                case ALOAD:
+                case ISTORE:
+                case LSTORE:
+                case FSTORE:
+                case DSTORE:
+                case ASTORE:
+                case RET:
+                case NEWARRAY:
+                case IINC:
+                    data[bci] = code[bci + 1] & 0xff;
+                    break;
+                case SIPUSH:
+                case IFEQ:
+                case IFNE:
+                case IFLT:
+                case IFGE:
+                case IFGT:
+                case IFLE:
+                case IF_ICMPEQ:
+                case IF_ICMPNE:
+                case IF_ICMPLT:
+                case IF_ICMPGE:
+                case IF_ICMPGT:
+                case IF_ICMPLE:
+                case IF_ACMPEQ:
+                case IF_ACMPNE:
+                case GOTO:
+                case JSR:
+                case IFNULL:
+                case IFNONNULL:
+                    data[bci] = readS2(bci + 1);
+                    break;
+                case LDC_W:
+                case LDC2_W:
+                case GETSTATIC:
+                case PUTSTATIC:
+                case GETFIELD:
+                case PUTFIELD:
+                case NEW:
+                case ANEWARRAY:
+                case CHECKCAST:
+                case INSTANCEOF:
+                case INVOKEVIRTUAL:
+                case INVOKESPECIAL:
+                case INVOKESTATIC:
+                case INVOKEINTERFACE:
+                case MULTIANEWARRAY:
+                    data[bci] = readU2(bci + 1);
+                    break;
+                case INVOKEDYNAMIC:
+                case GOTO_W:
+                case JSR_W:
+                    data[bci] = readS4(bci + 1);
+                    break;
+                case TABLESWITCH: {
+                    int base = bci + align(bci);
+                    int low = readS4(base + 4);
+                    int high = readS4(base + 8);
+                    int n = high - low + 1;
+                    data[bci] = reserveSwitchData(n);
+                    int p = data[bci];
+                    switchData[p] = readS4(base);
+                    switchData[p + 1] = n;
+                    switchData[p + 2] = low;
+                    switchData[p + 3] = high;
+                    for (int i = 0; i < n; i++) {
+                        switchData[p + 4 + 2 * i] = low + i;
+                        switchData[p + 5 + 2 * i] = readS4(base + 12 + i * 4);
+                    }
+                    length = base - bci + 12 + n * 4;
+                    break;
+                }
+                case LOOKUPSWITCH: {
+                    int base = bci + align(bci);
+                    int n = readS4(base + 4);
+                    data[bci] = reserveSwitchData(n);
+                    int p = data[bci];
+                    switchData[p] = readS4(base);
+                    switchData[p + 1] = n;
+                    switchData[p + 2] = n > 0 ? readS4(base + 8) : 0;
+                    switchData[p + 3] = n > 0 ? readS4(base + 8 + (n - 1) * 8) : 0;
+                    for (int i = 0; i < n; i++) {
+                        switchData[p + 4 + 2 * i] = readS4(base + 8 + i * 8);
+                        switchData[p + 5 + 2 * i] = readS4(base + 8 + i * 8 + 4);
+                    }
+                    length = base - bci + 8 + n * 8;
+                    break;
+                }
+                default:
+                    break;
+            }
+            nextBci[bci] = bci + length;
+            bci = nextBci[bci];
+        }
+        return count;
+    }
+
+    private int reserveSwitchData(int numOfCase) {
+        int pos = switchDataSize;
+        int need = pos + 4 + numOfCase * 2;
+        if (need > switchData.length) {
+            switchData = Arrays.copyOf(switchData, Math.max(need, switchData.length * 2));
+        }
+        switchDataSize = need;
+        return pos;
+    }
+
+    private static int align(int bci) {
+        return 1 + (3 - bci % 4);
+    }
+
+    private static int lengthOf(int c) {
+        switch (c) {
+            case BIPUSH:
+            case LDC:
+            case ILOAD:
+            case LLOAD:
+            case FLOAD:
+            case DLOAD:
+            case ALOAD:
+            case ISTORE:
+            case LSTORE:
+            case FSTORE:
+            case DSTORE:
+            case ASTORE:
+            case RET:
+            case NEWARRAY:
+                return 2;
+            case SIPUSH:
+            case IFEQ:
+            case IFNE:
+            case IFLT:
+            case IFGE:
+            case IFGT:
+            case IFLE:
+            case IF_ICMPEQ:
+            case IF_ICMPNE:
+            case IF_ICMPLT:
+            case IF_ICMPGE:
+            case IF_ICMPGT:
+            case IF_ICMPLE:
+            case IF_ACMPEQ:
+            case IF_ACMPNE:
+            case GOTO:
+            case JSR:
+            case GETSTATIC:
+            case PUTSTATIC:
+            case GETFIELD:
+            case PUTFIELD:
+            case NEW:
+            case ANEWARRAY:
+            case CHECKCAST:
+            case INSTANCEOF:
+            case IFNULL:
+            case IFNONNULL:
+            case IINC:
+            case LDC_W:
+            case LDC2_W:
+            case INVOKEVIRTUAL:
+            case INVOKESPECIAL:
+            case INVOKESTATIC:
+                return 3;
+            case MULTIANEWARRAY:
+                return 4;
+            case GOTO_W:
+            case JSR_W:
+            case INVOKEINTERFACE:
+            case INVOKEDYNAMIC:
+                return 5;
+            case TABLESWITCH:
+            case LOOKUPSWITCH:
+                // Variable length, computed by caller
+                return 0;
+            case BREAKPOINT:
+            case ILLEGAL:
+            case END:
+                YarrowError.shouldNotReachHere();
+                return 1;
+            default:
+                if (c > BREAKPOINT) {
+                    YarrowError.shouldNotReachHere();
+                }
+                return 1;
+        }
+    }
+
+    private int readS2(int i) {
+        return (code[i] << 8) | (code[i + 1] & 0xff);
+    }
+
+    private int readU2(int i) {
+        return ((code[i] & 0xff) << 8) | (code[i + 1] & 0xff);
+    }
+
+    private int readS4(int i) {
+        return (code[i] << 24) | ((code[i + 1] & 0xff) << 16) | ((code[i + 2] & 0xff) << 8) | (code[i + 3] & 0xff);
+    }
+
+    public byte[] getCode() {
+        return code;
+    }
+
+    public int getCodeSize() {
+        return code.length;
+    }
+
+    public int getNumOfBytecodes() {
+        return numOfBytecodes;
+    }
+
+    public boolean isInstructionStart(int bci) {
+        return bci >= 0 && bci < code.length && (flags[bci] & START) != 0;
+    }
+
+    public int opcodeAt(int bci) {
+        return opcode[bci] & 0xff;
+    }
+
+    public boolean isWide(int bci) {
+        return (flags[bci] & WIDE_PREFIX) != 0;
+    }
+
+    public int nextBci(int bci) {
+        return nextBci[bci];
+    }
+
+    public int dataAt(int bci) {
+        return data[bci];
+    }
+
+    /**
+     * Increment constant of iinc instruction at given bci
+     */
+    public int incrementConstAt(int bci) {
+        return isWide(bci) ? readS2(bci + 4) : code[bci + 2];
+    }
+
+    public int switchDefaultDest(int bci) {
+        return switchData[data[bci]];
+    }
+
+    public int switchNumOfCase(int bci) {
+        return switchData[data[bci] + 1];
+    }
+
+    public int switchLowKey(int bci) {
+        return switchData[data[bci] + 2];
+    }
+
+    public int switchHighKey(int bci) {
+        return switchData[data[bci] + 3];
+    }
+
+    public int switchKey(int bci, int index) {
+        return switchData[data[bci] + 4 + 2 * index];
+    }
+
+    public int switchDest(int bci, int index) {
+        return switchData[data[bci] + 5 + 2 * index];
+    }
+
+    /**
+     * Produce disassembly string of instruction at given bci. This is only used
+     * for logging, so it's never called on hot path.
+     */
+    public String disassemble(int bci) {
+        int c = opcodeAt(bci);
+        StringBuilder sb = new StringBuilder();
+        sb.append(bci).append(":");
+        if (isWide(bci)) {
+            sb.append("wide ");
+        }
+        sb.append(Bytecode.forName(c));
+        switch (c) {
+            case IINC:
+                sb.append(" ").append(data[bci]).append(" ").append(incrementConstAt(bci));
+                break;
+            case TABLESWITCH:
+            case LOOKUPSWITCH:
+                sb.append(" default:").append(switchDefaultDest(bci));
+                for (int i = 0; i < switchNumOfCase(bci); i++) {
+                    sb.append(" ").append(switchKey(bci, i)).append(":").append(switchDest(bci, i));
+                }
+                break;
+            default:
+                if (nextBci[bci] - bci > 1 || isWide(bci)) {
+                    sb.append(" ").append(data[bci]);
+                }
+                break;
+        }
+        return sb.toString();
+    }
+}
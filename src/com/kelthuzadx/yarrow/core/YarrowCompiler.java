@@ -23,12 +23,14 @@ public class YarrowCompiler implements JVMCICompiler {
     @Override
     public CompilationRequestResult compileMethod(CompilationRequest request) {
         HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) request.getMethod();
-        if (method.hasCompiledCodeAtLevel(YarrowConfigAccess.access().CompLevel_full_optimization)) {
+        int entryBci = request.getEntryBCI();
+        if (entryBci == INVOCATION_ENTRY_BCI &&
+                method.hasCompiledCodeAtLevel(YarrowConfigAccess.access().CompLevel_full_optimization)) {
             return HotSpotCompilationRequestResult.success(0);
         }
         Logger.logf("=====Compiling {}.{}=====", method.getDeclaringClass().getUnqualifiedName(), method.getName());
         Stream.of(method)
-                .map(CFG::new)
+                .map(m -> new CFG(m, entryBci))
                 .map(CFG::build)
                 .peek(CFG::log)
                 .map(HirBuilder::new)
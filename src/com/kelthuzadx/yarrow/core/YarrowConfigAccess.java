@@ -19,6 +19,147 @@ public class YarrowConfigAccess extends HotSpotVMConfigAccess {
 
     public final int klassOffset = getFieldOffset("oopDesc::_metadata._klass", Integer.class, "Klass*");
 
+    public final long narrowKlassBase = getFieldValue("CompilerToVM::Data::Universe_narrow_klass_base", Long.class, "address");
+
+    public final int narrowKlassShift = getFieldValue("CompilerToVM::Data::Universe_narrow_klass_shift", Integer.class, "int");
+
+    public final int elementKlassOffset = getFieldOffset("ObjArrayKlass::_element_klass", Integer.class, "Klass*");
+
+    public final int superCheckOffsetOffset = getFieldOffset("Klass::_super_check_offset", Integer.class, "juint");
+
+    public final int secondarySuperCacheOffset = getFieldOffset("Klass::_secondary_super_cache", Integer.class, "Klass*");
+
+    public final int secondarySupersOffset = getFieldOffset("Klass::_secondary_supers", Integer.class, "Array<Klass*>*");
+
+    public final int pendingDeoptimizationOffset = getFieldOffset("JavaThread::_pending_deoptimization", Integer.class, "int");
+
+    public final int pendingFailedSpeculationOffset = getFieldOffset("JavaThread::_pending_failed_speculation", Integer.class, "jlong");
+
+    public final long deoptBlobUncommonTrap = getFieldValue("CompilerToVM::Data::SharedRuntime_deopt_blob_uncommon_trap", Long.class, "address");
+
+    // Every thread has its own polling page, which is protected when VM requests a safepoint or handshake
+    public final int threadPollingPageOffset = getFieldOffset("JavaThread::_poll_data", Integer.class, "SafepointMechanism::ThreadData") +
+            getFieldOffset("SafepointMechanism::ThreadData::_polling_page", Integer.class, "volatile uintptr_t");
+
+    public final int markOffset = getFieldOffset("oopDesc::_mark", Integer.class, "markWord");
+
+    public final int basicLockDisplacedHeaderOffset = getFieldOffset("BasicLock::_displaced_header", Integer.class, "markWord");
+
+    public final long unlockedValue = getConstant("markWord::unlocked_value", Long.class);
+
+    // Not exported by every VM, it's the lowest two bits of mark word
+    public final long lockMaskInPlace = getConstant("markWord::lock_mask_in_place", Long.class, 3L);
+
+    public final int markWordHashShift = getConstant("markWord::hash_shift", Integer.class);
+
+    public final long markWordHashMask = getConstant("markWord::hash_mask", Long.class);
+
+    public final int instanceKlassInitStateOffset = getFieldOffset("InstanceKlass::_init_state", Integer.class, "u1");
+
+    // Thread running static initializer of the class
+    public final int instanceKlassInitThreadOffset = getFieldOffset("InstanceKlass::_init_thread", Integer.class, "Thread*");
+
+    public final int instanceKlassFullyInitialized = getConstant("InstanceKlass::fully_initialized", Integer.class);
+
+    // Handle of java.lang.Thread object of current thread
+    public final int threadObjOffset = getFieldOffset("JavaThread::_threadObj", Integer.class, "OopHandle");
+
+    public final int vmPageSize = getFieldValue("CompilerToVM::Data::vm_page_size", Integer.class, "int");
+
+    public final long nonOopBits = getFieldValue("CompilerToVM::Data::Universe_non_oop_bits", Long.class, "void*");
+
+    public final int methodCompiledEntryOffset = getFieldOffset("Method::_from_compiled_entry", Integer.class, "address");
+
+    public final int invokeStaticMark = getConstant("CodeInstaller::INVOKESTATIC", Integer.class);
+
+    public final int invokeSpecialMark = getConstant("CodeInstaller::INVOKESPECIAL", Integer.class);
+
+    public final int invokeVirtualMark = getConstant("CodeInstaller::INVOKEVIRTUAL", Integer.class);
+
+    public final int invokeInterfaceMark = getConstant("CodeInstaller::INVOKEINTERFACE", Integer.class);
+
+    public final int inlineInvokeMark = getConstant("CodeInstaller::INLINE_INVOKE", Integer.class);
+
+    public final boolean useFMA = getFlag("UseFMA", Boolean.class, false);
+
+    public final long dsin = getFieldValue("CompilerToVM::Data::dsin", Long.class, "address");
+
+    public final long dcos = getFieldValue("CompilerToVM::Data::dcos", Long.class, "address");
+
+    public final long dtan = getFieldValue("CompilerToVM::Data::dtan", Long.class, "address");
+
+    public final long dlog = getFieldValue("CompilerToVM::Data::dlog", Long.class, "address");
+
+    public final long dlog10 = getFieldValue("CompilerToVM::Data::dlog10", Long.class, "address");
+
+    public final long dexp = getFieldValue("CompilerToVM::Data::dexp", Long.class, "address");
+
+    public final long dpow = getFieldValue("CompilerToVM::Data::dpow", Long.class, "address");
+
+    // Copy stubs take source address, destination address and element count, the oop ones
+    // apply GC barriers around copying
+    public final long jbyteArraycopy = getFieldValue("StubRoutines::_jbyte_arraycopy", Long.class, "address");
+
+    public final long jbyteDisjointArraycopy = getFieldValue("StubRoutines::_jbyte_disjoint_arraycopy", Long.class, "address");
+
+    public final long jshortArraycopy = getFieldValue("StubRoutines::_jshort_arraycopy", Long.class, "address");
+
+    public final long jshortDisjointArraycopy = getFieldValue("StubRoutines::_jshort_disjoint_arraycopy", Long.class, "address");
+
+    public final long jintArraycopy = getFieldValue("StubRoutines::_jint_arraycopy", Long.class, "address");
+
+    public final long jintDisjointArraycopy = getFieldValue("StubRoutines::_jint_disjoint_arraycopy", Long.class, "address");
+
+    public final long jlongArraycopy = getFieldValue("StubRoutines::_jlong_arraycopy", Long.class, "address");
+
+    public final long jlongDisjointArraycopy = getFieldValue("StubRoutines::_jlong_disjoint_arraycopy", Long.class, "address");
+
+    public final long oopArraycopy = getFieldValue("StubRoutines::_oop_arraycopy", Long.class, "address");
+
+    public final long oopDisjointArraycopy = getFieldValue("StubRoutines::_oop_disjoint_arraycopy", Long.class, "address");
+
+    public final long oopArraycopyUninit = getFieldValue("StubRoutines::_oop_arraycopy_uninit", Long.class, "address");
+
+    public final long oopDisjointArraycopyUninit = getFieldValue("StubRoutines::_oop_disjoint_arraycopy_uninit", Long.class, "address");
+
+    public final long checkcastArraycopy = getFieldValue("StubRoutines::_checkcast_arraycopy", Long.class, "address");
+
+    public final long checkcastArraycopyUninit = getFieldValue("StubRoutines::_checkcast_arraycopy_uninit", Long.class, "address");
+
+    public final boolean useSerialGC = getFlag("UseSerialGC", Boolean.class);
+
+    public final boolean useParallelGC = getFlag("UseParallelGC", Boolean.class);
+
+    public final boolean useG1GC = getFlag("UseG1GC", Boolean.class);
+
+    public final boolean useEpsilonGC = getFlag("UseEpsilonGC", Boolean.class, false);
+
+    public final boolean useZGC = getFlag("UseZGC", Boolean.class, false);
+
+    public final boolean useShenandoahGC = getFlag("UseShenandoahGC", Boolean.class, false);
+
+    public final boolean reduceInitialCardMarks = getFlag("ReduceInitialCardMarks", Boolean.class);
+
+    public final long cardTableStart = getFieldValue("CompilerToVM::Data::cardtable_start_address", Long.class, "CardTable::CardValue*");
+
+    public final int cardTableShift = getFieldValue("CompilerToVM::Data::cardtable_shift", Integer.class, "int");
+
+    public final int dirtyCardValue = getConstant("CardTable::dirty_card", Integer.class);
+
+    public final int g1YoungCardValue = getConstant("G1CardTable::g1_young_gen", Integer.class);
+
+    public final int logOfHeapRegionGrainBytes = getFieldValue("HeapRegion::LogOfHRGrainBytes", Integer.class, "int");
+
+    public final int g1SatbQueueActiveOffset = getConstant("G1ThreadLocalData::satb_mark_queue_active_offset", Integer.class);
+
+    public final int g1SatbQueueIndexOffset = getConstant("G1ThreadLocalData::satb_mark_queue_index_offset", Integer.class);
+
+    public final int g1SatbQueueBufferOffset = getConstant("G1ThreadLocalData::satb_mark_queue_buffer_offset", Integer.class);
+
+    public final int g1CardQueueIndexOffset = getConstant("G1ThreadLocalData::dirty_card_queue_index_offset", Integer.class);
+
+    public final int g1CardQueueBufferOffset = getConstant("G1ThreadLocalData::dirty_card_queue_buffer_offset", Integer.class);
+
 
     private YarrowConfigAccess(HotSpotVMConfigStore store) {
         super(store);
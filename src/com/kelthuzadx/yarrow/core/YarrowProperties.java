@@ -35,6 +35,12 @@ public class YarrowProperties {
                     } else {
                         Logger.log(Mode.Error, "Invalid yarrow property {} for -Dyarrow.{}.{}", prop.get(), klass.getSimpleName(), field.getName());
                     }
+                } else if (field.getType().equals(int.class) || field.getType().equals(Integer.class)) {
+                    try {
+                        field.setInt(null, Integer.parseInt(prop.get()));
+                    } catch (NumberFormatException e) {
+                        Logger.log(Mode.Error, "Invalid yarrow property {} for -Dyarrow.{}.{}", prop.get(), klass.getSimpleName(), field.getName());
+                    }
                 }
             }
         } catch (Exception e) {
@@ -51,4 +57,15 @@ public class YarrowProperties {
         public static boolean TraceHIRGeneration = true;
         public static boolean TraceLIRGeneration = true;
     }
+
+    public static class Optimize {
+        public static boolean UseSpeculativeBranchPruning = true;
+        public static boolean UseLoopSafepoints = true;
+        // Maximum iterations of a counted loop without polling for safepoint
+        public static int LoopStripMiningIter = 1000;
+        // Maximum elements of a checked-free array copy that are moved inline instead of by stub
+        public static int ArrayCopyUnrollLimit = 8;
+        // Maximum initial capacity of a StringBuilder sized by its appended values
+        public static int MaxStringBuilderCapacity = 4096;
+    }
 }
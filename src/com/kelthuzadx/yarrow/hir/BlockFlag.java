@@ -3,5 +3,6 @@ package com.kelthuzadx.yarrow.hir;
 public enum BlockFlag {
     OsrEntry,
     NormalEntry,
-    CatchEntry
+    CatchEntry,
+    UncommonTrap
 }
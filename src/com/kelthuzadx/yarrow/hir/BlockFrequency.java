@@ -0,0 +1,321 @@
+package com.kelthuzadx.yarrow.hir;
+
+import com.kelthuzadx.yarrow.bytecode.BytecodeIndex;
+import com.kelthuzadx.yarrow.hir.instr.BlockStartInstr;
+import jdk.vm.ci.meta.ProfilingInfo;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import static com.kelthuzadx.yarrow.bytecode.Bytecode.*;
+
+/**
+ * Estimate relative execution frequency of every basic block, the block at bci 0 is
+ * executed exactly once. Branch probabilities come from HotSpot MethodData if they are
+ * available, otherwise all normal successors are considered equally likely.
+ * <p>
+ * Loops are handled as Wu-Larus does, loop headers are processed from innermost
+ * to outermost, each one gets a cyclic probability, i.e. the probability of
+ * reaching header again from itself, and its frequency is then scaled by
+ * {@code 1/(1-cyclicProbability)}.
+ *
+ * @author kelthuzadx
+ */
+public class BlockFrequency {
+    // Taking an exception edge is considered very rare
+    private static final double EXCEPTION_PROBABILITY = 1e-4;
+    // Prevent hot loops from producing infinite frequency
+    private static final double MAX_CYCLIC_PROBABILITY = 1 - 1e-6;
+
+    private final BytecodeIndex code;
+    private final ProfilingInfo profile;
+    private final BlockStartInstr[] blocks;
+    private final BlockStartInstr start;
+    // Indexed by block id
+    private final int[] rpo;
+    private final double[][] probability;
+    private final double[][] edgeFrequency;
+    private final double[] frequency;
+    private final double[] cyclicProbability;
+    private final boolean[] isHeader;
+    // Incoming edges of every block, as block id of predecessor and index in its successor list
+    private final int[][] predId;
+    private final int[][] predEdge;
+    // Blocks in reverse post order
+    private BlockStartInstr[] order;
+
+    public BlockFrequency(BytecodeIndex code, ProfilingInfo profile, BlockStartInstr[] blocks,
+                          BlockStartInstr start, int numOfBlocks) {
+        this.code = code;
+        this.profile = profile;
+        this.blocks = blocks;
+        this.start = start;
+        this.rpo = new int[numOfBlocks];
+        this.probability = new double[numOfBlocks][];
+        this.edgeFrequency = new double[numOfBlocks][];
+        this.frequency = new double[numOfBlocks];
+        this.cyclicProbability = new double[numOfBlocks];
+        this.isHeader = new boolean[numOfBlocks];
+        this.predId = new int[numOfBlocks][];
+        this.predEdge = new int[numOfBlocks][];
+    }
+
+    private void computePredecessors() {
+        int[] count = new int[rpo.length];
+        for (BlockStartInstr block : order) {
+            for (BlockStartInstr succ : block.getSuccessor()) {
+                count[succ.getBlockId()]++;
+            }
+        }
+        for (int i = 0; i < rpo.length; i++) {
+            predId[i] = new int[count[i]];
+            predEdge[i] = new int[count[i]];
+            count[i] = 0;
+        }
+        for (BlockStartInstr block : order) {
+            List<BlockStartInstr> succ = block.getSuccessor();
+            for (int s = 0; s < succ.size(); s++) {
+                int to = succ.get(s).getBlockId();
+                predId[to][count[to]] = block.getBlockId();
+                predEdge[to][count[to]] = s;
+                count[to]++;
+            }
+        }
+    }
+
+    public BlockFrequency compute() {
+        computeReversePostOrder();
+        computePredecessors();
+        for (BlockStartInstr block : order) {
+            probability[block.getBlockId()] = computeProbability(block);
+            edgeFrequency[block.getBlockId()] = new double[block.getSuccessor().size()];
+        }
+
+        // Find natural loops, a back edge goes to a block which is not after it in RPO
+        boolean[][] loopBody = new boolean[rpo.length][];
+        for (BlockStartInstr block : order) {
+            for (BlockStartInstr succ : block.getSuccessor()) {
+                if (isBackEdge(block, succ)) {
+                    int h = succ.getBlockId();
+                    if (loopBody[h] == null) {
+                        loopBody[h] = new boolean[rpo.length];
+                        loopBody[h][h] = true;
+                        isHeader[h] = true;
+                    }
+                    collectLoopBody(loopBody[h], block);
+                }
+            }
+        }
+
+        // Inner loop headers come after outer ones in RPO
+        for (int i = order.length - 1; i >= 0; i--) {
+            int h = order[i].getBlockId();
+            if (isHeader[h]) {
+                propagate(order[i], loopBody[h], false);
+            }
+        }
+        boolean[] all = new boolean[rpo.length];
+        for (BlockStartInstr block : order) {
+            all[block.getBlockId()] = true;
+        }
+        propagate(start, all, true);
+
+        for (BlockStartInstr block : blocks) {
+            block.setFrequency(frequency[block.getBlockId()]);
+        }
+        return this;
+    }
+
+    public double getFrequency(BlockStartInstr block) {
+        return frequency[block.getBlockId()];
+    }
+
+    private boolean isBackEdge(BlockStartInstr from, BlockStartInstr to) {
+        return rpo[to.getBlockId()] <= rpo[from.getBlockId()];
+    }
+
+    private void computeReversePostOrder() {
+        Arrays.fill(rpo, -1);
+        BlockStartInstr[] postOrder = new BlockStartInstr[blocks.length];
+        int count = 0;
+        boolean[] visited = new boolean[rpo.length];
+        Deque<BlockStartInstr> stack = new ArrayDeque<>();
+        Deque<Integer> nextSucc = new ArrayDeque<>();
+        stack.push(start);
+        nextSucc.push(0);
+        visited[start.getBlockId()] = true;
+        while (!stack.isEmpty()) {
+            BlockStartInstr block = stack.peek();
+            int i = nextSucc.pop();
+            List<BlockStartInstr> succ = block.getSuccessor();
+            if (i < succ.size()) {
+                nextSucc.push(i + 1);
+                BlockStartInstr s = succ.get(i);
+                if (!visited[s.getBlockId()]) {
+                    visited[s.getBlockId()] = true;
+                    stack.push(s);
+                    nextSucc.push(0);
+                }
+            } else {
+                stack.pop();
+                postOrder[count++] = block;
+            }
+        }
+        order = new BlockStartInstr[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = postOrder[count - 1 - i];
+            rpo[order[i].getBlockId()] = i;
+        }
+    }
+
+    private void collectLoopBody(boolean[] body, BlockStartInstr latch) {
+        // Walk backward from latch until loop header, which is already in body
+        Deque<Integer> work = new ArrayDeque<>();
+        work.push(latch.getBlockId());
+        while (!work.isEmpty()) {
+            int id = work.pop();
+            if (body[id]) {
+                continue;
+            }
+            body[id] = true;
+            for (int pred : predId[id]) {
+                if (!body[pred] && rpo[pred] >= 0) {
+                    work.push(pred);
+                }
+            }
+        }
+    }
+
+    private void propagate(BlockStartInstr head, boolean[] region, boolean wholeMethod) {
+        double backEdgeFrequency = 0;
+        for (int i = rpo[head.getBlockId()]; i < order.length; i++) {
+            BlockStartInstr block = order[i];
+            int id = block.getBlockId();
+            if (!region[id]) {
+                continue;
+            }
+            double freq;
+            if (block == head) {
+                freq = 1;
+                if (wholeMethod && isHeader[id]) {
+                    // Method starts with a loop
+                    freq /= 1 - cyclicProbability[id];
+                }
+            } else {
+                freq = 0;
+                for (int k = 0; k < predId[id].length; k++) {
+                    int pred = predId[id][k];
+                    // Back edges are accounted by cyclic probability
+                    if (region[pred] && rpo[pred] < i) {
+                        freq += edgeFrequency[pred][predEdge[id][k]];
+                    }
+                }
+                if (isHeader[id]) {
+                    freq /= 1 - cyclicProbability[id];
+                }
+            }
+            frequency[id] = freq;
+
+            List<BlockStartInstr> succ = block.getSuccessor();
+            for (int s = 0; s < succ.size(); s++) {
+                double edge = freq * probability[id][s];
+                edgeFrequency[id][s] = edge;
+                if (succ.get(s) == head) {
+                    backEdgeFrequency += edge;
+                }
+            }
+        }
+        if (wholeMethod) {
+            return;
+        }
+        cyclicProbability[head.getBlockId()] = Math.min(backEdgeFrequency, MAX_CYCLIC_PROBABILITY);
+    }
+
+    /**
+     * Probability of taking each successor edge of given block, exception edges
+     * are excluded from normal successors whose probabilities sum to 1
+     */
+    private double[] computeProbability(BlockStartInstr block) {
+        List<BlockStartInstr> succ = block.getSuccessor();
+        double[] prob = new double[succ.size()];
+        int numOfNormal = 0;
+        for (int s = 0; s < succ.size(); s++) {
+            if (succ.get(s).getFlag() == BlockFlag.CatchEntry) {
+                prob[s] = EXCEPTION_PROBABILITY;
+            } else {
+                numOfNormal++;
+            }
+        }
+        if (numOfNormal == 0) {
+            return prob;
+        }
+
+        int bci = block.getEndBci();
+        boolean profiled = false;
+        switch (code.opcodeAt(bci)) {
+            case IFEQ:
+            case IFNE:
+            case IFLT:
+            case IFGE:
+            case IFGT:
+            case IFLE:
+            case IF_ICMPEQ:
+            case IF_ICMPNE:
+            case IF_ICMPLT:
+            case IF_ICMPGE:
+            case IF_ICMPGT:
+            case IF_ICMPLE:
+            case IF_ACMPEQ:
+            case IF_ACMPNE:
+            case IFNULL:
+            case IFNONNULL: {
+                double taken = profile != null ? profile.getBranchTakenProbability(bci) : -1;
+                if (taken >= 0 && numOfNormal == 2) {
+                    // Successor 0 is branch target while 1 is fall through
+                    prob[0] = taken;
+                    prob[1] = 1 - taken;
+                    profiled = true;
+                }
+                break;
+            }
+            case TABLESWITCH:
+            case LOOKUPSWITCH: {
+                double[] sw = profile != null ? profile.getSwitchProbabilities(bci) : null;
+                int n = code.switchNumOfCase(bci);
+                if (sw != null && sw.length == n + 1) {
+                    // The last one is probability of default destination
+                    for (int i = 0; i < n; i++) {
+                        BlockStartInstr dest = blockAt(bci + code.switchDest(bci, i), succ);
+                        prob[succ.indexOf(dest)] += sw[i];
+                    }
+                    BlockStartInstr dest = blockAt(bci + code.switchDefaultDest(bci), succ);
+                    prob[succ.indexOf(dest)] += sw[n];
+                    profiled = true;
+                }
+                break;
+            }
+            default:
+                break;
+        }
+
+        if (!profiled) {
+            for (int s = 0; s < succ.size(); s++) {
+                if (succ.get(s).getFlag() != BlockFlag.CatchEntry) {
+                    prob[s] = 1.0 / numOfNormal;
+                }
+            }
+        }
+        return prob;
+    }
+
+    private static BlockStartInstr blockAt(int bci, List<BlockStartInstr> succ) {
+        for (BlockStartInstr block : succ) {
+            if (block.getStartBci() == bci) {
+                return block;
+            }
+        }
+        return null;
+    }
+}
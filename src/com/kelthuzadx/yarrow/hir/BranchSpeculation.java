@@ -0,0 +1,57 @@
+package com.kelthuzadx.yarrow.hir;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.SpeculationLog;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Speculation that one direction of a conditional branch is never taken. If the trap
+ * ever fires, the speculation log remembers it and the branch is compiled in full
+ * next time.
+ *
+ * @author kelthuzadx
+ */
+public class BranchSpeculation implements SpeculationLog.SpeculationReason {
+    private final ResolvedJavaMethod method;
+    private final int bci;
+    private final boolean taken;
+
+    public BranchSpeculation(ResolvedJavaMethod method, int bci, boolean taken) {
+        this.method = method;
+        this.bci = bci;
+        this.taken = taken;
+    }
+
+    @Override
+    public SpeculationLog.SpeculationReasonEncoding encode(Supplier<SpeculationLog.SpeculationReasonEncoding> encodingSupplier) {
+        SpeculationLog.SpeculationReasonEncoding encoding = encodingSupplier.get();
+        encoding.addMethod(method);
+        encoding.addInt(bci);
+        encoding.addByte(taken ? 1 : 0);
+        return encoding;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BranchSpeculation)) {
+            return false;
+        }
+        BranchSpeculation that = (BranchSpeculation) obj;
+        return bci == that.bci && taken == that.taken && method.equals(that.method);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(method, bci, taken);
+    }
+
+    @Override
+    public String toString() {
+        return "BranchSpeculation{" + method.getName() + "@" + bci + (taken ? ",taken" : ",not taken") + "}";
+    }
+}
@@ -1,13 +1,17 @@
 package com.kelthuzadx.yarrow.hir;
 
 import com.kelthuzadx.yarrow.bytecode.Bytecode;
+import com.kelthuzadx.yarrow.bytecode.BytecodeIndex;
 import com.kelthuzadx.yarrow.bytecode.BytecodeStream;
 import com.kelthuzadx.yarrow.core.YarrowError;
 import com.kelthuzadx.yarrow.hir.instr.BlockStartInstr;
 import com.kelthuzadx.yarrow.optimize.Phase;
+import com.kelthuzadx.yarrow.util.CompilerErrors;
 import com.kelthuzadx.yarrow.util.Logger;
 import com.kelthuzadx.yarrow.util.Mode;
 import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
+import jdk.vm.ci.meta.ExceptionHandler;
+import jdk.vm.ci.runtime.JVMCICompiler;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -23,21 +27,33 @@ import static com.kelthuzadx.yarrow.core.YarrowProperties.Debug.*;
 public class CFG implements Phase {
     public final HotSpotResolvedJavaMethod method;
     private BlockStartInstr entryBlock;
+    // Entry for on-stack replacement, null for normal compilation
+    private BlockStartInstr osrEntryBlock;
+    private final int osrBci;
     private int nextBlockId;
     private byte[] code;
+    private BytecodeIndex bytecodeIndex;
     private ExHandler[] exHandler;
     private BlockStartInstr[] bciToBlockMapping;
     private BlockStartInstr[] blocks;
     private HashMap<Integer, Integer> loopMap;
     private int nextLoopIndex;
-
+    private Liveness liveness;
+    private BlockFrequency frequency;
 
     public CFG(HotSpotResolvedJavaMethod method) {
+        this(method, JVMCICompiler.INVOCATION_ENTRY_BCI);
+    }
+
+    public CFG(HotSpotResolvedJavaMethod method, int osrBci) {
         this.method = method;
+        this.osrBci = osrBci;
         this.nextBlockId = 1; // reserve 0 for entry block
         int codeSize = method.getCodeSize();
         this.code = method.getCode();
+        this.bytecodeIndex = new BytecodeIndex(code);
         this.exHandler = new ExHandler[method.getExceptionHandlers().length];
+        createExceptionHandlers();
         this.bciToBlockMapping = new BlockStartInstr[codeSize];
         this.blocks = null;
         this.loopMap = new HashMap<>();
@@ -48,10 +64,15 @@ public class CFG implements Phase {
     @Override
     public CFG build() {
         mapBciToBlocks();
-        uniqueBlocks();
         var visit = new HashSet<Integer>(blocks.length);
         var active = new HashSet<Integer>(blocks.length);
         identifyLoop(visit, active, bciToBlockMapping[0]);
+        liveness = new Liveness(bytecodeIndex, method.getMaxLocals(), blocks, nextBlockId).compute();
+        frequency = new BlockFrequency(bytecodeIndex, method.getProfilingInfo(), blocks,
+                blockContain(0), nextBlockId).compute();
+        if (isOsr()) {
+            createOsrEntryBlock();
+        }
         return this;
     }
 
@@ -63,40 +84,96 @@ public class CFG implements Phase {
         return entryBlock;
     }
 
+    public boolean isOsr() {
+        return osrBci != JVMCICompiler.INVOCATION_ENTRY_BCI;
+    }
+
+    public int getOsrBci() {
+        return osrBci;
+    }
+
+    public BlockStartInstr getOsrEntryBlock() {
+        return osrEntryBlock;
+    }
+
     public BlockStartInstr[] getBlocks() {
         return blocks;
     }
 
+    public BytecodeIndex getBytecodeIndex() {
+        return bytecodeIndex;
+    }
+
+    public BlockFrequency getFrequency() {
+        return frequency;
+    }
+
+    public Liveness getLiveness() {
+        return liveness;
+    }
+
+    /**
+     * Create a block which does nothing but deoptimize, it replaces given block when
+     * compiled code speculates that block is never reached. Interpreter resumes at
+     * the start of given block.
+     */
+    public BlockStartInstr createTrapBlock(BlockStartInstr target) {
+        BlockStartInstr trap = new BlockStartInstr(nextBlockId++, target.getStartBci());
+        trap.setFlag(BlockFlag.UncommonTrap);
+        trap.setLiveIn(target.getLiveIn());
+        trap.setFrequency(0);
+        return trap;
+    }
+
     private void createEntryBlock() {
         BlockStartInstr entry = new BlockStartInstr(0, -1);
         entry.setFlag(BlockFlag.NormalEntry);
         this.entryBlock = entry;
     }
 
+    /**
+     * OSR entry jumps to the loop header at OSR bci directly, the loop header must already
+     * have phis for every live value so that values from OSR buffer can flow in.
+     */
+    private void createOsrEntryBlock() {
+        BlockStartInstr header = blockContain(osrBci);
+        if (header == null || header.getStartBci() != osrBci || !header.isLoopHeader()) {
+            CompilerErrors.bailOut("OSR bci " + osrBci + " is not a loop header");
+        }
+        BlockStartInstr osrEntry = new BlockStartInstr(nextBlockId++, -1);
+        osrEntry.setFlag(BlockFlag.OsrEntry);
+        osrEntry.addSuccessor(header);
+        this.osrEntryBlock = osrEntry;
+    }
+
     private void fixupEntryBlock() {
         this.entryBlock.addSuccessor(blockContain(0));
     }
 
     private void mapBciToBlocks() {
         createEntryBlock();
-        createExceptionBlock();
+        BitSet leaders = markLeaders();
+        createBlocks(leaders);
+        connectBlocks();
+        fixupEntryBlock();
+    }
 
-        BlockStartInstr currentBlock = null;
-        BytecodeStream stream = new BytecodeStream(code);
+    /**
+     * First pass, find all bci where a basic block starts
+     */
+    private BitSet markLeaders() {
+        BitSet leaders = new BitSet(code.length);
+        leaders.set(0);
+        if (isOsr()) {
+            leaders.set(osrBci);
+        }
+        for (ExHandler handler : exHandler) {
+            leaders.set(handler.getCatchEntryBci());
+        }
+
+        BytecodeStream stream = new BytecodeStream(bytecodeIndex);
         while (stream.hasNext()) {
             int bci = stream.next();
-            if (currentBlock == null) {
-                currentBlock = createBlockAt(bci);
-            } else {
-                if (bciToBlockMapping[bci] != null) {
-                    if (!bciToBlockMapping[currentBlock.getEndBci()].hasSuccessor(bciToBlockMapping[bci])) {
-                        bciToBlockMapping[currentBlock.getEndBci()].addSuccessor(bciToBlockMapping[bci]);
-                    }
-                    currentBlock = bciToBlockMapping[bci];
-                }
-            }
-            currentBlock.setEndBci(bci);
-            bciToBlockMapping[bci] = currentBlock;
             switch (stream.currentBytecode()) {
                 case IFEQ:
                 case IFNE:
@@ -113,42 +190,32 @@ public class CFG implements Phase {
                 case IF_ACMPEQ:
                 case IF_ACMPNE:
                 case IFNULL:
-                case IFNONNULL: {
-                    // Set current block as empty so that next bci would create
-                    // new basic block
-                    currentBlock = null;
-                    bciToBlockMapping[bci].addSuccessor(createBlockAt(bci + stream.getBytecodeData()));
-                    bciToBlockMapping[bci].addSuccessor(createBlockAt(stream.peekNextBci()));
-                    break;
-                }
+                case IFNONNULL:
                 case GOTO:
-                case GOTO_W: {
-                    currentBlock = null;
-                    bciToBlockMapping[bci].addSuccessor(createBlockAt(bci + stream.getBytecodeData()));
+                case GOTO_W:
+                    leaders.set(bci + stream.getBytecodeData());
+                    markFallThrough(leaders, stream);
                     break;
-                }
                 case RET:
                 case JSR:
-                case JSR_W: {
+                case JSR_W:
                     YarrowError.unimplemented("ret/jsr considers deprecated and thus not supported");
-                }
                 case TABLESWITCH: {
-                    currentBlock = null;
                     BytecodeStream.TableSwitch ts = stream.getTableSwitch();
-                    bciToBlockMapping[bci].addSuccessor(createBlockAt(bci + ts.getDefaultDest()));
+                    leaders.set(bci + ts.getDefaultDest());
                     for (int i = 0; i < ts.getNumOfCase(); i++) {
-                        bciToBlockMapping[bci].addSuccessor(createBlockAt(bci + ts.getKeyDest(i)));
+                        leaders.set(bci + ts.getKeyDest(i));
                     }
+                    markFallThrough(leaders, stream);
                     break;
                 }
                 case LOOKUPSWITCH: {
-                    currentBlock = null;
                     BytecodeStream.LookupSwitch ls = stream.getLookupSwitch();
-                    bciToBlockMapping[bci].addSuccessor(createBlockAt(bci + ls.getDefaultDest()));
+                    leaders.set(bci + ls.getDefaultDest());
                     for (int i = 0; i < ls.getNumOfCase(); i++) {
-                        int x = bci + ls.getOffset(i);
-                        bciToBlockMapping[bci].addSuccessor(createBlockAt(x));
+                        leaders.set(bci + ls.getOffset(i));
                     }
+                    markFallThrough(leaders, stream);
                     break;
                 }
                 case IRETURN:
@@ -156,78 +223,122 @@ public class CFG implements Phase {
                 case FRETURN:
                 case DRETURN:
                 case ARETURN:
-                case RETURN: {
-                    currentBlock = null;
+                case RETURN:
+                case ATHROW:
+                    markFallThrough(leaders, stream);
                     break;
-                }
-                default: {
-                    if (Bytecode.canTrap(bci)) {
-                        for (ExHandler handler : exHandler) {
-                            if (handler.tryCover(bci)) {
-                                BlockStartInstr catchBlock = handler.getCatchEntry();
-                                if (!currentBlock.hasSuccessor(catchBlock)) {
-                                    currentBlock.addSuccessor(catchBlock);
-                                }
-                                if (handler.isCatchAll()) {
-                                    break;
-                                }
-                            }
-                        }
-                    }
+                default:
                     break;
-                }
             }
         }
+        return leaders;
+    }
 
-        fixupEntryBlock();
+    private void markFallThrough(BitSet leaders, BytecodeStream stream) {
+        if (stream.peekNextBci() < code.length) {
+            leaders.set(stream.peekNextBci());
+        }
     }
 
-    private void uniqueBlocks() {
-        Set<BlockStartInstr> bs = new HashSet<>();
-        for (BlockStartInstr value : bciToBlockMapping) {
-            if (value != null) {
-                bs.add(value);
+    /**
+     * Second pass, create basic blocks in bci order, every bci is mapped exactly once
+     */
+    private void createBlocks(BitSet leaders) {
+        List<BlockStartInstr> list = new ArrayList<>(leaders.cardinality());
+        BlockStartInstr currentBlock = null;
+        BytecodeStream stream = new BytecodeStream(bytecodeIndex);
+        while (stream.hasNext()) {
+            int bci = stream.next();
+            if (leaders.get(bci)) {
+                currentBlock = new BlockStartInstr(nextBlockId++, bci);
+                list.add(currentBlock);
             }
+            currentBlock.setEndBci(bci);
+            bciToBlockMapping[bci] = currentBlock;
         }
-        this.blocks = bs.toArray(new BlockStartInstr[0]);
+        this.blocks = list.toArray(new BlockStartInstr[0]);
 
-        Arrays.sort(blocks, Comparator.comparingInt(BlockStartInstr::getBlockId));
+        for (ExHandler handler : exHandler) {
+            BlockStartInstr catchBlock = blockContain(handler.getCatchEntryBci());
+            catchBlock.setFlag(BlockFlag.CatchEntry);
+            handler.setCatchEntry(catchBlock);
+        }
     }
 
-    private void createExceptionBlock() {
-        for (int i = 0; i < method.getExceptionHandlers().length; i++) {
-            var handler = method.getExceptionHandlers()[i];
-            BlockStartInstr exBlock = createBlockAt(handler.getHandlerBCI());
-            exBlock.setFlag(BlockFlag.CatchEntry);
-            exHandler[i] = new ExHandler(handler, exBlock);
+    private void connectBlocks() {
+        ExHandlerTable handlerTable = new ExHandlerTable(exHandler);
+        for (BlockStartInstr block : blocks) {
+            int endBci = block.getEndBci();
+            switch (bytecodeIndex.opcodeAt(endBci)) {
+                case IFEQ:
+                case IFNE:
+                case IFLT:
+                case IFGE:
+                case IFGT:
+                case IFLE:
+                case IF_ICMPEQ:
+                case IF_ICMPNE:
+                case IF_ICMPLT:
+                case IF_ICMPGE:
+                case IF_ICMPGT:
+                case IF_ICMPLE:
+                case IF_ACMPEQ:
+                case IF_ACMPNE:
+                case IFNULL:
+                case IFNONNULL:
+                    addSuccessor(block, blockContain(endBci + bytecodeIndex.dataAt(endBci)));
+                    addSuccessor(block, blockContain(bytecodeIndex.nextBci(endBci)));
+                    break;
+                case GOTO:
+                case GOTO_W:
+                    addSuccessor(block, blockContain(endBci + bytecodeIndex.dataAt(endBci)));
+                    break;
+                case TABLESWITCH:
+                case LOOKUPSWITCH:
+                    addSuccessor(block, blockContain(endBci + bytecodeIndex.switchDefaultDest(endBci)));
+                    for (int i = 0; i < bytecodeIndex.switchNumOfCase(endBci); i++) {
+                        addSuccessor(block, blockContain(endBci + bytecodeIndex.switchDest(endBci, i)));
+                    }
+                    break;
+                case IRETURN:
+                case LRETURN:
+                case FRETURN:
+                case DRETURN:
+                case ARETURN:
+                case RETURN:
+                case ATHROW:
+                    break;
+                default:
+                    // Block is split by a leader, just falls through
+                    addSuccessor(block, blockContain(bytecodeIndex.nextBci(endBci)));
+                    break;
+            }
+
+            if (handlerTable.isEmpty()) {
+                continue;
+            }
+            BytecodeStream bs = new BytecodeStream(bytecodeIndex, block.getStartBci(), endBci);
+            while (bs.hasNext()) {
+                int bci = bs.next();
+                if (Bytecode.canTrap(bs.currentBytecode())) {
+                    for (ExHandler handler : handlerTable.lookup(bci)) {
+                        addSuccessor(block, handler.getCatchEntry());
+                    }
+                }
+            }
         }
     }
 
-    private BlockStartInstr createBlockAt(int bci) {
-        BlockStartInstr formerBlock = bciToBlockMapping[bci];
-        if (formerBlock == null) {
-            bciToBlockMapping[bci] = new BlockStartInstr(nextBlockId++, bci);
-            return bciToBlockMapping[bci];
+    private static void addSuccessor(BlockStartInstr block, BlockStartInstr succ) {
+        if (!block.hasSuccessor(succ)) {
+            block.addSuccessor(succ);
         }
+    }
 
-        if (bci != formerBlock.getStartBci()) {
-            // Create new block after splitting former block
-            BlockStartInstr newBlock = new BlockStartInstr(nextBlockId++, bci);
-            newBlock.setStartBci(bci);
-            newBlock.setEndBci(formerBlock.getEndBci());
-            formerBlock.setEndBci(bci - 1);
-            for (BlockStartInstr formerBlockSuccessor : formerBlock.getSuccessor()) {
-                newBlock.addSuccessor(formerBlockSuccessor);
-            }
-            formerBlock.removeSuccessor();
-            formerBlock.addSuccessor(newBlock);
-            // Remap bci from former block to new block
-            for (int i = newBlock.getStartBci(); i <= newBlock.getEndBci(); i++) {
-                bciToBlockMapping[i] = newBlock;
-            }
-            return newBlock;
-        } else {
-            return formerBlock;
+    private void createExceptionHandlers() {
+        ExceptionHandler[] handlers = method.getExceptionHandlers();
+        for (int i = 0; i < handlers.length; i++) {
+            exHandler[i] = new ExHandler(handlers[i]);
         }
     }
 
@@ -284,8 +395,8 @@ public class CFG implements Phase {
         for (BlockStartInstr block : blocks) {
             String flag = block.isLoopHeader() ? "[LH]" : "";
             flag += isLoopBlock(block.getBlockId()) ? "[L]" : "";
-            Logger.logf("#{} {}{", block.getBlockId(), flag);
-            BytecodeStream bs = new BytecodeStream(code, block.getStartBci(), block.getEndBci());
+            Logger.logf("#{} {}(freq={}){", block.getBlockId(), flag, String.format("%.3f", block.getFrequency()));
+            BytecodeStream bs = new BytecodeStream(bytecodeIndex, block.getStartBci(), block.getEndBci());
             while (bs.hasNext()) {
                 bs.next();
                 Logger.logf(" {}", bs.getCurrentBytecodeString());
@@ -330,7 +441,7 @@ public class CFG implements Phase {
         for (BlockStartInstr block : blocks) {
             content.append("\tB").append(block.getBlockId()).append("[shape=record,label=\"");
             content.append("{ B").append(block.getBlockId()).append(" | ");
-            BytecodeStream bs = new BytecodeStream(code, block.getStartBci(), block.getEndBci());
+            BytecodeStream bs = new BytecodeStream(bytecodeIndex, block.getStartBci(), block.getEndBci());
             while (bs.hasNext()) {
                 bs.next();
                 content.append(bs.getCurrentBytecodeString()).append("\\l");
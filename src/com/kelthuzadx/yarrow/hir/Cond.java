@@ -1,5 +1,7 @@
 package com.kelthuzadx.yarrow.hir;
 
 public enum Cond {
-    EQ, NE, LT, GE, GT, LE, Always
+    EQ, NE, LT, GE, GT, LE, Always,
+    // Arithmetic result of last instruction overflowed, only used by lir
+    Overflow
 }
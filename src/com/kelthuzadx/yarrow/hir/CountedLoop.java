@@ -0,0 +1,233 @@
+package com.kelthuzadx.yarrow.hir;
+
+import com.kelthuzadx.yarrow.bytecode.Bytecode;
+import com.kelthuzadx.yarrow.hir.instr.*;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * A loop whose back edge increases an int local by a non-zero constant stride, the local is
+ * then an induction variable. If the loop is left by comparing induction variable against
+ * a constant, and it starts from a constant as well, its trip count has an upper bound.
+ * <p>
+ * Loop body is assumed to be laid out between loop header and back edge, which is the
+ * case for loops compiled by javac.
+ *
+ * @author kelthuzadx
+ */
+public class CountedLoop {
+    public static final long UNKNOWN_TRIP_COUNT = Long.MAX_VALUE;
+
+    private final PhiInstr induction;
+    private final HirInstr next;
+    private final int stride;
+    private long maxTripCount;
+
+    private CountedLoop(PhiInstr induction, HirInstr next, int stride) {
+        this.induction = induction;
+        this.next = next;
+        this.stride = stride;
+        this.maxTripCount = UNKNOWN_TRIP_COUNT;
+    }
+
+    /**
+     * Match counted loop at one of its back edges
+     *
+     * @param header     loop header
+     * @param latchState state when jumping back to loop header
+     * @param latchBci   bci of the jump
+     * @param latchTest  the jump if it's a conditional branch, otherwise null
+     * @return counted loop, or null if no induction variable is found
+     */
+    public static CountedLoop match(BlockStartInstr header, VmState latchState, int latchBci, IfInstr latchTest) {
+        // Header state is not the start state if header itself jumps back, so phis are
+        // found from the values at back edge
+        for (int i = 0; i < latchState.getLocalSize(); i++) {
+            HirInstr next = latchState.get(i);
+            if (!(next instanceof ArithmeticInstr) || ((ArithmeticInstr) next).getOpcode() != Bytecode.IADD) {
+                continue;
+            }
+            ArithmeticInstr add = (ArithmeticInstr) next;
+            HirInstr val = isPhiOf(add.getLeft(), header, i) ? add.getLeft() : isPhiOf(add.getRight(), header, i) ? add.getRight() : null;
+            HirInstr step = val == add.getLeft() ? add.getRight() : add.getLeft();
+            if (val == null || !(step instanceof ConstantInstr) || ((ConstantInstr) step).getConstant().asInt() == 0) {
+                continue;
+            }
+
+            CountedLoop loop = new CountedLoop((PhiInstr) val, next, ((ConstantInstr) step).getConstant().asInt());
+            Integer init = loop.initialValue(header, i);
+            if (init != null) {
+                // Loop is either left at its header, or at the back edge for do-while loops
+                if (header.getBlockEnd() instanceof IfInstr) {
+                    loop.computeTripCount((IfInstr) header.getBlockEnd(), header, latchBci, init);
+                }
+                if (latchTest != null) {
+                    loop.computeTripCount(latchTest, header, latchBci, init);
+                }
+            }
+            return loop;
+        }
+        return null;
+    }
+
+    private static boolean isPhiOf(HirInstr val, BlockStartInstr header, int local) {
+        if (!(val instanceof PhiInstr)) {
+            return false;
+        }
+        PhiInstr phi = (PhiInstr) val;
+        return phi.getBlock() == header && !phi.isLock() && phi.getIndex() == local;
+    }
+
+    private Integer initialValue(BlockStartInstr header, int local) {
+        // Predecessors laid out before loop header enter the loop, others are back edges
+        Integer init = null;
+        for (BlockStartInstr pred : header.getPredecessor()) {
+            if (pred.getStartBci() >= header.getStartBci()) {
+                continue;
+            }
+            HirInstr val = pred.getVmState().get(local);
+            if (!(val instanceof ConstantInstr)) {
+                return null;
+            }
+            int c = ((ConstantInstr) val).getConstant().asInt();
+            if (init != null && init != c) {
+                return null;
+            }
+            init = c;
+        }
+        return init;
+    }
+
+    private void computeTripCount(IfInstr test, BlockStartInstr header, int latchBci, int init) {
+        HirInstr x;
+        HirInstr limit;
+        Cond cond = test.getCond();
+        if (test.getLeft() == induction || test.getLeft() == next) {
+            x = test.getLeft();
+            limit = test.getRight();
+        } else if (test.getRight() == induction || test.getRight() == next) {
+            x = test.getRight();
+            limit = test.getLeft();
+            cond = mirror(cond);
+        } else {
+            return;
+        }
+        if (!(limit instanceof ConstantInstr)) {
+            return;
+        }
+
+        boolean trueStays = isInLoop(test.getSuccessor().get(0), header, latchBci);
+        boolean falseStays = isInLoop(test.getSuccessor().get(1), header, latchBci);
+        if (trueStays == falseStays) {
+            return;
+        }
+        if (falseStays) {
+            cond = negate(cond);
+        }
+
+        // Induction variable takes at most one more value when it's tested before incrementing
+        long count = tripCount(init, ((ConstantInstr) limit).getConstant().asInt(), cond);
+        if (count != UNKNOWN_TRIP_COUNT && x == next) {
+            count = Math.max(count - 1, 0);
+        }
+        maxTripCount = Math.min(maxTripCount, count);
+    }
+
+    /**
+     * Number of values induction variable takes from init while {@code x cond limit} holds
+     */
+    private long tripCount(long init, long limit, Cond cond) {
+        // x <= limit is x < limit+1, and x >= limit is x > limit-1
+        if (cond == Cond.LE) {
+            limit++;
+            cond = Cond.LT;
+        } else if (cond == Cond.GE) {
+            limit--;
+            cond = Cond.GT;
+        }
+        switch (cond) {
+            case LT:
+                // Incrementing the last value must not overflow, or the loop never ends
+                if (stride < 0 || limit - 1 + stride > Integer.MAX_VALUE) {
+                    return UNKNOWN_TRIP_COUNT;
+                }
+                return init >= limit ? 0 : (limit - init + stride - 1) / stride;
+            case GT:
+                if (stride > 0 || limit + 1 + stride < Integer.MIN_VALUE) {
+                    return UNKNOWN_TRIP_COUNT;
+                }
+                return init <= limit ? 0 : (init - limit - stride - 1) / -stride;
+            default:
+                return UNKNOWN_TRIP_COUNT;
+        }
+    }
+
+    private static boolean isInLoop(BlockStartInstr block, BlockStartInstr header, int latchBci) {
+        return block.getStartBci() >= header.getStartBci() && block.getStartBci() <= latchBci;
+    }
+
+    private static Cond mirror(Cond cond) {
+        switch (cond) {
+            case LT:
+                return Cond.GT;
+            case LE:
+                return Cond.GE;
+            case GT:
+                return Cond.LT;
+            case GE:
+                return Cond.LE;
+            default:
+                return cond;
+        }
+    }
+
+    private static Cond negate(Cond cond) {
+        switch (cond) {
+            case EQ:
+                return Cond.NE;
+            case NE:
+                return Cond.EQ;
+            case LT:
+                return Cond.GE;
+            case GE:
+                return Cond.LT;
+            case GT:
+                return Cond.LE;
+            case LE:
+                return Cond.GT;
+            default:
+                return cond;
+        }
+    }
+
+    /**
+     * Choose a bit of induction variable which flips once every {@code (iterations/2, iterations]}
+     * iterations. As long as the bit is not below stride, induction variable never steps over
+     * a flip of it.
+     *
+     * @param iterations maximum iterations between two flips
+     * @return the bit, or 0 if there is no such bit
+     */
+    public int getStripMiningBit(int iterations) {
+        long span = (long) iterations * Math.abs((long) stride);
+        if (iterations < 2 || span > (1 << 30)) {
+            return 0;
+        }
+        return Integer.highestOneBit((int) span);
+    }
+
+    public PhiInstr getInduction() {
+        return induction;
+    }
+
+    public HirInstr getNextValue() {
+        return next;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public long getMaxTripCount() {
+        return maxTripCount;
+    }
+}
@@ -10,25 +10,46 @@ public class ExHandler {
     private int endBci;
     private JavaType catchType;
     private boolean isCatchAll;
+    private int catchEntryBci;
     private BlockStartInstr catchEntry;
 
-    public ExHandler(ExceptionHandler handler, BlockStartInstr catchEntry) {
+    public ExHandler(ExceptionHandler handler) {
         startBci = handler.getStartBCI();
         endBci = handler.getEndBCI();
         catchType = handler.getCatchType();
         isCatchAll = handler.isCatchAll();
-        this.catchEntry = catchEntry;
+        catchEntryBci = handler.getHandlerBCI();
     }
 
     public boolean tryCover(int curBci) {
-        return startBci >= curBci && curBci < endBci;
+        return startBci <= curBci && curBci < endBci;
+    }
+
+    public int getStartBci() {
+        return startBci;
+    }
+
+    public int getEndBci() {
+        return endBci;
+    }
+
+    public JavaType getCatchType() {
+        return catchType;
     }
 
     public boolean isCatchAll() {
         return isCatchAll;
     }
 
+    public int getCatchEntryBci() {
+        return catchEntryBci;
+    }
+
     public BlockStartInstr getCatchEntry() {
         return catchEntry;
     }
+
+    public void setCatchEntry(BlockStartInstr catchEntry) {
+        this.catchEntry = catchEntry;
+    }
 }
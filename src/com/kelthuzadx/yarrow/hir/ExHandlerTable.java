@@ -0,0 +1,79 @@
+package com.kelthuzadx.yarrow.hir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exception handler coverage as sorted, non-overlapping bci segments. Handler ranges
+ * are cut at every start/end point, so every segment is covered by a fixed list of
+ * handlers, looking up handlers of a bci is then a binary search.
+ *
+ * @author kelthuzadx
+ */
+public class ExHandlerTable {
+    private static final ExHandler[] NONE = new ExHandler[0];
+
+    // Segment i covers [bounds[i], bounds[i+1])
+    private final int[] bounds;
+    private final ExHandler[][] covering;
+
+    public ExHandlerTable(ExHandler[] handlers) {
+        int[] points = new int[handlers.length * 2];
+        for (int i = 0; i < handlers.length; i++) {
+            points[2 * i] = handlers[i].getStartBci();
+            points[2 * i + 1] = handlers[i].getEndBci();
+        }
+        Arrays.sort(points);
+        int n = 0;
+        for (int i = 0; i < points.length; i++) {
+            if (i == 0 || points[i] != points[i - 1]) {
+                points[n++] = points[i];
+            }
+        }
+        this.bounds = Arrays.copyOf(points, n);
+        this.covering = new ExHandler[Math.max(n - 1, 0)][];
+
+        // Handlers are kept in exception table order, anything after a catch-all
+        // handler is unreachable and thus dropped
+        List<ExHandler> list = new ArrayList<>();
+        for (int i = 0; i < covering.length; i++) {
+            list.clear();
+            for (ExHandler handler : handlers) {
+                if (handler.tryCover(bounds[i])) {
+                    list.add(handler);
+                    if (handler.isCatchAll()) {
+                        break;
+                    }
+                }
+            }
+            covering[i] = list.isEmpty() ? NONE : list.toArray(NONE);
+        }
+    }
+
+    /**
+     * Find all handlers covering given bci
+     *
+     * @param bci bytecode index
+     * @return handlers in exception table order, never null
+     */
+    public ExHandler[] lookup(int bci) {
+        int low = 0;
+        int high = covering.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (bci < bounds[mid]) {
+                high = mid - 1;
+            } else if (bci >= bounds[mid + 1]) {
+                low = mid + 1;
+            } else {
+                return covering[mid];
+            }
+        }
+        return NONE;
+    }
+
+    public boolean isEmpty() {
+        return covering.length == 0;
+    }
+}
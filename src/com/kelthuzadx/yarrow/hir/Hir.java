@@ -83,6 +83,10 @@ public class Hir {
         }
     }
 
+    public HotSpotResolvedJavaMethod getMethod() {
+        return method;
+    }
+
     public BlockStartInstr getEntryBlock() {
         return entry;
     }
@@ -10,15 +10,21 @@ import com.kelthuzadx.yarrow.optimize.Phase;
 import com.kelthuzadx.yarrow.util.CompilerErrors;
 import com.kelthuzadx.yarrow.util.Logger;
 import com.kelthuzadx.yarrow.util.TypeUtil;
+import jdk.vm.ci.amd64.AMD64;
+import jdk.vm.ci.code.BytecodeFrame;
 import jdk.vm.ci.code.MemoryBarriers;
+import jdk.vm.ci.hotspot.HotSpotConstantReflectionProvider;
+import jdk.vm.ci.hotspot.HotSpotObjectConstant;
 import jdk.vm.ci.hotspot.HotSpotResolvedJavaField;
 import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
 import jdk.vm.ci.hotspot.HotSpotResolvedJavaType;
 import jdk.vm.ci.meta.*;
 
+import java.lang.invoke.MethodHandles;
 import java.util.*;
 
 import static com.kelthuzadx.yarrow.core.YarrowProperties.Debug.*;
+import static com.kelthuzadx.yarrow.core.YarrowProperties.Optimize.*;
 
 /**
  * HirBuilder performs an abstract interpretation, it transform java bytecode to compiler HIR.
@@ -44,6 +50,23 @@ public class HirBuilder implements Phase {
     private VmState state;
     // Local value numbering for every basic block
     private LVN lvn;
+    // Live local variables before current bytecode, dead ones are not recorded in states
+    private BitSet liveLocals;
+    // Bytecode index of current bytecode
+    private int curBci;
+    // Branch profile and speculations made upon it
+    private ProfilingInfo profile;
+    private SpeculationLog speculationLog;
+    private Map<BlockStartInstr, SpeculationLog.Speculation> trapSpeculation;
+    // State at the loop header where OSR enters
+    private VmState osrState;
+    // StringBuilders created in current block, keyed by the allocation and every append to it
+    private Map<HirInstr, StringBuilderChain> builderChains = new HashMap<>();
+    // Classes known to be initialized at the end of each block, and in current block so far
+    private Map<BlockStartInstr, Set<ResolvedJavaType>> initializedOut = new HashMap<>();
+    private Set<ResolvedJavaType> initialized;
+    // Constant arrays read from @Stable fields, and their remaining stable dimensions
+    private Map<JavaConstant, Integer> stableArrays = new HashMap<>();
 
 
     public HirBuilder(CFG cfg) {
@@ -73,7 +96,14 @@ public class HirBuilder implements Phase {
         BlockStartInstr methodEntry = cfg.getEntryBlock();
         methodEntry.mergeVmState(createEntryVmState());
 
-        hir = new Hir(method, methodEntry);
+        hir = new Hir(method, cfg.isOsr() ? cfg.getOsrEntryBlock() : methodEntry);
+
+        profile = method.getProfilingInfo();
+        speculationLog = method.getSpeculationLog();
+        if (speculationLog != null) {
+            speculationLog.collectFailedSpeculations();
+        }
+        trapSpeculation = new HashMap<>();
 
         visit = new HashSet<>(cfg.getBlocks().length);
         workList = new ArrayDeque<>();
@@ -93,6 +123,9 @@ public class HirBuilder implements Phase {
             }
         }
 
+        if (cfg.isOsr()) {
+            fulfillOsrEntryBlock(cfg.getOsrEntryBlock());
+        }
         return this;
     }
 
@@ -105,29 +138,47 @@ public class HirBuilder implements Phase {
         int paramIndex = 0;
 
         if (method.hasReceiver()) {
-            ParamInstr receiverInstr = new ParamInstr(JavaKind.Object, method, false, paramIndex);
+            ParamInstr receiverInstr = new ParamInstr(JavaKind.Object, method, true, paramIndex);
             state.set(paramIndex, receiverInstr);
             paramIndex++;
         }
 
+        // Long and double parameters take two local slots
+        int slot = paramIndex;
         Signature sig = method.getSignature();
         for (int i = 0; i < sig.getParameterCount(false/*Receiver already processed*/); i++) {
-            ParamInstr pi = new ParamInstr(sig.getParameterKind(i), method, false, paramIndex);
-            state.set(paramIndex, pi);
+            ParamInstr pi = new ParamInstr(TypeUtil.decayType(sig.getParameterKind(i)), method, false, paramIndex);
+            state.set(slot, pi);
             paramIndex++;
+            slot += sig.getParameterKind(i).getSlotCount();
         }
         return state;
 
     }
 
     private void fulfillBlock(BlockStartInstr block) {
+        if (block.getFlag() == BlockFlag.UncommonTrap) {
+            fulfillTrapBlock(block);
+            return;
+        }
         state = block.getVmState();
         lvn = new LVN();
+        builderChains.clear();
+        initialized = initializedIn(block);
+        if (cfg.isOsr() && block.getStartBci() == cfg.getOsrBci()) {
+            osrState = state.copy();
+        }
+        if (block.getFlag() == BlockFlag.NormalEntry && method.isSynchronized()) {
+            lockSyncMethod();
+        }
+        BitSet[] liveBefore = cfg.getLiveness().computeLiveBefore(block);
 
-        BytecodeStream bs = new BytecodeStream(method.getCode(), block.getStartBci(), block.getEndBci());
+        BytecodeStream bs = new BytecodeStream(cfg.getBytecodeIndex(), block.getStartBci(), block.getEndBci());
         while (bs.hasNext()) {
-            int curBci = bs.next();
+            curBci = bs.next();
+            state.setBci(curBci);
             int opcode = bs.currentBytecode();
+            liveLocals = liveBefore[curBci - block.getStartBci()];
             if (TraceHIRGeneration) {
                 Logger.logf("====={}=====>", bs.getCurrentBytecodeString());
             }
@@ -667,6 +718,7 @@ public class HirBuilder implements Phase {
 
         // This could happen when back edge splits one consist block
         if (!(lastInstr instanceof BlockEndInstr)) {
+            liveLocals = cfg.getLiveness().getLiveOut(block);
             BlockEndInstr endInstr;
             if (bs.peekNextBci() == -1) {
                 endInstr = new GotoInstr(null, cfg.blockContain(0));
@@ -676,6 +728,8 @@ public class HirBuilder implements Phase {
             appendToBlock(endInstr);
         }
         block.setBlockEnd((BlockEndInstr) lastInstr);
+        escapeLiveBoxes(cfg.getLiveness().getLiveOut(block));
+        initializedOut.put(block, initialized);
 
         for (BlockStartInstr succ : ((BlockEndInstr) lastInstr).getSuccessor()) {
             succ.mergeVmState(block.getVmState());
@@ -684,6 +738,80 @@ public class HirBuilder implements Phase {
 
     }
 
+    /**
+     * Types of locals at OSR entry are unknown from the OSR buffer itself, so the whole method
+     * is parsed first and the state at loop header tells what to load. Everything the normal
+     * entry leads to before the loop is then unreachable from OSR entry.
+     */
+    private void fulfillOsrEntryBlock(BlockStartInstr block) {
+        BlockStartInstr header = block.getSuccessor().get(0);
+        if (osrState == null) {
+            CompilerErrors.bailOut("OSR loop header is unreachable");
+        }
+        if (osrState.getStackSize() != 0) {
+            CompilerErrors.bailOut("OSR with non-empty operand stack");
+        }
+        lastInstr.setNext(block);
+        lastInstr = block;
+        block.mergeVmState(new VmState(method.getMaxStackSize(), method.getMaxLocals()));
+        state = block.getVmState();
+        state.setBci(cfg.getOsrBci());
+        lvn = new LVN();
+        liveLocals = null;
+
+        // Interpreter copies locals into OSR buffer in reverse order, followed by pairs of
+        // displaced header and object for each monitor, the innermost one comes first
+        int wordSize = YarrowRuntime.arch.getWordSize();
+        int maxLocals = method.getMaxLocals();
+        HirInstr buffer = appendToBlock(new OsrEntryInstr());
+        for (int i = 0; i < maxLocals; i++) {
+            HirInstr val = osrState.get(i);
+            if (val == null) {
+                continue;
+            }
+            // Two slots value lives in the slot with higher index
+            int slot = val.type().needsTwoSlots() ? i + 1 : i;
+            OsrLocalInstr local = new OsrLocalInstr(val.type(), buffer, (maxLocals - 1 - slot) * wordSize, -1);
+            state.set(i, appendToBlock(local));
+        }
+        int numOfLocks = osrState.getLockSize();
+        for (int i = 0; i < numOfLocks; i++) {
+            int offset = (maxLocals + 2 * (numOfLocks - 1 - i) + 1) * wordSize;
+            OsrLocalInstr object = new OsrLocalInstr(JavaKind.Object, buffer, offset, i);
+            state.lock(appendToBlock(object));
+        }
+        appendToBlock(new OsrMigrationEndInstr(buffer));
+
+        liveLocals = header.getLiveIn();
+        appendToBlock(new GotoInstr(null, header));
+        block.setBlockEnd((BlockEndInstr) lastInstr);
+        header.mergeVmState(block.getVmState());
+    }
+
+    private void fulfillTrapBlock(BlockStartInstr block) {
+        state = block.getVmState();
+        // Interpreter re-executes from the start of pruned block
+        state.setBci(block.getStartBci());
+        lvn = new LVN();
+        liveLocals = block.getLiveIn();
+        DeoptimizeInstr instr = new DeoptimizeInstr(DeoptimizationAction.InvalidateRecompile,
+                DeoptimizationReason.UnreachedCode, trapSpeculation.get(block));
+        appendToBlock(instr);
+        block.setBlockEnd(instr);
+    }
+
+    /**
+     * Pop a value which becomes an operand of some instruction, a box used as an object by
+     * it has to be allocated
+     */
+    private HirInstr popOperand(JavaKind type) {
+        HirInstr val = state.pop(type);
+        if (val instanceof BoxInstr) {
+            ((BoxInstr) val).markEscaped();
+        }
+        return val;
+    }
+
     private HirInstr appendToBlock(HirInstr curInstr) {
         HirInstr better;
         // Try to idealize instruction
@@ -707,7 +835,16 @@ public class HirBuilder implements Phase {
         }
 
         if (lastInstr instanceof StateInstr) {
-            ((StateInstr) lastInstr).setVmState(state.copy());
+            // Instructions which could deoptimize and re-execute current bytecode come with
+            // the state before their operands were popped, others record current state
+            VmState copy = ((StateInstr) lastInstr).getVmState();
+            if (copy == null) {
+                copy = state.copy();
+            }
+            if (liveLocals != null) {
+                copy.clearDeadLocals(liveLocals);
+            }
+            ((StateInstr) lastInstr).setVmState(copy);
         }
         return curInstr;
     }
@@ -733,25 +870,61 @@ public class HirBuilder implements Phase {
     }
 
     private void loadArray(JavaKind type) {
-        HirInstr index = state.pop(JavaKind.Int);
-        HirInstr array = state.pop(JavaKind.Object);
+        HirInstr index = popOperand(JavaKind.Int);
+        HirInstr array = popOperand(JavaKind.Object);
+        if (loadStableElement(array, index)) {
+            return;
+        }
         LoadIndexInstr instr = new LoadIndexInstr(array, index, null, type);
         state.push(type, appendToBlock(instr));
     }
 
     private void store(JavaKind type, int index) {
-        HirInstr temp = state.pop(type);
+        // Moving a box into local doesn't make it escape
+        HirInstr temp = type == JavaKind.Object ? state.unsafePop() : popOperand(type);
         state.set(index, temp);
+        // A long or double occupies two slots, and overwriting either half kills it
+        if (type.needsTwoSlots()) {
+            state.set(index + 1, null);
+        }
+        if (index > 0 && state.get(index - 1) != null && state.get(index - 1).type().needsTwoSlots()) {
+            state.set(index - 1, null);
+        }
     }
 
     private void storeArray(JavaKind type) {
-        HirInstr value = state.pop(type);
-        HirInstr index = state.pop(JavaKind.Int);
-        HirInstr array = state.pop(JavaKind.Object);
+        VmState stateBefore = type == JavaKind.Object ? state.copy() : null;
+        HirInstr value = popOperand(type);
+        HirInstr index = popOperand(JavaKind.Int);
+        HirInstr array = popOperand(JavaKind.Object);
+        if (type == JavaKind.Object && needsStoreCheck(array, value)) {
+            appendToBlock(new StoreCheckInstr(stateBefore, array, value));
+        }
         StoreIndexInstr instr = new StoreIndexInstr(array, index, null, type, value);
         appendToBlock(instr);
     }
 
+    /**
+     * Reference stored into array must be an instance of array element type. It's already known
+     * if value is null, or if array type is exact and value is statically typed as its element
+     * type, including the case that element type is java.lang.Object.
+     */
+    private static boolean needsStoreCheck(HirInstr array, HirInstr value) {
+        if (value instanceof ConstantInstr && ((ConstantInstr) value).getConstant().isNull()) {
+            return false;
+        }
+        StaticType arrayType = StaticType.of(array);
+        if (arrayType == null || !arrayType.isExact() || !arrayType.getType().isArray()) {
+            return true;
+        }
+        ResolvedJavaType elementType = arrayType.getType().getComponentType();
+        if (elementType.isJavaLangObject()) {
+            return false;
+        }
+        StaticType valueType = StaticType.of(value);
+        return valueType == null || !valueType.isSubtypeOf(elementType);
+    }
+
     private void duplicate(int opcode) {
         switch (opcode) {
             case Bytecode.DUP: {
@@ -824,28 +997,28 @@ public class HirBuilder implements Phase {
     }
 
     private void arithmetic(JavaKind type, int opcode) {
-        HirInstr right = state.pop(type);
-        HirInstr left = state.pop(type);
+        HirInstr right = popOperand(type);
+        HirInstr left = popOperand(type);
         ArithmeticInstr instr = new ArithmeticInstr(opcode, left, right);
         state.push(type, appendToBlock(instr));
     }
 
     private void negate(JavaKind type) {
-        HirInstr temp = state.pop(type);
+        HirInstr temp = popOperand(type);
         NegateInstr instr = new NegateInstr(temp);
         state.push(type, appendToBlock(instr));
     }
 
     private void shift(JavaKind type, int opcode) {
-        HirInstr right = state.pop(JavaKind.Int);
-        HirInstr left = state.pop(type);
+        HirInstr right = popOperand(JavaKind.Int);
+        HirInstr left = popOperand(type);
         ShiftInstr instr = new ShiftInstr(opcode, left, right);
         state.push(type, appendToBlock(instr));
     }
 
     private void logic(JavaKind type, int opcode) {
-        HirInstr right = state.pop(type);
-        HirInstr left = state.pop(type);
+        HirInstr right = popOperand(type);
+        HirInstr left = popOperand(type);
         LogicInstr instr = new LogicInstr(opcode, left, right);
         state.push(type, appendToBlock(instr));
     }
@@ -866,7 +1039,7 @@ public class HirBuilder implements Phase {
     }
 
     private void typeCast(JavaKind fromType, JavaKind toType, int opcode) {
-        HirInstr from = state.pop(fromType);
+        HirInstr from = popOperand(fromType);
         JavaKind t = toType;
         if (t == JavaKind.Byte || t == JavaKind.Char || t == JavaKind.Short) {
             t = JavaKind.Int;
@@ -876,8 +1049,8 @@ public class HirBuilder implements Phase {
     }
 
     private void compare(JavaKind type, int opcode) {
-        HirInstr right = state.pop(type);
-        HirInstr left = state.pop(type);
+        HirInstr right = popOperand(type);
+        HirInstr left = popOperand(type);
         CompareInstr instr = new CompareInstr(opcode, left, right);
         // left > right => push 1
         // left == right => push 0
@@ -887,35 +1060,103 @@ public class HirBuilder implements Phase {
 
     private void branchIfZero(Cond cond, int trueBci, int falseBci) {
         VmState stateBefore = state.copy();
-        HirInstr left = state.pop(JavaKind.Int);
+        HirInstr left = popOperand(JavaKind.Int);
         ConstantInstr right = new ConstantInstr(JavaConstant.INT_0);
         branchIf(stateBefore, left, right, cond, trueBci, falseBci);
     }
 
     private void branchIfNull(Cond cond, int trueBci, int falseBci) {
         VmState stateBefore = state.copy();
-        HirInstr left = state.pop(JavaKind.Object);
+        HirInstr left = popOperand(JavaKind.Object);
         ConstantInstr right = new ConstantInstr(JavaConstant.NULL_POINTER);
         branchIf(stateBefore, left, right, cond, trueBci, falseBci);
     }
 
     private void branchIfSame(JavaKind type, Cond cond, int trueBci, int falseBci) {
         VmState stateBefore = state.copy();
-        HirInstr right = state.pop(type);
-        HirInstr left = state.pop(type);
+        HirInstr right = popOperand(type);
+        HirInstr left = popOperand(type);
         branchIf(stateBefore, left, right, cond, trueBci, falseBci);
     }
 
     private void branchIf(VmState stateBefore, HirInstr left, HirInstr right, Cond cond, int trueBci, int falseBci) {
-        IfInstr instr = new IfInstr(stateBefore, cfg.blockContain(trueBci), cfg.blockContain(falseBci), left, right, cond);
+        BlockStartInstr trueBlock = cfg.blockContain(trueBci);
+        BlockStartInstr falseBlock = cfg.blockContain(falseBci);
+        if (UseSpeculativeBranchPruning && trueBlock != falseBlock && profile != null && profile.isMature()) {
+            double taken = profile.getBranchTakenProbability(curBci);
+            if (taken == 0) {
+                trueBlock = speculateNeverReached(trueBlock, true);
+            } else if (taken == 1) {
+                falseBlock = speculateNeverReached(falseBlock, false);
+            }
+        }
+        IfInstr instr = new IfInstr(stateBefore, trueBlock, falseBlock, left, right, cond);
+        safepointIfBackEdge(stateBefore, instr);
         appendToBlock(instr);
     }
 
+    /**
+     * Replace a branch destination that profile never saw with an uncommon trap, so
+     * that code of destination is not compiled at all. Speculation is given up once
+     * the same trap fired before.
+     *
+     * @param block branch destination
+     * @param taken whether the destination is reached by taking the branch
+     * @return trap block, or the destination itself if we can not speculate
+     */
+    private BlockStartInstr speculateNeverReached(BlockStartInstr block, boolean taken) {
+        if (speculationLog == null) {
+            return block;
+        }
+        BranchSpeculation reason = new BranchSpeculation(method, curBci, taken);
+        if (!speculationLog.maySpeculate(reason)) {
+            return block;
+        }
+        BlockStartInstr trap = cfg.createTrapBlock(block);
+        trapSpeculation.put(trap, speculationLog.speculate(reason));
+        return trap;
+    }
+
     private void goTo(int destBci) {
         GotoInstr instr = new GotoInstr(null, cfg.blockContain(destBci));
+        safepointIfBackEdge(state, instr);
         appendToBlock(instr);
     }
 
+    /**
+     * Poll for safepoint before jumping back to loop header, otherwise a long running loop
+     * holds up VM when it's reaching a safepoint. Counted loops known to iterate a few times
+     * do not poll at all, other counted loops are strip mined, they poll once every
+     * LoopStripMiningIter iterations.
+     *
+     * @param stateBefore state before current bytecode
+     * @param end         block end instruction of current bytecode
+     */
+    private void safepointIfBackEdge(VmState stateBefore, BlockEndInstr end) {
+        if (!UseLoopSafepoints) {
+            return;
+        }
+        for (BlockStartInstr succ : end.getSuccessor()) {
+            if (!succ.isLoopHeader() || succ.getStartBci() > curBci) {
+                continue;
+            }
+            IfInstr test = end instanceof IfInstr ? (IfInstr) end : null;
+            CountedLoop loop = CountedLoop.match(succ, state, curBci, test);
+            SafepointInstr instr = new SafepointInstr(stateBefore.copy());
+            if (loop != null) {
+                if (loop.getMaxTripCount() <= LoopStripMiningIter) {
+                    return;
+                }
+                int bit = loop.getStripMiningBit(LoopStripMiningIter);
+                if (bit != 0) {
+                    instr = new SafepointInstr(stateBefore.copy(), loop.getInduction(), loop.getNextValue(), bit);
+                }
+            }
+            appendToBlock(instr);
+            return;
+        }
+    }
+
     private void tableSwitch(BytecodeStream.TableSwitch sw, int curBci) {
         int len = sw.getNumOfCase();
         BlockStartInstr[] succ = new BlockStartInstr[len + 1];
@@ -927,8 +1168,9 @@ public class HirBuilder implements Phase {
         succ[i] = cfg.blockContain(sw.getDefaultDest() + curBci);
 
         VmState stateBefore = state.copy();
-        HirInstr index = state.pop(JavaKind.Int);
+        HirInstr index = popOperand(JavaKind.Int);
         TableSwitchInstr instr = new TableSwitchInstr(stateBefore, Arrays.asList(succ), index, sw.getLowKey());
+        safepointIfBackEdge(stateBefore, instr);
         appendToBlock(instr);
     }
 
@@ -945,15 +1187,16 @@ public class HirBuilder implements Phase {
         succ[i] = cfg.blockContain(sw.getDefaultDest() + curBci);
 
         VmState stateBefore = state.copy();
-        HirInstr index = state.pop(JavaKind.Int);
+        HirInstr index = popOperand(JavaKind.Int);
         LookupSwitchInstr instr = new LookupSwitchInstr(stateBefore, Arrays.asList(succ), index, key);
+        safepointIfBackEdge(stateBefore, instr);
         appendToBlock(instr);
     }
 
     private void returnOp(JavaKind type, boolean justReturn) {
         HirInstr val = null;
         if (!justReturn) {
-            val = state.pop(type);
+            val = popOperand(type);
         }
 
         JavaKind returnKind = method.getSignature().getReturnKind();
@@ -991,6 +1234,11 @@ public class HirBuilder implements Phase {
             appendToBlock(memBarInstr);
         }
 
+        if (method.isSynchronized()) {
+            HirInstr object = state.unlock();
+            appendToBlock(new MonitorExitInstr(object, state.getLockSize()));
+        }
+
         ReturnInstr instr = new ReturnInstr(val);
         appendToBlock(instr);
     }
@@ -998,27 +1246,43 @@ public class HirBuilder implements Phase {
     private void accessField(int index, int opcode) {
         ConstantInstr holder = null;
         HotSpotResolvedJavaField field = (HotSpotResolvedJavaField) method.getConstantPool().lookupField(index, method, opcode);
+        if (opcode == Bytecode.GETSTATIC && loadConstantField(field, null)) {
+            return;
+        }
+        if (opcode == Bytecode.GETFIELD && state.getStack(state.getStackSize() - 1) instanceof ConstantInstr) {
+            var object = (ConstantInstr) state.getStack(state.getStackSize() - 1);
+            if (!object.getConstant().isNull() && loadConstantField(field, object.getConstant())) {
+                popOperand(JavaKind.Object);
+                return;
+            }
+        }
         if (opcode == Bytecode.PUTSTATIC || opcode == Bytecode.GETSTATIC) {
-            holder = new ConstantInstr(YarrowRuntime.constReflection.asJavaClass((ResolvedJavaType) field.getType()));
+            classInitBarrier(field.getDeclaringClass());
+            // Static fields live in the mirror of their declaring class
+            holder = new ConstantInstr(YarrowRuntime.constReflection.asJavaClass(field.getDeclaringClass()));
             appendToBlock(holder);
         }
 
         switch (opcode) {
             case Bytecode.GETSTATIC: {
                 LoadFieldInstr instr = new LoadFieldInstr(holder, field.getOffset(), field);
-                state.push(field.getJavaKind(), appendToBlock(instr));
+                state.push(field.getJavaKind().getStackKind(), appendToBlock(instr));
+                volatileBarrierAfter(field, true);
                 break;
             }
             case Bytecode.PUTSTATIC: {
-                HirInstr val = state.pop(field.getJavaKind());
+                HirInstr val = popOperand(field.getJavaKind().getStackKind());
                 StoreFieldInstr instr = new StoreFieldInstr(holder, field.getOffset(), field, val);
+                volatileBarrierBefore(field);
                 appendToBlock(instr);
+                volatileBarrierAfter(field, false);
                 break;
             }
             case Bytecode.GETFIELD: {
-                HirInstr object = state.pop(JavaKind.Object);
+                HirInstr object = popOperand(JavaKind.Object);
                 LoadFieldInstr instr = new LoadFieldInstr(object, field.getOffset(), field);
-                state.push(field.getJavaKind(), appendToBlock(instr));
+                state.push(field.getJavaKind().getStackKind(), appendToBlock(instr));
+                volatileBarrierAfter(field, true);
                 break;
             }
             case Bytecode.PUTFIELD: {
@@ -1028,10 +1292,12 @@ public class HirBuilder implements Phase {
                 if (field.isVolatile()) {
                     hir.setWriteVolatile();
                 }
-                HirInstr val = state.pop(field.getJavaKind());
-                HirInstr object = state.pop(JavaKind.Object);
+                HirInstr val = popOperand(field.getJavaKind().getStackKind());
+                HirInstr object = popOperand(JavaKind.Object);
                 StoreFieldInstr instr = new StoreFieldInstr(object, field.getOffset(), field, val);
+                volatileBarrierBefore(field);
                 appendToBlock(instr);
+                volatileBarrierAfter(field, false);
                 break;
             }
             default:
@@ -1039,10 +1305,161 @@ public class HirBuilder implements Phase {
         }
     }
 
+    /**
+     * Classes checked on every path to the block, a predecessor that is not built yet, e.g.
+     * the end of a loop, checks nothing
+     */
+    private Set<ResolvedJavaType> initializedIn(BlockStartInstr block) {
+        Set<ResolvedJavaType> result = null;
+        for (BlockStartInstr pred : block.getPredecessor()) {
+            Set<ResolvedJavaType> out = initializedOut.get(pred);
+            if (out == null) {
+                return new HashSet<>();
+            }
+            if (result == null) {
+                result = new HashSet<>(out);
+            } else {
+                result.retainAll(out);
+            }
+        }
+        return result == null ? new HashSet<>() : result;
+    }
+
+    /**
+     * Static field access initializes its class, compiled code checks it unless the class is
+     * already initialized, or it has been checked by every path here
+     */
+    private void classInitBarrier(ResolvedJavaType holder) {
+        if (holder.isInitialized() || initialized.contains(holder)) {
+            return;
+        }
+        // Class of current method and its superclasses are initialized before the method
+        // runs, or are being initialized by current thread
+        if (!holder.isInterface() && holder.isAssignableFrom(method.getDeclaringClass())) {
+            return;
+        }
+        appendToBlock(new ClassInitCheckInstr(state.copy(), holder));
+        // Superclasses are initialized first
+        for (ResolvedJavaType k = holder; k != null; k = k.getSuperclass()) {
+            initialized.add(k);
+        }
+    }
+
+    /**
+     * Push the value of a field that never changes once it's observed, i.e. static final field
+     * of an initialized class, final field of a class whose final fields can't be changed by
+     * reflection, or a non-default {@code @Stable} field
+     *
+     * @param field  the field
+     * @param object receiver, or null for static field
+     * @return true if field value is read at compile time
+     */
+    private boolean loadConstantField(HotSpotResolvedJavaField field, JavaConstant object) {
+        boolean isStatic = object == null;
+        if (isStatic) {
+            // System.in, System.out and System.err are changed by their setters anyway
+            if (!field.getDeclaringClass().isInitialized() ||
+                    field.getDeclaringClass().getName().equals("Ljava/lang/System;")) {
+                return false;
+            }
+        }
+        boolean isTrusted = field.isFinal() && (isStatic || isTrustedFinal(field.getDeclaringClass()));
+        if (!isTrusted && !field.isStable()) {
+            return false;
+        }
+        JavaConstant value = YarrowRuntime.constReflection.readFieldValue(field, object);
+        if (value == null) {
+            return false;
+        }
+        // Default value of instance or stable field might be seen before it's initialized
+        if ((!isStatic || !field.isFinal()) && value.isDefaultForKind()) {
+            return false;
+        }
+        if (field.isStable() && field.getType().getName().startsWith("[")) {
+            stableArrays.put(value, arrayDimension(field.getType()));
+        }
+        loadConst(stackConstant(value));
+        return true;
+    }
+
+    /**
+     * Final fields of these classes are not modified by reflection or serialization
+     */
+    private static boolean isTrustedFinal(ResolvedJavaType holder) {
+        String name = holder.getName();
+        if (name.startsWith("Ljava/lang/invoke/") || name.startsWith("Lsun/invoke/") ||
+                name.startsWith("Ljdk/internal/foreign/") || name.startsWith("Ljdk/internal/vm/vector/")) {
+            return true;
+        }
+        return name.equals("Ljava/lang/String;") || boxedKind(holder) != null;
+    }
+
+    private static int arrayDimension(JavaType type) {
+        int dimension = 0;
+        while (type.getName().charAt(dimension) == '[') {
+            dimension++;
+        }
+        return dimension;
+    }
+
+    /**
+     * Sub-int constants are ints on the operand stack
+     */
+    private static JavaConstant stackConstant(JavaConstant c) {
+        JavaKind kind = c.getJavaKind();
+        if (kind != JavaKind.Int && kind.getStackKind() == JavaKind.Int) {
+            return JavaConstant.forInt(c.asInt());
+        }
+        return c;
+    }
+
+    /**
+     * Non-default element of constant {@code @Stable} array never changes
+     */
+    private boolean loadStableElement(HirInstr array, HirInstr index) {
+        if (!(array instanceof ConstantInstr) || !(index instanceof ConstantInstr)) {
+            return false;
+        }
+        JavaConstant arrayConstant = ((ConstantInstr) array).getConstant();
+        Integer dimension = stableArrays.get(arrayConstant);
+        if (dimension == null) {
+            return false;
+        }
+        JavaConstant value = YarrowRuntime.constReflection.readArrayElement(arrayConstant,
+                ((ConstantInstr) index).getConstant().asInt());
+        if (value == null || value.isDefaultForKind()) {
+            return false;
+        }
+        if (dimension > 1) {
+            stableArrays.put(value, dimension - 1);
+        }
+        loadConst(stackConstant(value));
+        return true;
+    }
+
+    /**
+     * A volatile store is a release, i.e. preceding accesses can not be reordered after it
+     */
+    private void volatileBarrierBefore(HotSpotResolvedJavaField field) {
+        if (field.isVolatile()) {
+            appendToBlock(new MemBarrierInstr(MemoryBarriers.LOAD_STORE | MemoryBarriers.STORE_STORE));
+        }
+    }
+
+    /**
+     * A volatile load is an acquire, i.e. following accesses can not be reordered before it,
+     * and a volatile store can not be reordered with following volatile loads
+     */
+    private void volatileBarrierAfter(HotSpotResolvedJavaField field, boolean isLoad) {
+        if (field.isVolatile()) {
+            appendToBlock(new MemBarrierInstr(isLoad ? MemoryBarriers.LOAD_LOAD | MemoryBarriers.LOAD_STORE :
+                    MemoryBarriers.STORE_LOAD));
+        }
+    }
+
     private void call(BytecodeStream.Invoke invoke, int opcode) {
         JavaMethod target = null;
         boolean hasReceiver = false;
-        VmState stateBefore = state.copy();
         switch (opcode) {
             case Bytecode.INVOKEINTERFACE: {
                 var m = ((BytecodeStream.InvokeInterface) invoke);
@@ -1069,32 +1486,985 @@ public class HirBuilder implements Phase {
             }
             case Bytecode.INVOKEDYNAMIC: {
                 var m = ((BytecodeStream.InvokeDynamic) invoke);
+                // Bootstrap method links call site to an adapter, which takes the target
+                // MethodHandle of constant call site, or the CallSite itself, as an extra
+                // trailing argument, i.e. the appendix
+                JavaConstant appendix = method.getConstantPool().lookupAppendix(m.getConstPoolIndex(), opcode);
+                if (appendix == null) {
+                    CompilerErrors.bailOut("Unlinked invokedynamic");
+                }
                 target = method.getConstantPool().lookupMethod(m.getConstPoolIndex(), opcode);
+                if (lambdaConstant(target, appendix)) {
+                    return;
+                }
+                state.push(JavaKind.Object, appendToBlock(new ConstantInstr(appendix)));
                 break;
             }
             default:
                 YarrowError.unimplemented();
         }
 
+        if (target instanceof ResolvedJavaMethod && intrinsify((ResolvedJavaMethod) target, opcode)) {
+            return;
+        }
+
         Signature sig = target.getSignature();
         int argc = sig.getParameterCount(false);
         HirInstr[] arguments = new HirInstr[argc];
         HirInstr receiver = null;
         for (int i = argc - 1; i >= 0; i--) {
-            arguments[i] = state.pop(sig.getParameterKind(i));
+            arguments[i] = popOperand(sig.getParameterKind(i).getStackKind());
         }
         if (hasReceiver) {
-            receiver = state.pop(JavaKind.Object);
+            receiver = popOperand(JavaKind.Object);
+            // Receiver of an exact type, e.g. a constant lambda instance, has only one
+            // implementation to call, which is then bound directly
+            if ((opcode == Bytecode.INVOKEVIRTUAL || opcode == Bytecode.INVOKEINTERFACE) &&
+                    target instanceof ResolvedJavaMethod) {
+                StaticType type = StaticType.of(receiver);
+                if (type != null && type.isExact() && type.isNonNull()) {
+                    ResolvedJavaMethod impl = type.getType().resolveConcreteMethod((ResolvedJavaMethod) target, method.getDeclaringClass());
+                    if (impl != null) {
+                        target = impl;
+                        opcode = Bytecode.INVOKESPECIAL;
+                    }
+                }
+            }
         }
         JavaKind returnType = TypeUtil.decayType(sig.getReturnKind());
-        HirInstr instr = new CallInstr(returnType, stateBefore, receiver, arguments, target, sig, opcode);
-        instr = appendToBlock(instr);
+        // Call site records state after arguments were popped, interpreter continues
+        // after the call returns rather than invoking it again
+        CallInstr call = new CallInstr(returnType, null, receiver, arguments, target, sig, opcode);
+        if (opcode == Bytecode.INVOKEVIRTUAL && profile != null) {
+            JavaTypeProfile typeProfile = profile.getTypeProfile(curBci);
+            call.setMegamorphic(typeProfile != null && typeProfile.getNotRecordedProbability() > 0);
+        }
+        HirInstr before = lastInstr;
+        HirInstr instr = appendToBlock(call);
+        if (target.getDeclaringClass().getName().equals("Ljava/lang/StringBuilder;")) {
+            trackStringBuilder(call, before);
+        }
 
         if (sig.getReturnKind() != JavaKind.Void) {
             state.push(returnType, instr);
         }
     }
 
+    /**
+     * LambdaMetafactory links a non-capturing lambda to {@code MethodHandles.constant(type, instance)},
+     * every evaluation of the call site then produces the same instance. Such a handle is
+     * recognized by its form, handles of the same class that are bound otherwise, e.g.
+     * {@code findVirtual(...).bindTo(instance)}, still compute something else from it.
+     *
+     * @param adapter  adapter of invokedynamic
+     * @param appendix appendix of invokedynamic
+     * @return true if the instance is pushed as a constant
+     */
+    private boolean lambdaConstant(JavaMethod adapter, JavaConstant appendix) {
+        // Appendix is the only argument, i.e. nothing is captured
+        if (adapter.getSignature().getParameterCount(false) != 1) {
+            return false;
+        }
+        // Forms are shared by handles of the same shape, a reference constant handle built
+        // here has the form which returns its bound argument
+        var constReflection = (HotSpotConstantReflectionProvider) YarrowRuntime.constReflection;
+        JavaConstant constant = constReflection.forObject(MethodHandles.constant(Object.class, adapter));
+        ResolvedJavaType type = YarrowRuntime.metaAccess.lookupJavaType(appendix);
+        if (!type.equals(YarrowRuntime.metaAccess.lookupJavaType(constant))) {
+            return false;
+        }
+        JavaConstant instance = null;
+        for (ResolvedJavaField field : type.getInstanceFields(true)) {
+            if (field.getName().equals("form") &&
+                    !constReflection.constantEquals(constReflection.readFieldValue(field, appendix),
+                            constReflection.readFieldValue(field, constant))) {
+                return false;
+            } else if (field.getName().equals("argL0")) {
+                instance = constReflection.readFieldValue(field, appendix);
+            }
+        }
+        if (instance == null || instance.isNull()) {
+            return false;
+        }
+        // Instance must be what call site returns
+        JavaType returnType = adapter.getSignature().getReturnType(method.getDeclaringClass());
+        if (!(returnType instanceof ResolvedJavaType) ||
+                !((ResolvedJavaType) returnType).isAssignableFrom(YarrowRuntime.metaAccess.lookupJavaType(instance))) {
+            return false;
+        }
+        state.push(JavaKind.Object, appendToBlock(new ConstantInstr(instance)));
+        return true;
+    }
+
+    /**
+     * Primitive kind boxed by given type, or null if it's not a box type
+     */
+    private static JavaKind boxedKind(ResolvedJavaType type) {
+        for (JavaKind kind : JavaKind.values()) {
+            if (kind.isPrimitive() && kind != JavaKind.Void &&
+                    YarrowRuntime.metaAccess.lookupJavaType(kind.toBoxedJavaClass()).equals(type)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Boxing by valueOf and unboxing by xxxValue. Boxes of constants in cache range are the
+     * cached objects themselves, any other box is created by a BoxInstr, and unboxing a box
+     * created in this method gives the boxed value back without touching the object.
+     */
+    private boolean boxIntrinsic(ResolvedJavaMethod target, int opcode) {
+        JavaKind kind = boxedKind(target.getDeclaringClass());
+        if (kind == null) {
+            return false;
+        }
+        Signature sig = target.getSignature();
+        int argc = sig.getParameterCount(false);
+        if (opcode == Bytecode.INVOKESTATIC && target.getName().equals("valueOf") &&
+                argc == 1 && sig.getParameterKind(0) == kind) {
+            HirInstr value = popOperand(kind.getStackKind());
+            if (value instanceof ConstantInstr && kind != JavaKind.Float && kind != JavaKind.Double) {
+                // Integer.valueOf(100) == Integer.valueOf(100), cached box must be used then
+                JavaConstant c = JavaConstant.forIntegerKind(kind, ((ConstantInstr) value).getConstant().asLong());
+                JavaConstant box = YarrowRuntime.constReflection.boxPrimitive(c);
+                if (box != null) {
+                    state.push(JavaKind.Object, appendToBlock(new ConstantInstr(box)));
+                    return true;
+                }
+            }
+            state.push(JavaKind.Object, appendToBlock(new BoxInstr(target, value)));
+            return true;
+        }
+        if (opcode == Bytecode.INVOKEVIRTUAL && argc == 0 && sig.getReturnKind() == kind &&
+                target.getName().equals(kind.getJavaName() + "Value")) {
+            HirInstr receiver = state.getStack(state.getStackSize() - 1);
+            if (receiver instanceof BoxInstr && ((BoxInstr) receiver).getBoxType().equals(target.getDeclaringClass())) {
+                state.unsafePop();
+                state.push(kind.getStackKind(), ((BoxInstr) receiver).getValue());
+                return true;
+            }
+            if (receiver instanceof ConstantInstr && !((ConstantInstr) receiver).getConstant().isNull()) {
+                JavaConstant value = YarrowRuntime.constReflection.unboxPrimitive(((ConstantInstr) receiver).getConstant());
+                if (value != null) {
+                    popOperand(JavaKind.Object);
+                    loadConst(kind.getStackKind() == JavaKind.Int ? JavaConstant.forInt(value.asInt()) : value);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Boxes that stay in locals or operand stack at the end of current block may be used by
+     * its successors, they are allocated as usual
+     */
+    private void escapeLiveBoxes(BitSet liveOut) {
+        for (int i = 0; i < state.getLocalSize(); i++) {
+            if ((liveOut == null || liveOut.get(i)) && state.get(i) instanceof BoxInstr) {
+                ((BoxInstr) state.get(i)).markEscaped();
+            }
+        }
+        for (int i = 0; i < state.getStackSize(); i++) {
+            if (state.getStack(i) instanceof BoxInstr) {
+                ((BoxInstr) state.getStack(i)).markEscaped();
+            }
+        }
+        for (int i = 0; i < state.getLockSize(); i++) {
+            if (state.getLock(i) instanceof BoxInstr) {
+                ((BoxInstr) state.getLock(i)).markEscaped();
+            }
+        }
+    }
+
+    /**
+     * Record what is appended to StringBuilders, so that {@code new StringBuilder()} of a chain
+     * like {@code new StringBuilder().append(a).append(b).toString()} can be sized up front
+     * when toString is reached. The capacity is only estimated at compile time, because values
+     * appended later in the chain are not computed yet when builder is allocated, so builder
+     * grows less often but may still grow for long String or Object values
+     */
+    private void trackStringBuilder(CallInstr call, HirInstr before) {
+        String name = call.getTarget().getName();
+        String descriptor = call.getSignature().toMethodDescriptor();
+        if (name.equals("<init>") && descriptor.equals("()V") && call.getReceiver() instanceof NewInstr &&
+                call.getTarget() instanceof ResolvedJavaMethod) {
+            builderChains.put(call.getReceiver(), new StringBuilderChain(call, before));
+            return;
+        }
+        StringBuilderChain chain = builderChains.get(call.getReceiver());
+        if (chain == null) {
+            return;
+        }
+        if (name.equals("append") && call.getArgs().length == 1) {
+            chain.capacity += estimateLength(call.getArgs()[0], call.getSignature().getParameterType(0, null).getName());
+            // Builder is returned by append, which may be appended again
+            builderChains.put(call, chain);
+        } else if (name.equals("toString")) {
+            presizeStringBuilder(chain);
+        }
+    }
+
+    private void presizeStringBuilder(StringBuilderChain chain) {
+        CallInstr init = chain.init;
+        // Builder starts with 16 chars by default, which is enough for the estimation
+        if (chain.isPresized || chain.capacity <= 16) {
+            return;
+        }
+        ResolvedJavaMethod sizedInit = null;
+        for (ResolvedJavaMethod ctor : ((ResolvedJavaMethod) init.getTarget()).getDeclaringClass().getDeclaredConstructors()) {
+            if (ctor.getSignature().toMethodDescriptor().equals("(I)V")) {
+                sizedInit = ctor;
+            }
+        }
+        if (sizedInit == null) {
+            return;
+        }
+        var capacity = new ConstantInstr(JavaConstant.forInt(Math.min(chain.capacity, MaxStringBuilderCapacity)));
+        insertBefore(chain.beforeInit, init, capacity);
+        init.rebind(sizedInit, new HirInstr[]{capacity});
+        chain.isPresized = true;
+    }
+
+    /**
+     * Link a constant argument right before the call using it
+     *
+     * @param from  instruction somewhere before the call in current block
+     * @param call  the call
+     * @param instr new argument
+     */
+    private static void insertBefore(HirInstr from, HirInstr call, ConstantInstr instr) {
+        while (from.getNext() != call) {
+            from = from.getNext();
+        }
+        instr.setNext(call);
+        from.setNext(instr);
+    }
+
+    /**
+     * Upper bound of the length of appended constant or primitive value. String and Object
+     * values are of unknown length, they are estimated as the default capacity
+     */
+    private static int estimateLength(HirInstr value, String type) {
+        String constant = constantString(value, type);
+        if (constant != null) {
+            return constant.length();
+        }
+        switch (type) {
+            case "Z":
+                return 5;
+            case "C":
+                return 1;
+            case "I":
+                return 11;
+            case "J":
+                return 20;
+            case "F":
+                return 15;
+            case "D":
+                return 24;
+            default:
+                return 16;
+        }
+    }
+
+    /**
+     * String representation of a constant appended as given type, or null if it's unknown
+     */
+    private static String constantString(HirInstr value, String type) {
+        if (!(value instanceof ConstantInstr)) {
+            return null;
+        }
+        JavaConstant c = ((ConstantInstr) value).getConstant();
+        switch (type) {
+            case "Z":
+                return String.valueOf(c.asInt() != 0);
+            case "C":
+                return String.valueOf((char) c.asInt());
+            case "I":
+                return String.valueOf(c.asInt());
+            case "J":
+                return String.valueOf(c.asLong());
+            case "F":
+                return String.valueOf(c.asFloat());
+            case "D":
+                return String.valueOf(c.asDouble());
+            case "Ljava/lang/String;":
+                return c.isNull() ? "null" : ((HotSpotObjectConstant) c).asObject(String.class);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Merge {@code sb.append(c1).append(c2)} into {@code sb.append(c1+c2)} when both are
+     * constants, the first append is then reused and the second one disappears
+     *
+     * @return true if current append is merged into the previous one
+     */
+    private boolean mergeConstantAppend(ResolvedJavaMethod target) {
+        Signature sig = target.getSignature();
+        if (sig.getParameterCount(false) != 1 || target.isStatic()) {
+            return false;
+        }
+        String type = sig.getParameterType(0, null).getName();
+        int slots = sig.getParameterKind(0).getSlotCount();
+        HirInstr value = state.getStack(state.getStackSize() - slots);
+        HirInstr receiver = state.getStack(state.getStackSize() - slots - 1);
+        String constant = constantString(value, type);
+        if (constant == null || !(receiver instanceof CallInstr) || !builderChains.containsKey(receiver)) {
+            return false;
+        }
+        var prev = (CallInstr) receiver;
+        if (!prev.getTarget().getName().equals("append") || prev.getArgs().length != 1) {
+            return false;
+        }
+        String prevConstant = constantString(prev.getArgs()[0], prev.getSignature().getParameterType(0, null).getName());
+        if (prevConstant == null) {
+            return false;
+        }
+        // Nothing else may observe the builder between the two appends, e.g. debug info of
+        // other calls, which would then see the merged content
+        for (HirInstr i = prev.getNext(); i != null; i = i.getNext()) {
+            if (!(i instanceof ConstantInstr)) {
+                return false;
+            }
+            if (i == lastInstr) {
+                break;
+            }
+        }
+        ResolvedJavaMethod appendString = null;
+        for (ResolvedJavaMethod m : target.getDeclaringClass().getDeclaredMethods()) {
+            if (m.getName().equals("append") && m.getSignature().toMethodDescriptor().equals("(Ljava/lang/String;)Ljava/lang/StringBuilder;")) {
+                appendString = m;
+            }
+        }
+        if (appendString == null) {
+            return false;
+        }
+        popOperand(sig.getParameterKind(0).getStackKind());
+        popOperand(JavaKind.Object);
+        StringBuilderChain chain = builderChains.get(prev);
+        var merged = new ConstantInstr(YarrowRuntime.constReflection.forString(prevConstant + constant));
+        insertBefore(chain.beforeInit, prev, merged);
+        prev.rebind(appendString, new HirInstr[]{merged});
+        chain.capacity += constant.length();
+        // Interpreter continues after current append if it deoptimizes during the merged one
+        VmState copy = state.copy();
+        if (liveLocals != null) {
+            copy.clearDeadLocals(liveLocals);
+        }
+        prev.setVmState(copy);
+        state.push(JavaKind.Object, prev);
+        return true;
+    }
+
+    /**
+     * Replace call to well known method with dedicated instructions
+     *
+     * @param target resolved call target
+     * @return true if the call was intrinsified, its arguments are popped and result is pushed
+     */
+    private boolean intrinsify(ResolvedJavaMethod target, int opcode) {
+        String holder = target.getDeclaringClass().getName();
+        if (holder.equals("Ljava/lang/Math;") || holder.equals("Ljava/lang/StrictMath;")) {
+            return mathIntrinsic(target, holder.equals("Ljava/lang/StrictMath;"));
+        }
+        if (boxIntrinsic(target, opcode)) {
+            return true;
+        }
+        if (holder.equals("Ljava/lang/Integer;") || holder.equals("Ljava/lang/Long;")) {
+            return bitIntrinsic(target);
+        }
+        if (holder.equals("Ljava/lang/StringBuilder;") && target.getName().equals("append")) {
+            return mergeConstantAppend(target);
+        }
+        if (holder.equals("Ljdk/internal/misc/Unsafe;") || holder.equals("Lsun/misc/Unsafe;")) {
+            return unsafeIntrinsic(target);
+        }
+        if (runtimeIntrinsic(target, opcode)) {
+            return true;
+        }
+        // A failed check deoptimized this method before, copying is left to callee then
+        if (profile != null && profile.getDeoptimizationCount(DeoptimizationReason.BoundsCheckException) > 0) {
+            return false;
+        }
+        String name = target.getName();
+        if (holder.equals("Ljava/lang/System;") && name.equals("arraycopy")) {
+            return arraycopy();
+        } else if (holder.equals("Ljava/util/Arrays;") && (name.equals("copyOf") || name.equals("copyOfRange"))) {
+            return arraysCopyOf(target, name.equals("copyOfRange"));
+        } else if (holder.equals("Ljava/lang/Object;") && name.equals("clone") && opcode == Bytecode.INVOKEVIRTUAL) {
+            return arrayClone();
+        }
+        return false;
+    }
+
+    private boolean mathIntrinsic(ResolvedJavaMethod target, boolean isStrict) {
+        Signature sig = target.getSignature();
+        int argc = sig.getParameterCount(false);
+        JavaKind type = sig.getReturnKind();
+        for (int i = 0; i < argc; i++) {
+            if (sig.getParameterKind(i) != type) {
+                // e.g. multiplyExact(long,int) and floorMod(long,int)
+                return false;
+            }
+        }
+        MathIntrinsicInstr.Op op = null;
+        int exactOpcode = -1;
+        switch (target.getName()) {
+            case "abs":
+                op = MathIntrinsicInstr.Op.ABS;
+                break;
+            case "min":
+                op = MathIntrinsicInstr.Op.MIN;
+                break;
+            case "max":
+                op = MathIntrinsicInstr.Op.MAX;
+                break;
+            case "sqrt":
+                op = MathIntrinsicInstr.Op.SQRT;
+                break;
+            case "fma":
+                op = YarrowRuntime.access.useFMA ? MathIntrinsicInstr.Op.FMA : null;
+                break;
+            case "sin":
+                op = MathIntrinsicInstr.Op.SIN;
+                break;
+            case "cos":
+                op = MathIntrinsicInstr.Op.COS;
+                break;
+            case "tan":
+                op = MathIntrinsicInstr.Op.TAN;
+                break;
+            case "log":
+                op = MathIntrinsicInstr.Op.LOG;
+                break;
+            case "log10":
+                op = MathIntrinsicInstr.Op.LOG10;
+                break;
+            case "exp":
+                op = MathIntrinsicInstr.Op.EXP;
+                break;
+            case "pow":
+                op = MathIntrinsicInstr.Op.POW;
+                break;
+            case "addExact":
+                exactOpcode = type == JavaKind.Int ? Bytecode.IADD : Bytecode.LADD;
+                break;
+            case "subtractExact":
+                exactOpcode = type == JavaKind.Int ? Bytecode.ISUB : Bytecode.LSUB;
+                break;
+            case "multiplyExact":
+                exactOpcode = type == JavaKind.Int ? Bytecode.IMUL : Bytecode.LMUL;
+                break;
+            case "floorDiv":
+            case "floorMod":
+                return floorDivMod(target.getName().equals("floorDiv"), type);
+            default:
+                return false;
+        }
+
+        if (exactOpcode != -1) {
+            if (argc != 2 || (type != JavaKind.Int && type != JavaKind.Long)) {
+                return false;
+            }
+            // Overflow deoptimized this method before, intrinsifying again would trap forever
+            if (profile != null && profile.getDeoptimizationCount(DeoptimizationReason.ArithmeticException) > 0) {
+                return false;
+            }
+            // Deoptimization re-executes the invocation, so arguments are still on the stack
+            VmState stateBefore = state.copy();
+            HirInstr right = popOperand(type);
+            HirInstr left = popOperand(type);
+            state.push(type, appendToBlock(new ExactArithmeticInstr(stateBefore, exactOpcode, left, right)));
+            return true;
+        }
+        // StrictMath requires results of fdlibm, which stubs of VM don't guarantee
+        if (op == null || op.isTranscendental() && isStrict) {
+            return false;
+        }
+        if ((op == MathIntrinsicInstr.Op.SQRT || op.isTranscendental()) && type != JavaKind.Double) {
+            return false;
+        }
+        HirInstr[] args = new HirInstr[argc];
+        for (int i = argc - 1; i >= 0; i--) {
+            args[i] = popOperand(type);
+        }
+        state.push(type, appendToBlock(new MathIntrinsicInstr(type, op, args)));
+        return true;
+    }
+
+    private boolean bitIntrinsic(ResolvedJavaMethod target) {
+        Signature sig = target.getSignature();
+        int argc = sig.getParameterCount(false);
+        if (!target.isStatic() || argc == 0) {
+            return false;
+        }
+        JavaKind kind = sig.getParameterKind(0);
+        if (kind != JavaKind.Int && kind != JavaKind.Long) {
+            return false;
+        }
+        BitIntrinsicInstr.Op op;
+        switch (target.getName()) {
+            case "bitCount":
+                op = hasCpuFeature(AMD64.CPUFeature.POPCNT) ? BitIntrinsicInstr.Op.BIT_COUNT : null;
+                break;
+            case "numberOfLeadingZeros":
+                op = hasCpuFeature(AMD64.CPUFeature.LZCNT) ? BitIntrinsicInstr.Op.LEADING_ZEROS : null;
+                break;
+            case "numberOfTrailingZeros":
+                // tzcnt comes with BMI1
+                op = hasCpuFeature(AMD64.CPUFeature.BMI1) ? BitIntrinsicInstr.Op.TRAILING_ZEROS : null;
+                break;
+            case "rotateLeft":
+                op = BitIntrinsicInstr.Op.ROTATE_LEFT;
+                break;
+            case "rotateRight":
+                op = BitIntrinsicInstr.Op.ROTATE_RIGHT;
+                break;
+            case "reverseBytes":
+                op = BitIntrinsicInstr.Op.REVERSE_BYTES;
+                break;
+            default:
+                return false;
+        }
+        if (op == null || argc != (op.isRotate() ? 2 : 1)) {
+            return false;
+        }
+        HirInstr[] args = new HirInstr[argc];
+        for (int i = argc - 1; i >= 0; i--) {
+            args[i] = popOperand(sig.getParameterKind(i));
+        }
+        JavaKind type = sig.getReturnKind();
+        state.push(type, appendToBlock(new BitIntrinsicInstr(type, op, args)));
+        return true;
+    }
+
+    /**
+     * Unsafe get, put and compareAndSet on object+offset. Accessors of raw addresses,
+     * unaligned accessors and read-modify-write other than compareAndSet are left to callee.
+     */
+    private boolean unsafeIntrinsic(ResolvedJavaMethod target) {
+        String name = target.getName();
+        Signature sig = target.getSignature();
+        int argc = sig.getParameterCount(false);
+        if (target.isStatic() || argc < 2 || sig.getParameterKind(0) != JavaKind.Object ||
+                sig.getParameterKind(1) != JavaKind.Long) {
+            return false;
+        }
+        String rest;
+        int expectedArgc;
+        boolean isCas = false;
+        if (name.startsWith("weakCompareAndSet")) {
+            // A weak compareAndSet is allowed to be strong and fully fenced
+            rest = name.substring("weakCompareAndSet".length());
+            expectedArgc = 4;
+            isCas = true;
+        } else if (name.startsWith("compareAndSet") || name.startsWith("compareAndSwap")) {
+            rest = name.substring(name.startsWith("compareAndSet") ? "compareAndSet".length() : "compareAndSwap".length());
+            expectedArgc = 4;
+            isCas = true;
+        } else if (name.startsWith("putOrdered")) {
+            // sun.misc.Unsafe names release stores as ordered ones
+            rest = name.substring("putOrdered".length()) + "Release";
+            expectedArgc = 3;
+        } else if (name.startsWith("get")) {
+            rest = name.substring("get".length());
+            expectedArgc = 2;
+        } else if (name.startsWith("put")) {
+            rest = name.substring("put".length());
+            expectedArgc = 3;
+        } else {
+            return false;
+        }
+        JavaKind kind = null;
+        for (JavaKind k : new JavaKind[]{JavaKind.Boolean, JavaKind.Byte, JavaKind.Short, JavaKind.Char,
+                JavaKind.Int, JavaKind.Long, JavaKind.Float, JavaKind.Double}) {
+            if (rest.startsWith(k.name())) {
+                kind = k;
+                rest = rest.substring(k.name().length());
+                break;
+            }
+        }
+        if (kind == null && (rest.startsWith("Reference") || rest.startsWith("Object"))) {
+            kind = JavaKind.Object;
+            rest = rest.substring(rest.startsWith("Reference") ? "Reference".length() : "Object".length());
+        }
+        if (kind == null || argc != expectedArgc) {
+            return false;
+        }
+        String mode = rest;
+        if (isCas) {
+            // Other kinds are implemented by callee on top of int compareAndSet
+            if (kind != JavaKind.Int && kind != JavaKind.Long && kind != JavaKind.Object) {
+                return false;
+            }
+            if (!mode.isEmpty() && !(name.startsWith("weak") && (mode.equals("Plain") ||
+                    mode.equals("Acquire") || mode.equals("Release")))) {
+                return false;
+            }
+        } else if (!mode.isEmpty() && !mode.equals("Volatile") && !mode.equals("Opaque") &&
+                !mode.equals("Acquire") && !mode.equals("Release")) {
+            return false;
+        }
+        boolean isGet = expectedArgc == 2;
+        JavaKind valueKind = isGet ? sig.getReturnKind() : sig.getParameterKind(2);
+        if (valueKind != kind || isGet && mode.equals("Release") || !isGet && !isCas && mode.equals("Acquire")) {
+            return false;
+        }
+        // Referent loaded from a Reference must be kept alive under G1, which needs a runtime
+        // check of what is loaded. Offset is a long, it takes two stack slots
+        int top = state.getStackSize();
+        if (isGet && kind == JavaKind.Object && YarrowRuntime.access.useG1GC &&
+                mayLoadReferent(state.getStack(top - 3), state.getStack(top - 2))) {
+            return false;
+        }
+
+        HirInstr[] args = new HirInstr[argc];
+        for (int i = argc - 1; i >= 0; i--) {
+            args[i] = popOperand(sig.getParameterKind(i).getStackKind());
+        }
+        // Unsafe instance itself is not used
+        popOperand(JavaKind.Object);
+        boolean isVolatile = mode.equals("Volatile");
+        if (isCas) {
+            var cas = new UnsafeCompareAndSwapInstr(args[0], args[1], kind, args[2], args[3]);
+            state.push(TypeUtil.decayType(sig.getReturnKind()), appendToBlock(cas));
+        } else if (isGet) {
+            var get = new UnsafeGetInstr(args[0], args[1], kind, mode.isEmpty());
+            state.push(TypeUtil.decayType(kind), appendToBlock(get));
+            if (isVolatile || mode.equals("Acquire")) {
+                appendToBlock(new MemBarrierInstr(MemoryBarriers.LOAD_LOAD | MemoryBarriers.LOAD_STORE));
+            }
+        } else {
+            if (isVolatile || mode.equals("Release")) {
+                appendToBlock(new MemBarrierInstr(MemoryBarriers.LOAD_STORE | MemoryBarriers.STORE_STORE));
+            }
+            appendToBlock(new UnsafePutInstr(args[0], args[1], kind, args[2]));
+            if (isVolatile) {
+                appendToBlock(new MemBarrierInstr(MemoryBarriers.STORE_LOAD));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether object+offset might be referent of java.lang.ref.Reference, it's not when the
+     * offset is a constant of other field, or the object is never a Reference
+     */
+    private static boolean mayLoadReferent(HirInstr object, HirInstr offset) {
+        ResolvedJavaType reference = YarrowRuntime.metaAccess.lookupJavaType(java.lang.ref.Reference.class);
+        if (offset instanceof ConstantInstr) {
+            long value = ((ConstantInstr) offset).getConstant().asLong();
+            boolean isReferent = false;
+            for (ResolvedJavaField field : reference.getInstanceFields(false)) {
+                if (field.getName().equals("referent")) {
+                    isReferent = value == ((HotSpotResolvedJavaField) field).getOffset();
+                }
+            }
+            if (!isReferent) {
+                return false;
+            }
+        }
+        if (object instanceof ConstantInstr && ((ConstantInstr) object).getConstant().isNull()) {
+            return false;
+        }
+        StaticType type = StaticType.of(object);
+        return type == null || !type.isDisjointFrom(reference);
+    }
+
+    private static boolean hasCpuFeature(AMD64.CPUFeature feature) {
+        return ((AMD64) YarrowRuntime.target.arch).getFeatures().contains(feature);
+    }
+
+    private boolean runtimeIntrinsic(ResolvedJavaMethod target, int opcode) {
+        String holder = target.getDeclaringClass().getName();
+        String name = target.getName();
+        String descriptor = target.getSignature().toMethodDescriptor();
+        HirInstr instr;
+        if (holder.equals("Ljava/lang/System;") && name.equals("identityHashCode")) {
+            instr = new IdentityHashCodeInstr(popOperand(JavaKind.Object));
+        } else if (holder.equals("Ljava/lang/Object;") && name.equals("hashCode") && isIdentityHashCode(target, opcode)) {
+            instr = new IdentityHashCodeInstr(popOperand(JavaKind.Object));
+        } else if (holder.equals("Ljava/lang/System;") && name.equals("nanoTime") && descriptor.equals("()J")) {
+            instr = new LeafCallInstr(JavaKind.Long, LeafCallInstr.Function.JavaTimeNanos);
+        } else if (holder.equals("Ljava/lang/System;") && name.equals("currentTimeMillis") && descriptor.equals("()J")) {
+            instr = new LeafCallInstr(JavaKind.Long, LeafCallInstr.Function.JavaTimeMillis);
+        } else if (holder.equals("Ljava/lang/Thread;") && name.equals("currentThread") && target.isStatic()) {
+            // Thread.currentThread is native, a call would go through its native wrapper
+            instr = new CurrentThreadInstr();
+        } else if (holder.equals("Ljava/lang/Thread;") && name.equals("isInterrupted") && descriptor.equals("()Z")) {
+            return threadIsInterrupted(target, opcode);
+        } else {
+            return false;
+        }
+        state.push(instr.type(), appendToBlock(instr));
+        return true;
+    }
+
+    /**
+     * Thread.isInterrupted only reads the interrupted field. It's not final, so receiver type
+     * must be exact to be sure it's not overridden, a receiver that might be null is checked
+     * before reading the field
+     */
+    private boolean threadIsInterrupted(ResolvedJavaMethod target, int opcode) {
+        if (opcode != Bytecode.INVOKEVIRTUAL) {
+            return false;
+        }
+        HirInstr thread = state.getStack(state.getStackSize() - 1);
+        StaticType receiver = StaticType.of(thread);
+        if (receiver == null || !receiver.isExact() ||
+                !target.equals(receiver.getType().resolveConcreteMethod(target, method.getDeclaringClass()))) {
+            return false;
+        }
+        HotSpotResolvedJavaField interrupted = null;
+        for (ResolvedJavaField field : target.getDeclaringClass().getInstanceFields(false)) {
+            if (field.getName().equals("interrupted") && field.getJavaKind() == JavaKind.Boolean) {
+                interrupted = (HotSpotResolvedJavaField) field;
+            }
+        }
+        if (interrupted == null) {
+            return false;
+        }
+        if (!receiver.isNonNull()) {
+            // Once a null receiver deoptimized this method, it's left to callee
+            if (profile != null && profile.getDeoptimizationCount(DeoptimizationReason.NullCheckException) > 0) {
+                return false;
+            }
+            appendToBlock(new NullCheckInstr(state.copy(), thread));
+        }
+        popOperand(JavaKind.Object);
+        LoadFieldInstr instr = new LoadFieldInstr(thread, interrupted.getOffset(), interrupted);
+        state.push(interrupted.getJavaKind().getStackKind(), appendToBlock(instr));
+        volatileBarrierAfter(interrupted, true);
+        return true;
+    }
+
+    /**
+     * Whether Object.hashCode invoked on the receiver is known to be the identity hash code,
+     * i.e. receiver class doesn't override it. Receiver must be non-null too, since identity
+     * hash code of null is 0 rather than NullPointerException
+     */
+    private boolean isIdentityHashCode(ResolvedJavaMethod target, int opcode) {
+        if (opcode == Bytecode.INVOKESPECIAL) {
+            return true;
+        }
+        if (opcode != Bytecode.INVOKEVIRTUAL) {
+            return false;
+        }
+        StaticType receiver = StaticType.of(state.getStack(state.getStackSize() - 1));
+        if (receiver == null || !receiver.isExact() || !receiver.isNonNull()) {
+            return false;
+        }
+        ResolvedJavaMethod impl = receiver.getType().resolveConcreteMethod(target, method.getDeclaringClass());
+        return target.equals(impl);
+    }
+
+    /**
+     * System.arraycopy is intrinsified when both arrays are known to have the same element
+     * kind, checks that operands prove are dropped
+     */
+    private boolean arraycopy() {
+        int top = state.getStackSize();
+        HirInstr src = state.getStack(top - 5);
+        HirInstr srcPos = state.getStack(top - 4);
+        HirInstr dst = state.getStack(top - 3);
+        HirInstr dstPos = state.getStack(top - 2);
+        HirInstr length = state.getStack(top - 1);
+        StaticType srcType = StaticType.of(src);
+        StaticType dstType = StaticType.of(dst);
+        if (srcType == null || dstType == null || !srcType.getType().isArray() || !dstType.getType().isArray()) {
+            return false;
+        }
+        ResolvedJavaType srcElement = srcType.getType().getComponentType();
+        ResolvedJavaType dstElement = dstType.getType().getComponentType();
+        JavaKind elementType = srcElement.getJavaKind();
+        if (elementType != dstElement.getJavaKind()) {
+            return false;
+        }
+
+        int flags = 0;
+        if (!srcType.isNonNull()) {
+            flags |= ArrayCopyInstr.SRC_NULL_CHECK;
+        }
+        if (!dstType.isNonNull()) {
+            flags |= ArrayCopyInstr.DST_NULL_CHECK;
+        }
+        Integer srcPosValue = intConstant(srcPos);
+        Integer dstPosValue = intConstant(dstPos);
+        Integer lengthValue = intConstant(length);
+        if (srcPosValue == null || srcPosValue < 0) {
+            flags |= ArrayCopyInstr.SRC_POS_POSITIVE_CHECK;
+        }
+        if (dstPosValue == null || dstPosValue < 0) {
+            flags |= ArrayCopyInstr.DST_POS_POSITIVE_CHECK;
+        }
+        if (lengthValue == null || lengthValue < 0) {
+            flags |= ArrayCopyInstr.LENGTH_POSITIVE_CHECK;
+        }
+        if (!isInRange(src, srcPosValue, lengthValue)) {
+            flags |= ArrayCopyInstr.SRC_RANGE_CHECK;
+        }
+        if (!isInRange(dst, dstPosValue, lengthValue)) {
+            flags |= ArrayCopyInstr.DST_RANGE_CHECK;
+        }
+        // Elements of the same array or of a subtype array always fit into exact destination
+        if (elementType == JavaKind.Object && src != dst &&
+                !(dstType.isExact() && dstElement.isAssignableFrom(srcElement))) {
+            flags |= ArrayCopyInstr.TYPE_CHECK;
+        }
+        // A fresh array is never the other one, neither are arrays of different exact types
+        boolean isDisjoint = src != dst && (isNewArray(src) || isNewArray(dst) ||
+                srcType.isExact() && dstType.isExact() && !srcType.getType().equals(dstType.getType()));
+        if (!isDisjoint) {
+            flags |= ArrayCopyInstr.OVERLAPPING;
+        }
+
+        VmState stateBefore = state.copy();
+        for (int i = 0; i < 5; i++) {
+            state.unsafePop();
+        }
+        appendToBlock(new ArrayCopyInstr(stateBefore, src, srcPos, dst, dstPos, length, elementType, flags));
+        return true;
+    }
+
+    /**
+     * Arrays.copyOf and copyOfRange allocate an array of the same type, copyOfRange is only
+     * intrinsified for constant ranges, since a reversed range throws IllegalArgumentException
+     * rather than any exception of arraycopy. Length of the original array is read before the
+     * copy checks anything, so it must be known non-null
+     */
+    private boolean arraysCopyOf(ResolvedJavaMethod target, boolean isRange) {
+        Signature sig = target.getSignature();
+        int argc = sig.getParameterCount(false);
+        if (argc != (isRange ? 3 : 2)) {
+            return false;
+        }
+        int top = state.getStackSize();
+        HirInstr original = state.getStack(top - argc);
+        StaticType type = StaticType.of(original);
+        if (type == null || !type.getType().isArray() || !type.isExact() || !type.isNonNull()) {
+            return false;
+        }
+        ResolvedJavaType element = type.getType().getComponentType();
+        int flags = ArrayCopyInstr.DST_UNINITIALIZED;
+        Integer from = 0;
+        HirInstr newLength;
+        if (isRange) {
+            from = intConstant(state.getStack(top - 2));
+            Integer to = intConstant(state.getStack(top - 1));
+            if (from == null || to == null || from < 0 || from > to) {
+                return false;
+            }
+            // Source is shorter than range start if copied length turns negative
+            flags |= ArrayCopyInstr.LENGTH_POSITIVE_CHECK;
+            newLength = appendToBlock(new ConstantInstr(JavaConstant.forInt(to - from)));
+        } else {
+            newLength = state.getStack(top - 1);
+        }
+
+        VmState stateBefore = state.copy();
+        for (int i = 0; i < argc; i++) {
+            state.unsafePop();
+        }
+        HirInstr copy = newArray(stateBefore, newLength, element);
+        HirInstr srcPos = appendToBlock(new ConstantInstr(JavaConstant.forInt(from)));
+        HirInstr available = appendToBlock(new ArrayLenInstr(original));
+        if (from != 0) {
+            available = appendToBlock(new ArithmeticInstr(Bytecode.ISUB, available, srcPos));
+        }
+        HirInstr length = appendToBlock(new MathIntrinsicInstr(JavaKind.Int, MathIntrinsicInstr.Op.MIN,
+                new HirInstr[]{available, newLength}));
+        HirInstr dstPos = appendToBlock(new ConstantInstr(JavaConstant.INT_0));
+        appendToBlock(new ArrayCopyInstr(stateBefore, original, srcPos, copy, dstPos, length, element.getJavaKind(), flags));
+        state.push(JavaKind.Object, copy);
+        return true;
+    }
+
+    /**
+     * Clone of an array is a shallow copy of it, the array must be known non-null as well
+     */
+    private boolean arrayClone() {
+        HirInstr original = state.getStack(state.getStackSize() - 1);
+        StaticType type = StaticType.of(original);
+        if (type == null || !type.getType().isArray() || !type.isExact() || !type.isNonNull()) {
+            return false;
+        }
+        ResolvedJavaType element = type.getType().getComponentType();
+        int flags = ArrayCopyInstr.DST_UNINITIALIZED;
+        VmState stateBefore = state.copy();
+        popOperand(JavaKind.Object);
+        HirInstr length = appendToBlock(new ArrayLenInstr(original));
+        HirInstr copy = newArray(stateBefore, length, element);
+        HirInstr zero = appendToBlock(new ConstantInstr(JavaConstant.INT_0));
+        appendToBlock(new ArrayCopyInstr(stateBefore, original, zero, copy, zero, length, element.getJavaKind(), flags));
+        state.push(JavaKind.Object, copy);
+        return true;
+    }
+
+    private HirInstr newArray(VmState stateBefore, HirInstr length, ResolvedJavaType element) {
+        if (element.isPrimitive()) {
+            return appendToBlock(new NewTypeArrayInstr(stateBefore, length, element.getJavaKind()));
+        }
+        return appendToBlock(new NewObjectArrayInstr(stateBefore, length, element));
+    }
+
+    private static Integer intConstant(HirInstr instr) {
+        return instr instanceof ConstantInstr ? ((ConstantInstr) instr).getConstant().asInt() : null;
+    }
+
+    private static boolean isNewArray(HirInstr instr) {
+        return instr instanceof NewTypeArrayInstr || instr instanceof NewObjectArrayInstr || instr instanceof NewMultiArrayInstr;
+    }
+
+    /**
+     * Whether {@code [pos, pos+length)} is known to be within array
+     */
+    private static boolean isInRange(HirInstr array, Integer pos, Integer length) {
+        if (pos == null || length == null || pos < 0 || length < 0) {
+            return false;
+        }
+        HirInstr arrayLength = null;
+        if (array instanceof NewTypeArrayInstr) {
+            arrayLength = ((NewTypeArrayInstr) array).arrayLength();
+        } else if (array instanceof NewObjectArrayInstr) {
+            arrayLength = ((NewObjectArrayInstr) array).arrayLength();
+        }
+        Integer value = arrayLength == null ? null : intConstant(arrayLength);
+        return value != null && (long) pos + length <= value;
+    }
+
+    /**
+     * Dividing by a positive power of two rounds toward negative infinity when it's an
+     * arithmetic shift, the remainder is then the masked low bits
+     */
+    private boolean floorDivMod(boolean isDiv, JavaKind type) {
+        HirInstr divisor = state.getStack(state.getStackSize() - type.getSlotCount());
+        if (!(divisor instanceof ConstantInstr) || (type != JavaKind.Int && type != JavaKind.Long)) {
+            return false;
+        }
+        long y = type == JavaKind.Int ? ((ConstantInstr) divisor).getConstant().asInt() :
+                ((ConstantInstr) divisor).getConstant().asLong();
+        if (y <= 0 || Long.bitCount(y) != 1) {
+            return false;
+        }
+        popOperand(type);
+        HirInstr x = popOperand(type);
+        HirInstr instr;
+        if (isDiv) {
+            HirInstr shift = appendToBlock(new ConstantInstr(JavaConstant.forInt(Long.numberOfTrailingZeros(y))));
+            instr = new ShiftInstr(type == JavaKind.Int ? Bytecode.ISHR : Bytecode.LSHR, x, shift);
+        } else {
+            HirInstr mask = appendToBlock(new ConstantInstr(type == JavaKind.Int ?
+                    JavaConstant.forInt((int) y - 1) : JavaConstant.forLong(y - 1)));
+            instr = new LogicInstr(type == JavaKind.Int ? Bytecode.IAND : Bytecode.LAND, x, mask);
+        }
+        state.push(type, appendToBlock(instr));
+        return true;
+    }
+
     private void newInstance(int index) {
         VmState stateBefore = state.copy();
         JavaType klass = method.getConstantPool().lookupType(index, -1);
@@ -1104,7 +2474,7 @@ public class HirBuilder implements Phase {
 
     private void newTypeArray(int elementType) {
         VmState stateBefore = state.copy();
-        HirInstr len = state.pop(JavaKind.Int);
+        HirInstr len = popOperand(JavaKind.Int);
         JavaKind type = TypeUtil.fromBasicType(elementType);
         NewTypeArrayInstr instr = new NewTypeArrayInstr(stateBefore, len, type);
         state.push(JavaKind.Object, appendToBlock(instr));
@@ -1112,7 +2482,7 @@ public class HirBuilder implements Phase {
 
     private void newObjectArray(int index) {
         VmState stateBefore = state.copy();
-        HirInstr len = state.pop(JavaKind.Int);
+        HirInstr len = popOperand(JavaKind.Int);
         JavaType klass = method.getConstantPool().lookupType(index, -1);
 
         NewObjectArrayInstr instr = new NewObjectArrayInstr(stateBefore, len, klass);
@@ -1120,14 +2490,14 @@ public class HirBuilder implements Phase {
     }
 
     private void arrayLength() {
-        HirInstr array = state.pop(JavaKind.Object);
+        HirInstr array = popOperand(JavaKind.Object);
         ArrayLenInstr instr = new ArrayLenInstr(array);
         state.push(JavaKind.Int, appendToBlock(instr));
     }
 
     private void athrow() {
         VmState stateBefore = state.copy();
-        HirInstr exception = state.pop(JavaKind.Object);
+        HirInstr exception = popOperand(JavaKind.Object);
         ThrowInstr instr = new ThrowInstr(stateBefore, new ArrayList<>(), exception);
         appendToBlock(instr);
     }
@@ -1135,7 +2505,17 @@ public class HirBuilder implements Phase {
     private void checkCast(int index) {
         VmState stateBefore = state.copy();
         JavaType klass = method.getConstantPool().lookupType(index, -1);
-        HirInstr object = state.pop(JavaKind.Object);
+        HirInstr object = popOperand(JavaKind.Object);
+        // Null passes any cast
+        boolean isNull = object instanceof ConstantInstr && ((ConstantInstr) object).getConstant().isNull();
+        StaticType type = StaticType.of(object);
+        if (isNull || (type != null && klass instanceof ResolvedJavaType && type.isSubtypeOf((ResolvedJavaType) klass))) {
+            state.push(JavaKind.Object, object);
+            return;
+        }
+        if (!(klass instanceof HotSpotResolvedJavaType)) {
+            CompilerErrors.bailOut("Unresolved klass of checkcast");
+        }
         CheckCastInstr instr = new CheckCastInstr(stateBefore, klass, object);
         state.push(JavaKind.Object, appendToBlock(instr));
     }
@@ -1143,36 +2523,76 @@ public class HirBuilder implements Phase {
     private void instanceOf(int index) {
         VmState stateBefore = state.copy();
         JavaType klass = method.getConstantPool().lookupType(index, -1);
-        HirInstr object = state.pop(JavaKind.Object);
+        if (!(klass instanceof HotSpotResolvedJavaType)) {
+            CompilerErrors.bailOut("Unresolved klass of instanceof");
+        }
+        HirInstr object = popOperand(JavaKind.Object);
         InstanceOfInstr instr = new InstanceOfInstr(stateBefore, (HotSpotResolvedJavaType) klass, object);
         state.push(JavaKind.Int, appendToBlock(instr));
     }
 
     private void monitorEnter() {
-        HirInstr lockObj = state.pop(JavaKind.Object);
-        VmState stateBefore = state.copy(); // save state before locking(but after pop element) in case of deopt after a nullptr exception
+        HirInstr lockObj = popOperand(JavaKind.Object);
+        int lockIndex = state.getLockSize();
         HirInstr lock = state.lock(lockObj);
-        MonitorEnterInstr instr = new MonitorEnterInstr(lock, stateBefore);
+        // Runtime finds the object in its BasicLock when locking is contended, so the lock
+        // is already described by the state
+        MonitorEnterInstr instr = new MonitorEnterInstr(lock, lockIndex, state.copy());
         appendToBlock(instr);
     }
 
     private void monitorExit() {
-        HirInstr lock = state.unlock();
-        MonitorExitInstr instr = new MonitorExitInstr(lock);
+        HirInstr object = popOperand(JavaKind.Object);
+        state.unlock();
+        MonitorExitInstr instr = new MonitorExitInstr(object, state.getLockSize());
         appendToBlock(instr);
     }
 
+    /**
+     * Synchronized method locks its receiver or class mirror before the first bytecode, which
+     * is the outermost lock of method, deoptimizing there resumes at the synchronization entry
+     */
+    private void lockSyncMethod() {
+        HirInstr object;
+        if (method.isStatic()) {
+            object = appendToBlock(new ConstantInstr(YarrowRuntime.constReflection.asJavaClass(method.getDeclaringClass())));
+        } else {
+            object = state.get(0);
+        }
+        state.lock(object);
+        VmState stateAfter = state.copy();
+        stateAfter.setBci(BytecodeFrame.BEFORE_BCI);
+        appendToBlock(new MonitorEnterInstr(object, 0, stateAfter));
+    }
+
     private void multiNewArray(BytecodeStream.MultiNewArray mna) {
         VmState stateBefore = state.copy();
         JavaType klass = method.getConstantPool().lookupType(mna.getConstPoolIndex(), -1);
         int dimension = mna.getDimension();
         HirInstr[] dimenInstr = new HirInstr[dimension];
         for (int i = dimension - 1; i >= 0; i--) {
-            HirInstr di = state.pop(JavaKind.Int);
+            HirInstr di = popOperand(JavaKind.Int);
             dimenInstr[i] = di;
         }
 
         NewMultiArrayInstr instr = new NewMultiArrayInstr(stateBefore, klass, dimenInstr);
         state.push(JavaKind.Object, appendToBlock(instr));
     }
+
+    /**
+     * Appends to a StringBuilder in current block, from its constructor call on
+     */
+    private static class StringBuilderChain {
+        private final CallInstr init;
+        // Capacity argument is inserted after this one
+        private final HirInstr beforeInit;
+        // Estimated length of the final string
+        private int capacity;
+        private boolean isPresized;
+
+        StringBuilderChain(CallInstr init, HirInstr beforeInit) {
+            this.init = init;
+            this.beforeInit = beforeInit;
+        }
+    }
 }
\ No newline at end of file
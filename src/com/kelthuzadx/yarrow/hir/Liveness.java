@@ -0,0 +1,217 @@
+package com.kelthuzadx.yarrow.hir;
+
+import com.kelthuzadx.yarrow.bytecode.BytecodeIndex;
+import com.kelthuzadx.yarrow.bytecode.BytecodeStream;
+import com.kelthuzadx.yarrow.hir.instr.BlockStartInstr;
+
+import java.util.BitSet;
+
+import static com.kelthuzadx.yarrow.bytecode.Bytecode.*;
+
+/**
+ * Backward liveness analysis of local variables over bytecode basic blocks. Only
+ * local slots are tracked, operand stack slots are always considered live.
+ * <p>
+ * A local is live at some bci if there is a path from that bci to a load of the
+ * local without an intervening store. Exception edges are handled conservatively:
+ * everything live at a catch entry is live everywhere in the covered block.
+ *
+ * @author kelthuzadx
+ */
+public class Liveness {
+    // Kinds of local variable access
+    private static final int NONE = 0;
+    private static final int LOAD = 1;
+    private static final int STORE = 2;
+    private static final int LOAD_STORE = 3;
+
+    private final BytecodeIndex code;
+    private final int maxLocals;
+    private final BlockStartInstr[] blocks;
+    // Indexed by block id
+    private final BitSet[] gen;
+    private final BitSet[] kill;
+    private final BitSet[] liveIn;
+    private final BitSet[] liveOut;
+    private final BitSet[] exLive;
+
+    public Liveness(BytecodeIndex code, int maxLocals, BlockStartInstr[] blocks, int numOfBlocks) {
+        this.code = code;
+        this.maxLocals = maxLocals;
+        this.blocks = blocks;
+        this.gen = new BitSet[numOfBlocks];
+        this.kill = new BitSet[numOfBlocks];
+        this.liveIn = new BitSet[numOfBlocks];
+        this.liveOut = new BitSet[numOfBlocks];
+        this.exLive = new BitSet[numOfBlocks];
+    }
+
+    public Liveness compute() {
+        for (BlockStartInstr block : blocks) {
+            int id = block.getBlockId();
+            gen[id] = new BitSet(maxLocals);
+            kill[id] = new BitSet(maxLocals);
+            liveIn[id] = new BitSet(maxLocals);
+            liveOut[id] = new BitSet(maxLocals);
+            exLive[id] = new BitSet(maxLocals);
+            computeLocalSets(block);
+        }
+
+        // Iterate to fixed point, visiting blocks in reverse bytecode order makes
+        // most of information flow in a single pass
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int k = blocks.length - 1; k >= 0; k--) {
+                BlockStartInstr block = blocks[k];
+                int id = block.getBlockId();
+                BitSet out = new BitSet(maxLocals);
+                BitSet ex = new BitSet(maxLocals);
+                for (BlockStartInstr succ : block.getSuccessor()) {
+                    if (succ.getFlag() == BlockFlag.CatchEntry) {
+                        ex.or(liveIn[succ.getBlockId()]);
+                    } else {
+                        out.or(liveIn[succ.getBlockId()]);
+                    }
+                }
+                BitSet in = (BitSet) out.clone();
+                in.andNot(kill[id]);
+                in.or(gen[id]);
+                in.or(ex);
+
+                if (!in.equals(liveIn[id]) || !out.equals(liveOut[id])) {
+                    changed = true;
+                }
+                liveIn[id] = in;
+                liveOut[id] = out;
+                exLive[id] = ex;
+            }
+        }
+
+        for (BlockStartInstr block : blocks) {
+            block.setLiveIn(liveIn[block.getBlockId()]);
+        }
+        return this;
+    }
+
+    public BitSet getLiveIn(BlockStartInstr block) {
+        return liveIn[block.getBlockId()];
+    }
+
+    public BitSet getLiveOut(BlockStartInstr block) {
+        if (liveOut[block.getBlockId()] == null) {
+            // Synthesized blocks, e.g. method entry, are not covered by the analysis
+            return null;
+        }
+        BitSet out = (BitSet) liveOut[block.getBlockId()].clone();
+        out.or(exLive[block.getBlockId()]);
+        return out;
+    }
+
+    /**
+     * Compute liveness before every bytecode of given block by walking it backward
+     * from block's live out set.
+     *
+     * @param block basic block
+     * @return live locals indexed by {@code bci - block.getStartBci()}, entries of
+     * bci which are not the start of an instruction are null, so are all entries of
+     * synthesized blocks
+     */
+    public BitSet[] computeLiveBefore(BlockStartInstr block) {
+        if (liveOut[block.getBlockId()] == null) {
+            return new BitSet[]{null};
+        }
+        int start = block.getStartBci();
+        int length = block.getEndBci() - start + 1;
+        int[] bcis = new int[length];
+        int[] access = new int[length];
+        int[] locals = new int[length];
+        int count = 0;
+        BytecodeStream bs = new BytecodeStream(code, start, block.getEndBci());
+        while (bs.hasNext()) {
+            bcis[count] = bs.next();
+            access[count] = accessOf(bs.currentBytecode());
+            if (access[count] != NONE) {
+                locals[count] = localIndex(bs);
+            }
+            count++;
+        }
+
+        BitSet[] result = new BitSet[length];
+        BitSet live = getLiveOut(block);
+        BitSet ex = exLive[block.getBlockId()];
+        for (int k = count - 1; k >= 0; k--) {
+            switch (access[k]) {
+                case LOAD:
+                case LOAD_STORE:
+                    live.set(locals[k]);
+                    break;
+                case STORE:
+                    // Anything live at catch entry must survive until the start of block
+                    live.clear(locals[k]);
+                    live.or(ex);
+                    break;
+                default:
+                    break;
+            }
+            result[bcis[k] - start] = (BitSet) live.clone();
+        }
+        return result;
+    }
+
+    private void computeLocalSets(BlockStartInstr block) {
+        BitSet g = gen[block.getBlockId()];
+        BitSet k = kill[block.getBlockId()];
+        BytecodeStream bs = new BytecodeStream(code, block.getStartBci(), block.getEndBci());
+        while (bs.hasNext()) {
+            bs.next();
+            int access = accessOf(bs.currentBytecode());
+            if (access == NONE) {
+                continue;
+            }
+            int local = localIndex(bs);
+            switch (access) {
+                case LOAD:
+                    if (!k.get(local)) {
+                        g.set(local);
+                    }
+                    break;
+                case STORE:
+                    k.set(local);
+                    break;
+                case LOAD_STORE:
+                    if (!k.get(local)) {
+                        g.set(local);
+                    }
+                    k.set(local);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static int accessOf(int opcode) {
+        if ((opcode >= ILOAD && opcode <= ALOAD) || (opcode >= ILOAD_0 && opcode <= ALOAD_3) || opcode == RET) {
+            return LOAD;
+        }
+        if ((opcode >= ISTORE && opcode <= ASTORE) || (opcode >= ISTORE_0 && opcode <= ASTORE_3)) {
+            return STORE;
+        }
+        if (opcode == IINC) {
+            return LOAD_STORE;
+        }
+        return NONE;
+    }
+
+    private static int localIndex(BytecodeStream bs) {
+        int opcode = bs.currentBytecode();
+        if (opcode >= ILOAD_0 && opcode <= ALOAD_3) {
+            return (opcode - ILOAD_0) % 4;
+        }
+        if (opcode >= ISTORE_0 && opcode <= ASTORE_3) {
+            return (opcode - ISTORE_0) % 4;
+        }
+        return bs.getBytecodeData();
+    }
+}
@@ -0,0 +1,148 @@
+package com.kelthuzadx.yarrow.hir;
+
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.hir.instr.*;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.JavaType;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * Type of a reference value that is known at compile time. An exact type means the value is
+ * an instance of that type itself rather than of its subtypes, otherwise the value is an
+ * instance of the type or one of its subtypes.
+ * <p>
+ * Declared types of interfaces are not trusted, because bytecode verifier treats them as
+ * java.lang.Object. Values of any type might be null unless they are known non-null.
+ *
+ * @author kelthuzadx
+ */
+public class StaticType {
+    private final ResolvedJavaType type;
+    private final boolean isExact;
+    private final boolean isNonNull;
+
+    private StaticType(ResolvedJavaType type, boolean isExact, boolean isNonNull) {
+        this.type = type;
+        // A leaf type has no subtype, so it's exact anyway
+        this.isExact = isExact || isLeaf(type);
+        this.isNonNull = isNonNull;
+    }
+
+    /**
+     * Compute static type of given value
+     *
+     * @param instr reference value
+     * @return static type, or null if nothing is known about it
+     */
+    public static StaticType of(HirInstr instr) {
+        if (instr instanceof NewInstr) {
+            return exact(((NewInstr) instr).getKlass());
+        } else if (instr instanceof NewObjectArrayInstr) {
+            JavaType klass = ((NewObjectArrayInstr) instr).getKlass();
+            return klass instanceof ResolvedJavaType ? exact(((ResolvedJavaType) klass).getArrayClass()) : null;
+        } else if (instr instanceof NewTypeArrayInstr) {
+            JavaKind elemType = ((NewTypeArrayInstr) instr).getElemementType();
+            return exact(YarrowRuntime.metaAccess.lookupJavaType(elemType.toJavaClass()).getArrayClass());
+        } else if (instr instanceof NewMultiArrayInstr) {
+            return exact(((NewMultiArrayInstr) instr).getKlass());
+        } else if (instr instanceof ConstantInstr) {
+            JavaConstant c = ((ConstantInstr) instr).getConstant();
+            if (c.getJavaKind() != JavaKind.Object || c.isNull()) {
+                return null;
+            }
+            return exact(YarrowRuntime.metaAccess.lookupJavaType(c));
+        } else if (instr instanceof CheckCastInstr) {
+            return declared(((CheckCastInstr) instr).getKlass());
+        } else if (instr instanceof ParamInstr) {
+            var param = (ParamInstr) instr;
+            ResolvedJavaMethod method = param.getMethod();
+            if (param.isReceiver()) {
+                return new StaticType(method.getDeclaringClass(), false, true);
+            }
+            int index = method.hasReceiver() ? param.getIndex() - 1 : param.getIndex();
+            return declared(method.getSignature().getParameterType(index, method.getDeclaringClass()));
+        } else if (instr instanceof LoadFieldInstr) {
+            return declared(((LoadFieldInstr) instr).getField().getType());
+        } else if (instr instanceof LoadIndexInstr) {
+            StaticType array = of(((LoadIndexInstr) instr).getArray());
+            if (array == null || !array.type.isArray()) {
+                return null;
+            }
+            return declared(array.type.getComponentType());
+        }
+        return null;
+    }
+
+    private static StaticType exact(JavaType type) {
+        if (!(type instanceof ResolvedJavaType)) {
+            return null;
+        }
+        return new StaticType((ResolvedJavaType) type, true, true);
+    }
+
+    private static StaticType declared(JavaType type) {
+        if (!(type instanceof ResolvedJavaType) || isInterface((ResolvedJavaType) type)) {
+            return null;
+        }
+        return new StaticType((ResolvedJavaType) type, false, false);
+    }
+
+    private static boolean isInterface(ResolvedJavaType type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isInterface();
+    }
+
+    public static boolean isLeaf(ResolvedJavaType type) {
+        if (type.isArray()) {
+            ResolvedJavaType elem = type.getComponentType();
+            return elem.isPrimitive() || isLeaf(elem);
+        }
+        return !type.isInterface() && type.isFinalFlagSet();
+    }
+
+    public ResolvedJavaType getType() {
+        return type;
+    }
+
+    public boolean isExact() {
+        return isExact;
+    }
+
+    public boolean isNonNull() {
+        return isNonNull;
+    }
+
+    /**
+     * Whether the value is always an instance of given type
+     */
+    public boolean isSubtypeOf(ResolvedJavaType other) {
+        return other.isAssignableFrom(type);
+    }
+
+    /**
+     * Whether the value is never an instance of given type
+     */
+    public boolean isDisjointFrom(ResolvedJavaType other) {
+        if (isSubtypeOf(other)) {
+            return false;
+        }
+        if (isExact) {
+            return true;
+        }
+        // Subclasses of two unrelated classes are unrelated as well, while a subclass may
+        // implement any interface
+        if (isInterface(other) || type.isAssignableFrom(other)) {
+            return false;
+        }
+        return !type.isArray() && !other.isArray();
+    }
+
+    @Override
+    public String toString() {
+        return (isNonNull ? "non-null " : "") + (isExact ? "exact " : "") + type.toJavaName();
+    }
+}
@@ -7,25 +7,95 @@ import com.kelthuzadx.yarrow.hir.instr.ParamInstr;
 import com.kelthuzadx.yarrow.hir.instr.PhiInstr;
 import jdk.vm.ci.meta.JavaKind;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-import java.util.Stack;
+import java.util.BitSet;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+/**
+ * Abstract interpreter state, i.e. operand stack, local variables and locked objects.
+ * <p>
+ * Almost every state instruction captures a copy of current state, so copying must be
+ * cheap. {@link #copy()} is O(1), both the original state and the copy share underlying
+ * arrays, a component is duplicated only when either side writes to it afterwards. Dead
+ * local variables are masked out lazily in the same way.
+ *
+ * @author kelthuzadx
+ */
 @SuppressWarnings("unused")
 public class VmState {
     private final int maxStackSize;
-    private Stack<HirInstr> stack;
+    // Bytecode index this state belongs to
+    private int bci;
+    private HirInstr[] stack;
+    private int stackSize;
     private HirInstr[] local;
-    private List<HirInstr> lock;
+    private HirInstr[] lock;
+    private int lockSize;
+    // Live local variables, null if all of them are live. Never mutated once set
+    private BitSet liveLocals;
+    // Whether corresponding array is shared with other states
+    private boolean stackShared;
+    private boolean localShared;
+    private boolean lockShared;
 
     public VmState(int maxStackSize, int localSize) {
-        stack = new Stack<>();
-        stack.ensureCapacity(maxStackSize);
-        local = new HirInstr[localSize];
-        lock = new ArrayList<>();
         this.maxStackSize = maxStackSize;
+        this.bci = 0;
+        this.stack = new HirInstr[maxStackSize];
+        this.stackSize = 0;
+        this.local = new HirInstr[localSize];
+        this.lock = new HirInstr[0];
+        this.lockSize = 0;
+        this.liveLocals = null;
+    }
+
+    private VmState(VmState from) {
+        this.maxStackSize = from.maxStackSize;
+        this.bci = from.bci;
+        this.stack = from.stack;
+        this.stackSize = from.stackSize;
+        this.local = from.local;
+        this.lock = from.lock;
+        this.lockSize = from.lockSize;
+        this.liveLocals = from.liveLocals;
+        this.stackShared = this.localShared = this.lockShared = true;
+    }
+
+    private void writableStack() {
+        if (stackShared) {
+            stack = stack.clone();
+            stackShared = false;
+        }
+    }
+
+    private void writableLocal() {
+        if (localShared || liveLocals != null) {
+            HirInstr[] newLocal = new HirInstr[local.length];
+            for (int i = 0; i < local.length; i++) {
+                newLocal[i] = get(i);
+            }
+            local = newLocal;
+            liveLocals = null;
+            localShared = false;
+        }
+    }
+
+    private void writableLock() {
+        if (lockShared) {
+            lock = Arrays.copyOf(lock, lockSize + 1);
+            lockShared = false;
+        } else if (lockSize == lock.length) {
+            lock = Arrays.copyOf(lock, lockSize + 1);
+        }
+    }
+
+    public int getBci() {
+        return bci;
+    }
+
+    public void setBci(int bci) {
+        this.bci = bci;
     }
 
     public void push(JavaKind type, HirInstr instr) {
@@ -34,18 +104,18 @@ public class VmState {
             case Int:
             case Float:
             case Object:
-                if (stack.size() + 1 > maxStackSize) {
+                if (stackSize + 1 > maxStackSize) {
                     throw new YarrowError("stack excess maximum capacity");
                 }
-                stack.push(instr);
+                unsafePush(instr);
                 break;
             case Long:
             case Double:
-                if (stack.size() + 2 > maxStackSize) {
+                if (stackSize + 2 > maxStackSize) {
                     throw new YarrowError("stack excess maximum capacity");
                 }
-                stack.push(instr);
-                stack.push(null);
+                unsafePush(instr);
+                unsafePush(null);
                 break;
             default:
                 YarrowError.shouldNotReachHere();
@@ -54,11 +124,13 @@ public class VmState {
     }
 
     public void unsafePush(HirInstr instr) {
-        stack.push(instr);
+        writableStack();
+        stack[stackSize++] = instr;
     }
 
     public HirInstr unsafePop() {
-        return stack.pop();
+        // Popped slot is left as it is, other states may still see it
+        return stack[--stackSize];
     }
 
     public HirInstr pop(JavaKind type) {
@@ -66,17 +138,17 @@ public class VmState {
             case Int:
             case Float:
             case Object: {
-                var val = stack.pop();
+                var val = unsafePop();
                 YarrowError.guarantee(val.isType(type), "type mismatch");
                 return val;
             }
             case Long:
             case Double: {
-                HirInstr placeholder = stack.pop();
+                HirInstr placeholder = unsafePop();
                 if (placeholder != null) {
                     throw new YarrowError("Must be null slot");
                 }
-                var val = stack.pop();
+                var val = unsafePop();
                 YarrowError.guarantee(val.isType(type), "type mismatch");
                 return val;
             }
@@ -87,18 +159,22 @@ public class VmState {
     }
 
     public int getStackSize() {
-        return stack.size();
+        return stackSize;
     }
 
-    public Stack<HirInstr> getStack() {
-        return stack;
+    public HirInstr getStack(int index) {
+        return stack[index];
     }
 
     public void set(int index, HirInstr instr) {
+        writableLocal();
         local[index] = instr;
     }
 
     public HirInstr get(int index) {
+        if (liveLocals != null && !liveLocals.get(index)) {
+            return null;
+        }
         return local[index];
     }
 
@@ -106,51 +182,69 @@ public class VmState {
         return local.length;
     }
 
-    public HirInstr lock(HirInstr object) {
-        lock.add(object);
-        return lock.get(lock.size() - 1);
+    /**
+     * Forget values of local variables that would never be read again
+     *
+     * @param liveLocals live local variables, caller should not modify it later
+     */
+    public void clearDeadLocals(BitSet liveLocals) {
+        if (this.liveLocals == null) {
+            this.liveLocals = liveLocals;
+        } else if (this.liveLocals != liveLocals) {
+            BitSet both = (BitSet) this.liveLocals.clone();
+            both.and(liveLocals);
+            this.liveLocals = both;
+        }
     }
 
-    public HirInstr unlock() {
-        HirInstr object = lock.get(lock.size() - 1);
-        lock.remove(lock.size() - 1);
+    public HirInstr lock(HirInstr object) {
+        writableLock();
+        lock[lockSize++] = object;
         return object;
     }
 
-    public int getLockSize() {
-        return lock.size();
+    public HirInstr unlock() {
+        return lock[--lockSize];
     }
 
-    public List<HirInstr> getLock() {
-        return lock;
+    public int getLockSize() {
+        return lockSize;
     }
 
-    public HirInstr[] getLocal() {
-        return local;
+    public HirInstr getLock(int index) {
+        return lock[index];
     }
 
     public VmState copy() {
-        VmState newState = new VmState(this.maxStackSize, this.local.length);
-        newState.stack.addAll(this.stack);
-        System.arraycopy(this.local, 0, newState.local, 0, newState.local.length);
-        newState.lock.addAll(this.lock);
-        return newState;
+        stackShared = localShared = lockShared = true;
+        return new VmState(this);
     }
 
     public void createPhiForStack(BlockStartInstr block, int index) {
-        PhiInstr phi = new PhiInstr(stack.elementAt(index).type(), -index - 1, block);
-        stack.set(index, phi);
+        PhiInstr phi = new PhiInstr(stack[index].type(), -index - 1, block);
+        writableStack();
+        stack[index] = phi;
+    }
+
+    public void createPhiForLock(BlockStartInstr block, int index) {
+        PhiInstr phi = new PhiInstr(JavaKind.Object, index, block, true);
+        writableLock();
+        lock[index] = phi;
     }
 
     public void createPhiForLocal(BlockStartInstr block, int index) {
-        PhiInstr phi = new PhiInstr(local[index].type(), index, block);
-        local[index] = phi;
+        PhiInstr phi = new PhiInstr(get(index).type(), index, block);
+        set(index, phi);
     }
 
     @Override
     public String toString() {
-        String sk = stack.stream().map(instr -> "i" + instr.id()).collect(Collectors.joining(","));
-        String lc = Arrays.stream(local).map(instr -> {
+        String sk = IntStream.range(0, stackSize).mapToObj(i -> {
+            HirInstr instr = stack[i];
+            return instr == null ? "null" : "i" + instr.id();
+        }).collect(Collectors.joining(","));
+        String lc = IntStream.range(0, local.length).mapToObj(i -> {
+            HirInstr instr = get(i);
             if (instr == null) {
                 return null;
             }
@@ -160,9 +254,13 @@ public class VmState {
                 return "i" + instr.id();
             }
         }).collect(Collectors.joining(","));
-        String lx = lock.stream().map(instr -> instr == null ? "null" : "i" + instr.id()).collect(Collectors.joining(","));
+        String lx = IntStream.range(0, lockSize).mapToObj(i -> {
+            HirInstr instr = lock[i];
+            return instr == null ? "null" : "i" + instr.id();
+        }).collect(Collectors.joining(","));
         return "VmState{" +
-                "lock=[" + lx +
+                "bci=" + bci +
+                ",lock=[" + lx +
                 "],stack=[" + sk +
                 "],local=[" + lc +
                 "]}";
@@ -8,7 +8,8 @@ public abstract class AccessFieldInstr extends HirInstr {
     protected JavaField field;
 
     public AccessFieldInstr(HirInstr object, int offset, JavaField field) {
-        super(field.getJavaKind());
+        // Sub-int fields are ints once loaded
+        super(field.getJavaKind().getStackKind());
         this.object = object;
         this.offset = offset;
         this.field = field;
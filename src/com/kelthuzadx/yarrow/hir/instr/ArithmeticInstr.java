@@ -73,29 +73,14 @@ public class ArithmeticInstr extends Op2Instr {
             // and double, so I give up ;-0
         }
 
+        // x * 0 => 0, adding or subtracting zero would yield an existing instruction, which
+        // can not be returned here
         if (right instanceof ConstantInstr) {
-            if (left.isType(JavaKind.Int) && ((ConstantInstr) right).getConstant().asInt() == 0) {
-                int x = ((ConstantInstr) left).getConstant().asInt();
-                switch (opcode) {
-                    case Bytecode.IADD:
-                    case Bytecode.ISUB:
-                        return new ConstantInstr(JavaConstant.forInt(x));
-                    case Bytecode.IMUL:
-                        return new ConstantInstr(JavaConstant.INT_0);
-                    default:
-                        YarrowError.shouldNotReachHere();
-                }
-            } else if (left.isType(JavaKind.Long)) {
-                long x = ((ConstantInstr) left).getConstant().asLong();
-                switch (opcode) {
-                    case Bytecode.IADD:
-                    case Bytecode.ISUB:
-                        return new ConstantInstr(JavaConstant.forLong(x));
-                    case Bytecode.IMUL:
-                        return new ConstantInstr(JavaConstant.LONG_0);
-                    default:
-                        YarrowError.shouldNotReachHere();
-                }
+            JavaConstant c = ((ConstantInstr) right).getConstant();
+            if (opcode == Bytecode.IMUL && c.asInt() == 0) {
+                return new ConstantInstr(JavaConstant.INT_0);
+            } else if (opcode == Bytecode.LMUL && c.asLong() == 0) {
+                return new ConstantInstr(JavaConstant.LONG_0);
             }
         }
 
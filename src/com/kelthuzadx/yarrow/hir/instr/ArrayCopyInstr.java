@@ -0,0 +1,94 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.hir.VmState;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Copy elements between arrays of the same element kind, it's created for System.arraycopy,
+ * Arrays.copyOf and array clone. Checks that operands are not proven to pass are described
+ * by flags, compiled code deoptimizes if any of them fails and interpreter invokes the
+ * method again to throw the exception.
+ *
+ * @author kelthuzadx
+ */
+public class ArrayCopyInstr extends StateInstr {
+    public static final int SRC_NULL_CHECK = 1;
+    public static final int DST_NULL_CHECK = 1 << 1;
+    public static final int SRC_POS_POSITIVE_CHECK = 1 << 2;
+    public static final int DST_POS_POSITIVE_CHECK = 1 << 3;
+    public static final int LENGTH_POSITIVE_CHECK = 1 << 4;
+    public static final int SRC_RANGE_CHECK = 1 << 5;
+    public static final int DST_RANGE_CHECK = 1 << 6;
+    // Elements must be checked against element klass of destination one by one
+    public static final int TYPE_CHECK = 1 << 7;
+    // Source and destination might be the same array
+    public static final int OVERLAPPING = 1 << 8;
+    // Destination is allocated right before copying, its elements are all null or zero
+    public static final int DST_UNINITIALIZED = 1 << 9;
+
+    private HirInstr src;
+    private HirInstr srcPos;
+    private HirInstr dst;
+    private HirInstr dstPos;
+    private HirInstr length;
+    private JavaKind elementType;
+    private int flags;
+
+    public ArrayCopyInstr(VmState stateBefore, HirInstr src, HirInstr srcPos, HirInstr dst, HirInstr dstPos,
+                          HirInstr length, JavaKind elementType, int flags) {
+        super(JavaKind.Illegal, stateBefore);
+        this.src = src;
+        this.srcPos = srcPos;
+        this.dst = dst;
+        this.dstPos = dstPos;
+        this.length = length;
+        this.elementType = elementType;
+        this.flags = flags;
+    }
+
+    public HirInstr getSrc() {
+        return src;
+    }
+
+    public HirInstr getSrcPos() {
+        return srcPos;
+    }
+
+    public HirInstr getDst() {
+        return dst;
+    }
+
+    public HirInstr getDstPos() {
+        return dstPos;
+    }
+
+    public HirInstr getLength() {
+        return length;
+    }
+
+    public JavaKind getElementType() {
+        return elementType;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * Whether any check is needed at runtime, copying can not fail otherwise
+     */
+    public boolean needsChecks() {
+        return (flags & ~(OVERLAPPING | DST_UNINITIALIZED)) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: arraycopy i{}[i{}] -> i{}[i{}], i{} {} flags={}", super.id, src.id, srcPos.id,
+                dst.id, dstPos.id, length.id, elementType.getJavaName(), Integer.toBinaryString(flags));
+    }
+}
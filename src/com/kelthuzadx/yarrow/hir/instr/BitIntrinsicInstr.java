@@ -0,0 +1,120 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowError;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Bit manipulation of java.lang.Integer and java.lang.Long that is a single instruction on
+ * x86, e.g. Integer.bitCount is popcnt. Rotations are also matched from shift idioms like
+ * {@code (x << n) | (x >>> (32-n))}. Counting operations always produce an int, no matter
+ * what the kind of their operand is.
+ *
+ * @author kelthuzadx
+ */
+public class BitIntrinsicInstr extends HirInstr {
+    public enum Op {
+        BIT_COUNT, LEADING_ZEROS, TRAILING_ZEROS, ROTATE_LEFT, ROTATE_RIGHT, REVERSE_BYTES;
+
+        public boolean isRotate() {
+            return this == ROTATE_LEFT || this == ROTATE_RIGHT;
+        }
+    }
+
+    private Op op;
+    private HirInstr[] args;
+
+    public BitIntrinsicInstr(JavaKind type, Op op, HirInstr[] args) {
+        super(type);
+        this.op = op;
+        this.args = args;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public HirInstr[] getArgs() {
+        return args;
+    }
+
+    /**
+     * Kind of the value whose bits are manipulated
+     */
+    public JavaKind getOperandKind() {
+        return args[0].type();
+    }
+
+    @Override
+    public HirInstr ideal() {
+        for (HirInstr arg : args) {
+            if (!(arg instanceof ConstantInstr)) {
+                return this;
+            }
+        }
+        JavaConstant x = ((ConstantInstr) args[0]).getConstant();
+        int distance = op.isRotate() ? ((ConstantInstr) args[1]).getConstant().asInt() : 0;
+        if (getOperandKind() == JavaKind.Int) {
+            int v = x.asInt();
+            switch (op) {
+                case BIT_COUNT:
+                    return new ConstantInstr(JavaConstant.forInt(Integer.bitCount(v)));
+                case LEADING_ZEROS:
+                    return new ConstantInstr(JavaConstant.forInt(Integer.numberOfLeadingZeros(v)));
+                case TRAILING_ZEROS:
+                    return new ConstantInstr(JavaConstant.forInt(Integer.numberOfTrailingZeros(v)));
+                case ROTATE_LEFT:
+                    return new ConstantInstr(JavaConstant.forInt(Integer.rotateLeft(v, distance)));
+                case ROTATE_RIGHT:
+                    return new ConstantInstr(JavaConstant.forInt(Integer.rotateRight(v, distance)));
+                case REVERSE_BYTES:
+                    return new ConstantInstr(JavaConstant.forInt(Integer.reverseBytes(v)));
+                default:
+                    YarrowError.shouldNotReachHere();
+            }
+        } else {
+            long v = x.asLong();
+            switch (op) {
+                case BIT_COUNT:
+                    return new ConstantInstr(JavaConstant.forInt(Long.bitCount(v)));
+                case LEADING_ZEROS:
+                    return new ConstantInstr(JavaConstant.forInt(Long.numberOfLeadingZeros(v)));
+                case TRAILING_ZEROS:
+                    return new ConstantInstr(JavaConstant.forInt(Long.numberOfTrailingZeros(v)));
+                case ROTATE_LEFT:
+                    return new ConstantInstr(JavaConstant.forLong(Long.rotateLeft(v, distance)));
+                case ROTATE_RIGHT:
+                    return new ConstantInstr(JavaConstant.forLong(Long.rotateRight(v, distance)));
+                case REVERSE_BYTES:
+                    return new ConstantInstr(JavaConstant.forLong(Long.reverseBytes(v)));
+                default:
+                    YarrowError.shouldNotReachHere();
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BitIntrinsicInstr)) return false;
+        var that = (BitIntrinsicInstr) o;
+        return op == that.op && type == that.type && Arrays.equals(args, that.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(op, type, Arrays.hashCode(args));
+    }
+
+    @Override
+    public String toString() {
+        String operands = Arrays.stream(args).map(a -> "i" + a.id).collect(Collectors.joining(","));
+        return Logger.format("i{}: {}({})", super.id, op.name().toLowerCase(), operands);
+    }
+}
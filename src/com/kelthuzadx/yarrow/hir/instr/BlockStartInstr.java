@@ -9,6 +9,7 @@ import jdk.vm.ci.meta.ExceptionHandler;
 import jdk.vm.ci.meta.JavaKind;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -23,6 +24,10 @@ public class BlockStartInstr extends StateInstr {
     private boolean loopHeader;
     private ExceptionHandler exHandler;
     private BlockFlag flag;
+    // Live local variables at the start of this block, null if it's unknown
+    private BitSet liveIn;
+    // Estimated execution count relative to one method invocation
+    private double frequency;
 
     // For instruction itself
     private BlockEndInstr blockEnd;
@@ -36,6 +41,7 @@ public class BlockStartInstr extends StateInstr {
         this.predecessor = new ArrayList<>();
         this.loopHeader = false;
         this.blockEnd = null;
+        this.frequency = 1;
     }
 
     public int getEndBci() {
@@ -98,6 +104,26 @@ public class BlockStartInstr extends StateInstr {
         this.flag = flag;
     }
 
+    public double getFrequency() {
+        return frequency;
+    }
+
+    public void setFrequency(double frequency) {
+        this.frequency = frequency;
+    }
+
+    public BitSet getLiveIn() {
+        return liveIn;
+    }
+
+    public void setLiveIn(BitSet liveIn) {
+        this.liveIn = liveIn;
+    }
+
+    private boolean isLive(int localIndex) {
+        return liveIn == null || liveIn.get(localIndex);
+    }
+
     public BlockEndInstr getBlockEnd() {
         return blockEnd;
     }
@@ -118,41 +144,50 @@ public class BlockStartInstr extends StateInstr {
     /**
      * If a block has more than one predecessor, PhiInstrc might be needed at
      * the beginning of this block. If I find different values of the same variable,
-     * I will merge existing VmState(this.getVmState()) and new VmState.
+     * I will merge existing VmState(this.getVmState()) and new VmState. Local
+     * variables that are dead at the start of this block are dropped, they
+     * neither need phis nor take part in type checking.
      *
      * @param newState state of one of predecessors
      */
     public void mergeVmState(VmState newState) {
         if (getVmState() == null) {
             VmState state = newState.copy();
+            if (liveIn != null) {
+                state.clearDeadLocals(liveIn);
+            }
             if (this.isLoopHeader()) {
                 for (int i = 0; i < state.getStackSize(); i++) {
-                    if (state.getStack().get(i) != null) {
+                    if (state.getStack(i) != null) {
                         state.createPhiForStack(this, i);
                     }
                 }
                 for (int i = 0; i < state.getLocalSize(); i++) {
-                    if (state.getLocal()[i] != null) {
+                    if (state.get(i) != null) {
                         state.createPhiForLocal(this, i);
                     }
                 }
+                // OSR entry brings the same locked objects as different values
+                for (int i = 0; i < state.getLockSize(); i++) {
+                    state.createPhiForLock(this, i);
+                }
             }
             setVmState(state);
         } else {
             Constraint.matchVmState(getVmState(), newState);
             if (this.isLoopHeader()) {
                 for (int i = 0; i < getVmState().getLocalSize(); i++) {
-                    if (getVmState().get(i) != null) {
-                        if (newState.getLocal()[i] == null ||
-                                !newState.getLocal()[i].isType(getVmState().get(i).type())) {
+                    if (getVmState().get(i) != null && isLive(i)) {
+                        if (newState.get(i) == null ||
+                                !newState.get(i).isType(getVmState().get(i).type())) {
                             CompilerErrors.bailOut();
                         }
                     }
                 }
             } else {
                 for (int i = 0; i < getVmState().getStackSize(); i++) {
-                    HirInstr val = newState.getStack().get(i);
-                    if (val != getVmState().getStack().get(i)) {
+                    HirInstr val = newState.getStack(i);
+                    if (val != getVmState().getStack(i)) {
                         if (val instanceof PhiInstr) {
                             if (((PhiInstr) val).getBlock() != this) {
                                 getVmState().createPhiForStack(this, i);
@@ -162,15 +197,23 @@ public class BlockStartInstr extends StateInstr {
                         }
                     }
                 }
+                for (int i = 0; i < getVmState().getLockSize(); i++) {
+                    HirInstr val = newState.getLock(i);
+                    if (val != getVmState().getLock(i)) {
+                        if (!(val instanceof PhiInstr) || ((PhiInstr) val).getBlock() != this) {
+                            getVmState().createPhiForLock(this, i);
+                        }
+                    }
+                }
                 for (int i = 0; i < getVmState().getLocalSize(); i++) {
-                    HirInstr val = newState.getLocal()[i];
-                    if (getVmState().getLocal()[i] != null) {
+                    HirInstr val = newState.get(i);
+                    if (getVmState().get(i) != null) {
                         // If val exists and two local variable types match
-                        if (val != null && val.isType(getVmState().getLocal()[i].type())) {
+                        if (val != null && val.isType(getVmState().get(i).type())) {
                             // if existing local variable is not PhiInstr OR
                             // if existing local variable is PhiInstr and it
                             // doesn't belong to this block
-                            if (val != newState.getLocal()[i]) {
+                            if (val != getVmState().get(i)) {
                                 if (val instanceof PhiInstr) {
                                     if (((PhiInstr) val).getBlock() != this) {
                                         getVmState().createPhiForLocal(this, i);
@@ -180,7 +223,7 @@ public class BlockStartInstr extends StateInstr {
                                 }
                             }
                         } else {
-                            getVmState().getLocal()[i] = null;
+                            getVmState().set(i, null);
                         }
                     }
                 }
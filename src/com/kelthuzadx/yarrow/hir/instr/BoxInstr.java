@@ -0,0 +1,46 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.bytecode.Bytecode;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * Box of primitive value created by valueOf, e.g. Integer.valueOf. Unboxing it again yields
+ * the primitive value directly. As long as nothing else uses the box as an object, it's never
+ * allocated, and deoptimization reallocates it from the primitive value if ever needed.
+ *
+ * @author kelthuzadx
+ */
+public class BoxInstr extends CallInstr {
+    private HirInstr value;
+    // Whether the box is used as an object, or lives beyond current block
+    private boolean isEscaped;
+
+    public BoxInstr(ResolvedJavaMethod valueOf, HirInstr value) {
+        super(JavaKind.Object, null, null, new HirInstr[]{value}, valueOf, valueOf.getSignature(), Bytecode.INVOKESTATIC);
+        this.value = value;
+    }
+
+    public HirInstr getValue() {
+        return value;
+    }
+
+    public ResolvedJavaType getBoxType() {
+        return ((ResolvedJavaMethod) getTarget()).getDeclaringClass();
+    }
+
+    public boolean isEscaped() {
+        return isEscaped;
+    }
+
+    public void markEscaped() {
+        isEscaped = true;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: box {} i{}", super.id, getBoxType().getUnqualifiedName(), value.id);
+    }
+}
@@ -14,15 +14,55 @@ public class CallInstr extends StateInstr {
     private JavaMethod target;
     private Signature signature;
     private int opcode;
+    // Receiver types seen by interpreter exceed what the profile could record
+    private boolean isMegamorphic;
 
     public CallInstr(JavaKind type, VmState stateBefore, HirInstr receiver, HirInstr[] args, JavaMethod target, Signature signature, int opcode) {
         super(type, stateBefore);
+        this.receiver = receiver;
         this.args = args;
         this.target = target;
         this.signature = signature;
         this.opcode = opcode;
     }
 
+    public HirInstr getReceiver() {
+        return receiver;
+    }
+
+    public HirInstr[] getArgs() {
+        return args;
+    }
+
+    public JavaMethod getTarget() {
+        return target;
+    }
+
+    public Signature getSignature() {
+        return signature;
+    }
+
+    public int getOpcode() {
+        return opcode;
+    }
+
+    /**
+     * Call another method of the same receiver with other arguments instead
+     */
+    public void rebind(JavaMethod target, HirInstr[] args) {
+        this.target = target;
+        this.signature = target.getSignature();
+        this.args = args;
+    }
+
+    public boolean isMegamorphic() {
+        return isMegamorphic;
+    }
+
+    public void setMegamorphic(boolean megamorphic) {
+        isMegamorphic = megamorphic;
+    }
+
     @Override
     public String toString() {
         return Logger.format("i{}: {} {}.{}", super.id, Bytecode.forName(opcode), target.getDeclaringClass().getUnqualifiedName(), target.getName());
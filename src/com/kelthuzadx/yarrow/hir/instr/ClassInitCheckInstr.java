@@ -0,0 +1,32 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.hir.VmState;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * Check that the class whose static field is accessed has been initialized, or is being
+ * initialized by current thread. It's only needed if the class was not initialized at compile
+ * time. Otherwise compiled code deoptimizes and interpreter initializes the class when it
+ * executes the access again.
+ *
+ * @author kelthuzadx
+ */
+public class ClassInitCheckInstr extends StateInstr {
+    private ResolvedJavaType klass;
+
+    public ClassInitCheckInstr(VmState stateBefore, ResolvedJavaType klass) {
+        super(JavaKind.Illegal, stateBefore);
+        this.klass = klass;
+    }
+
+    public ResolvedJavaType getKlass() {
+        return klass;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: class_init_check {}", super.id, klass.getUnqualifiedName());
+    }
+}
@@ -0,0 +1,31 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Thread.currentThread, i.e. java.lang.Thread object of current JavaThread. It never changes
+ * during a compiled method, so all of them are the same value.
+ *
+ * @author kelthuzadx
+ */
+public class CurrentThreadInstr extends HirInstr {
+    public CurrentThreadInstr() {
+        super(JavaKind.Object);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CurrentThreadInstr;
+    }
+
+    @Override
+    public int hashCode() {
+        return CurrentThreadInstr.class.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: current_thread", super.id);
+    }
+}
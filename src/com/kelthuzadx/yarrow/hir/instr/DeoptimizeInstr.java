@@ -0,0 +1,44 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.SpeculationLog;
+
+import java.util.ArrayList;
+
+/**
+ * Transfer control to interpreter, it ends a block without any successors
+ *
+ * @author kelthuzadx
+ */
+public class DeoptimizeInstr extends BlockEndInstr {
+    private DeoptimizationAction action;
+    private DeoptimizationReason reason;
+    private SpeculationLog.Speculation speculation;
+
+    public DeoptimizeInstr(DeoptimizationAction action, DeoptimizationReason reason, SpeculationLog.Speculation speculation) {
+        super(JavaKind.Illegal, null, new ArrayList<>());
+        this.action = action;
+        this.reason = reason;
+        this.speculation = speculation;
+    }
+
+    public DeoptimizationAction getAction() {
+        return action;
+    }
+
+    public DeoptimizationReason getReason() {
+        return reason;
+    }
+
+    public SpeculationLog.Speculation getSpeculation() {
+        return speculation;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: deoptimize {} {}", super.id, reason, action);
+    }
+}
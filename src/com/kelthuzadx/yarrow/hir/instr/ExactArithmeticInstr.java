@@ -0,0 +1,73 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.bytecode.Bytecode;
+import com.kelthuzadx.yarrow.hir.VmState;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaConstant;
+
+/**
+ * Math.addExact, subtractExact and multiplyExact. Compiled code never throws the overflow
+ * ArithmeticException itself, it deoptimizes and lets interpreter invoke the method again,
+ * so state before the invocation is recorded.
+ *
+ * @author kelthuzadx
+ */
+public class ExactArithmeticInstr extends StateInstr {
+    private int opcode;
+    private HirInstr left;
+    private HirInstr right;
+
+    public ExactArithmeticInstr(VmState stateBefore, int opcode, HirInstr left, HirInstr right) {
+        super(left.type(), stateBefore);
+        this.opcode = opcode;
+        this.left = left;
+        this.right = right;
+    }
+
+    public int getOpcode() {
+        return opcode;
+    }
+
+    public HirInstr getLeft() {
+        return left;
+    }
+
+    public HirInstr getRight() {
+        return right;
+    }
+
+    @Override
+    public HirInstr ideal() {
+        if (!(left instanceof ConstantInstr) || !(right instanceof ConstantInstr)) {
+            return this;
+        }
+        JavaConstant x = ((ConstantInstr) left).getConstant();
+        JavaConstant y = ((ConstantInstr) right).getConstant();
+        // Overflow is left as it is, it deoptimizes when reached
+        try {
+            switch (opcode) {
+                case Bytecode.IADD:
+                    return new ConstantInstr(JavaConstant.forInt(Math.addExact(x.asInt(), y.asInt())));
+                case Bytecode.ISUB:
+                    return new ConstantInstr(JavaConstant.forInt(Math.subtractExact(x.asInt(), y.asInt())));
+                case Bytecode.IMUL:
+                    return new ConstantInstr(JavaConstant.forInt(Math.multiplyExact(x.asInt(), y.asInt())));
+                case Bytecode.LADD:
+                    return new ConstantInstr(JavaConstant.forLong(Math.addExact(x.asLong(), y.asLong())));
+                case Bytecode.LSUB:
+                    return new ConstantInstr(JavaConstant.forLong(Math.subtractExact(x.asLong(), y.asLong())));
+                case Bytecode.LMUL:
+                    return new ConstantInstr(JavaConstant.forLong(Math.multiplyExact(x.asLong(), y.asLong())));
+                default:
+                    return this;
+            }
+        } catch (ArithmeticException e) {
+            return this;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: {}_exact i{},i{}", super.id, Bytecode.forName(opcode), left.id, right.id);
+    }
+}
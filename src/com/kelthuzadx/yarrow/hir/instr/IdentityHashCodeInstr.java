@@ -0,0 +1,30 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.hir.VmState;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * System.identityHashCode, or Object.hashCode that is not overridden. Hash installed in
+ * mark word is read directly, runtime computes and installs it for the first time. Like an
+ * invocation, it records the state after its argument was popped.
+ *
+ * @author kelthuzadx
+ */
+public class IdentityHashCodeInstr extends StateInstr {
+    private HirInstr object;
+
+    public IdentityHashCodeInstr(HirInstr object) {
+        super(JavaKind.Int, null);
+        this.object = object;
+    }
+
+    public HirInstr getObject() {
+        return object;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: identity_hash i{}", super.id, object.id);
+    }
+}
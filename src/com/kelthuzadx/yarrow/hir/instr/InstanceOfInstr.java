@@ -1,5 +1,6 @@
 package com.kelthuzadx.yarrow.hir.instr;
 
+import com.kelthuzadx.yarrow.hir.StaticType;
 import com.kelthuzadx.yarrow.hir.VmState;
 import com.kelthuzadx.yarrow.util.Logger;
 import jdk.vm.ci.hotspot.HotSpotResolvedJavaType;
@@ -29,6 +30,15 @@ public class InstanceOfInstr extends StateInstr {
         if (object instanceof ConstantInstr && ((ConstantInstr) object).getConstant().isNull()) {
             return new ConstantInstr(JavaConstant.INT_0);
         }
+        StaticType type = StaticType.of(object);
+        if (type != null) {
+            if (type.isNonNull() && type.isSubtypeOf(klass)) {
+                return new ConstantInstr(JavaConstant.INT_1);
+            }
+            if (type.isDisjointFrom(klass)) {
+                return new ConstantInstr(JavaConstant.INT_0);
+            }
+        }
         return this;
     }
 
@@ -0,0 +1,33 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Call to a function of VM that neither takes arguments nor touches Java heap, and never
+ * safepoints, e.g. reading clocks. Each call may return a different value, so it's never
+ * value numbered.
+ *
+ * @author kelthuzadx
+ */
+public class LeafCallInstr extends HirInstr {
+    public enum Function {
+        JavaTimeNanos, JavaTimeMillis
+    }
+
+    private Function function;
+
+    public LeafCallInstr(JavaKind type, Function function) {
+        super(type);
+        this.function = function;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: call_leaf {}", super.id, function);
+    }
+}
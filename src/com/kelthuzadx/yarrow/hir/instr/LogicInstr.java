@@ -62,34 +62,69 @@ public class LogicInstr extends Op2Instr {
             // and double, so I give up ;-0
         }
 
-        if (right instanceof ConstantInstr) {
-            if (left.isType(JavaKind.Int) && ((ConstantInstr) right).getConstant().asInt() == 0) {
-                int x = ((ConstantInstr) left).getConstant().asInt();
-                switch (opcode) {
-                    case Bytecode.IAND:
-                        return new ConstantInstr(JavaConstant.INT_0);
-                    case Bytecode.IOR:
-                        return new ConstantInstr(JavaConstant.forInt(x));
-                    default:
-                        YarrowError.shouldNotReachHere();
-                }
-            } else if (left.isType(JavaKind.Long)) {
-                long x = ((ConstantInstr) left).getConstant().asLong();
-                switch (opcode) {
-                    case Bytecode.IADD:
-                    case Bytecode.ISUB:
-                        return new ConstantInstr(JavaConstant.LONG_1);
-                    case Bytecode.IMUL:
-                        return new ConstantInstr(JavaConstant.forLong(x));
-                    default:
-                        YarrowError.shouldNotReachHere();
-                }
+        // x & 0 => 0, or and xor with zero would yield an existing instruction, which can
+        // not be returned here
+        if (right instanceof ConstantInstr && ((ConstantInstr) right).getConstant().isDefaultForKind()) {
+            if (opcode == Bytecode.IAND) {
+                return new ConstantInstr(JavaConstant.INT_0);
+            } else if (opcode == Bytecode.LAND) {
+                return new ConstantInstr(JavaConstant.LONG_0);
+            }
+        }
+
+        // (x << n) | (x >>> (32-n)) => rotate_left(x, n)
+        if (opcode == Bytecode.IOR || opcode == Bytecode.LOR) {
+            HirInstr rotate = matchRotate();
+            if (rotate != null) {
+                return rotate;
             }
         }
 
         return this;
     }
 
+    private HirInstr matchRotate() {
+        if (!(left instanceof ShiftInstr) || !(right instanceof ShiftInstr)) {
+            return null;
+        }
+        int shlOpcode = type == JavaKind.Int ? Bytecode.ISHL : Bytecode.LSHL;
+        int ushrOpcode = type == JavaKind.Int ? Bytecode.IUSHR : Bytecode.LUSHR;
+        var l = (ShiftInstr) left;
+        var r = (ShiftInstr) right;
+        ShiftInstr shl = l.getOpcode() == shlOpcode ? l : r.getOpcode() == shlOpcode ? r : null;
+        ShiftInstr ushr = l.getOpcode() == ushrOpcode ? l : r.getOpcode() == ushrOpcode ? r : null;
+        if (shl == null || ushr == null || shl.getLeft() != ushr.getLeft()) {
+            return null;
+        }
+        int bits = type == JavaKind.Int ? 32 : 64;
+        if (isComplement(shl.getRight(), ushr.getRight(), bits)) {
+            return new BitIntrinsicInstr(type, BitIntrinsicInstr.Op.ROTATE_LEFT, new HirInstr[]{shl.getLeft(), shl.getRight()});
+        } else if (isComplement(ushr.getRight(), shl.getRight(), bits)) {
+            return new BitIntrinsicInstr(type, BitIntrinsicInstr.Op.ROTATE_RIGHT, new HirInstr[]{ushr.getLeft(), ushr.getRight()});
+        }
+        return null;
+    }
+
+    /**
+     * Whether shifting by d2 is the same as shifting by bits-d1, shift distances are taken
+     * modulo bits
+     */
+    private static boolean isComplement(HirInstr d1, HirInstr d2, int bits) {
+        if (d1 instanceof ConstantInstr && d2 instanceof ConstantInstr) {
+            int sum = ((ConstantInstr) d1).getConstant().asInt() + ((ConstantInstr) d2).getConstant().asInt();
+            return (sum & (bits - 1)) == 0;
+        }
+        if (d2 instanceof NegateInstr) {
+            return ((NegateInstr) d2).getValue() == d1;
+        }
+        if (d2 instanceof ArithmeticInstr && ((ArithmeticInstr) d2).getOpcode() == Bytecode.ISUB) {
+            var sub = (ArithmeticInstr) d2;
+            return sub.getRight() == d1 && sub.getLeft() instanceof ConstantInstr &&
+                    (((ConstantInstr) sub.getLeft()).getConstant().asInt() & (bits - 1)) == 0;
+        }
+        return false;
+    }
+
     @Override
     public String toString() {
         String op = "";
@@ -0,0 +1,129 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowError;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Call to a side effect free method of java.lang.Math, it's computed by a few instructions
+ * or a leaf stub instead. Unlike CallInstr, it neither needs state nor kills memory.
+ *
+ * @author kelthuzadx
+ */
+public class MathIntrinsicInstr extends HirInstr {
+    public enum Op {
+        ABS, MIN, MAX, SQRT, FMA, SIN, COS, TAN, LOG, LOG10, EXP, POW;
+
+        /**
+         * Whether result is computed by a stub of VM rather than inline instructions
+         */
+        public boolean isTranscendental() {
+            return ordinal() >= SIN.ordinal();
+        }
+    }
+
+    private Op op;
+    private HirInstr[] args;
+
+    public MathIntrinsicInstr(JavaKind type, Op op, HirInstr[] args) {
+        super(type);
+        this.op = op;
+        this.args = args;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public HirInstr[] getArgs() {
+        return args;
+    }
+
+    @Override
+    public HirInstr ideal() {
+        // Results of transcendental stubs may differ from StrictMath, they are never folded
+        if (op.isTranscendental()) {
+            return this;
+        }
+        for (HirInstr arg : args) {
+            if (!(arg instanceof ConstantInstr)) {
+                return this;
+            }
+        }
+        JavaConstant x = ((ConstantInstr) args[0]).getConstant();
+        JavaConstant y = args.length > 1 ? ((ConstantInstr) args[1]).getConstant() : null;
+        switch (type) {
+            case Int:
+                return new ConstantInstr(JavaConstant.forInt(op == Op.ABS ? Math.abs(x.asInt()) :
+                        op == Op.MIN ? Math.min(x.asInt(), y.asInt()) : Math.max(x.asInt(), y.asInt())));
+            case Long:
+                return new ConstantInstr(JavaConstant.forLong(op == Op.ABS ? Math.abs(x.asLong()) :
+                        op == Op.MIN ? Math.min(x.asLong(), y.asLong()) : Math.max(x.asLong(), y.asLong())));
+            case Float:
+                return new ConstantInstr(JavaConstant.forFloat(fold(x.asFloat(), y == null ? 0 : y.asFloat())));
+            case Double:
+                return new ConstantInstr(JavaConstant.forDouble(fold(x.asDouble(), y == null ? 0 : y.asDouble())));
+            default:
+                YarrowError.shouldNotReachHere();
+        }
+        return this;
+    }
+
+    private float fold(float x, float y) {
+        switch (op) {
+            case ABS:
+                return Math.abs(x);
+            case MIN:
+                return Math.min(x, y);
+            case MAX:
+                return Math.max(x, y);
+            case FMA:
+                return Math.fma(x, y, ((ConstantInstr) args[2]).getConstant().asFloat());
+            default:
+                YarrowError.shouldNotReachHere();
+        }
+        return 0;
+    }
+
+    private double fold(double x, double y) {
+        switch (op) {
+            case ABS:
+                return Math.abs(x);
+            case MIN:
+                return Math.min(x, y);
+            case MAX:
+                return Math.max(x, y);
+            case SQRT:
+                return Math.sqrt(x);
+            case FMA:
+                return Math.fma(x, y, ((ConstantInstr) args[2]).getConstant().asDouble());
+            default:
+                YarrowError.shouldNotReachHere();
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MathIntrinsicInstr)) return false;
+        var that = (MathIntrinsicInstr) o;
+        return op == that.op && type == that.type && Arrays.equals(args, that.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(op, type, Arrays.hashCode(args));
+    }
+
+    @Override
+    public String toString() {
+        String operands = Arrays.stream(args).map(a -> "i" + a.id).collect(Collectors.joining(","));
+        return Logger.format("i{}: {}({})", super.id, op.name().toLowerCase(), operands);
+    }
+}
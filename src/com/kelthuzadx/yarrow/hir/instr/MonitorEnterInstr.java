@@ -6,10 +6,20 @@ import jdk.vm.ci.meta.JavaKind;
 
 public class MonitorEnterInstr extends StateInstr {
     private HirInstr lock;
+    private int lockIndex;
 
-    public MonitorEnterInstr(HirInstr lock, VmState stateBefore) {
-        super(JavaKind.Illegal, stateBefore);
+    public MonitorEnterInstr(HirInstr lock, int lockIndex, VmState stateAfter) {
+        super(JavaKind.Illegal, stateAfter);
         this.lock = lock;
+        this.lockIndex = lockIndex;
+    }
+
+    public HirInstr getLock() {
+        return lock;
+    }
+
+    public int getLockIndex() {
+        return lockIndex;
     }
 
     @Override
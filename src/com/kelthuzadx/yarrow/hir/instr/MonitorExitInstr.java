@@ -5,10 +5,20 @@ import jdk.vm.ci.meta.JavaKind;
 
 public class MonitorExitInstr extends StateInstr {
     private HirInstr lock;
+    private int lockIndex;
 
-    public MonitorExitInstr(HirInstr lock) {
+    public MonitorExitInstr(HirInstr lock, int lockIndex) {
         super(JavaKind.Illegal, null);
         this.lock = lock;
+        this.lockIndex = lockIndex;
+    }
+
+    public HirInstr getLock() {
+        return lock;
+    }
+
+    public int getLockIndex() {
+        return lockIndex;
     }
 
     @Override
@@ -0,0 +1,30 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.hir.VmState;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Explicit null check of an object which is dereferenced by an intrinsic. Compiled code
+ * deoptimizes if the object is null, interpreter then executes the original invocation
+ * again and throws NullPointerException.
+ *
+ * @author kelthuzadx
+ */
+public class NullCheckInstr extends StateInstr {
+    private HirInstr object;
+
+    public NullCheckInstr(VmState stateBefore, HirInstr object) {
+        super(JavaKind.Illegal, stateBefore);
+        this.object = object;
+    }
+
+    public HirInstr getObject() {
+        return object;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: null_check i{}", super.id, object.id);
+    }
+}
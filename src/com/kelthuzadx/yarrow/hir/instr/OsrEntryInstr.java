@@ -0,0 +1,21 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Address of OSR buffer, interpreter passes it to OSR entry of compiled code. The buffer
+ * holds locals and monitors of interpreter frame, see SharedRuntime::OSR_migration_begin.
+ *
+ * @author kelthuzadx
+ */
+public class OsrEntryInstr extends HirInstr {
+    public OsrEntryInstr() {
+        super(JavaKind.Long);
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: osr_buffer", super.id);
+    }
+}
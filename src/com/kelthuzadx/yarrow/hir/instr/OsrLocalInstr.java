@@ -0,0 +1,48 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Load a local variable or a locked object from OSR buffer. For a monitor, the displaced
+ * header right before the object is also moved into the BasicLock slot of compiled frame.
+ *
+ * @author kelthuzadx
+ */
+public class OsrLocalInstr extends HirInstr {
+    private HirInstr buffer;
+    private int offset;
+    // Locking depth if this is a locked object, otherwise -1
+    private int monitorIndex;
+
+    public OsrLocalInstr(JavaKind type, HirInstr buffer, int offset, int monitorIndex) {
+        super(type);
+        this.buffer = buffer;
+        this.offset = offset;
+        this.monitorIndex = monitorIndex;
+    }
+
+    public HirInstr getBuffer() {
+        return buffer;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getMonitorIndex() {
+        return monitorIndex;
+    }
+
+    public boolean isMonitor() {
+        return monitorIndex >= 0;
+    }
+
+    @Override
+    public String toString() {
+        if (isMonitor()) {
+            return Logger.format("i{}: osr_monitor[{}] i{}+{}", super.id, monitorIndex, buffer.id, offset);
+        }
+        return Logger.format("i{}: osr_local i{}+{}", super.id, buffer.id, offset);
+    }
+}
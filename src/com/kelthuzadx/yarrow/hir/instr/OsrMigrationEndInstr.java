@@ -0,0 +1,27 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Release OSR buffer once everything has been loaded from it
+ *
+ * @author kelthuzadx
+ */
+public class OsrMigrationEndInstr extends HirInstr {
+    private HirInstr buffer;
+
+    public OsrMigrationEndInstr(HirInstr buffer) {
+        super(JavaKind.Illegal);
+        this.buffer = buffer;
+    }
+
+    public HirInstr getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: osr_migration_end i{}", super.id, buffer.id);
+    }
+}
@@ -3,6 +3,7 @@ package com.kelthuzadx.yarrow.hir.instr;
 import com.kelthuzadx.yarrow.util.Logger;
 import jdk.vm.ci.meta.JavaKind;
 import jdk.vm.ci.meta.JavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
 
 public class ParamInstr extends HirInstr {
     private boolean isReceiver;
@@ -16,6 +17,18 @@ public class ParamInstr extends HirInstr {
         this.index = index;
     }
 
+    public boolean isReceiver() {
+        return isReceiver;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public ResolvedJavaMethod getMethod() {
+        return (ResolvedJavaMethod) method;
+    }
+
     @Override
     public String toString() {
         return Logger.format("i{}: param[{}]", super.id, isReceiver ? "this" : index);
@@ -10,24 +10,41 @@ import java.util.stream.IntStream;
 public class PhiInstr extends HirInstr {
     private int index; // negate number for stack, and positive number for local
     private BlockStartInstr block;
+    // Whether it merges locked objects, index is then the locking depth
+    private boolean isLock;
 
     public PhiInstr(JavaKind type, int index, BlockStartInstr block) {
+        this(type, index, block, false);
+    }
+
+    public PhiInstr(JavaKind type, int index, BlockStartInstr block, boolean isLock) {
         super(type);
         this.index = index;
         this.block = block;
+        this.isLock = isLock;
     }
 
     public BlockStartInstr getBlock() {
         return block;
     }
 
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isLock() {
+        return isLock;
+    }
+
     public HirInstr operand(int i) {
         VmState state = block.getPredecessor().get(i).getBlockEnd().getVmState();
         if (state != null) {
-            if (index >= 0) {
+            if (isLock) {
+                return state.getLock(index);
+            } else if (index >= 0) {
                 return state.get(index);
             } else {
-                return state.getStack().get(-(index + 1));
+                return state.getStack(-(index + 1));
             }
         }
         return null;
@@ -0,0 +1,52 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.hir.VmState;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Poll for safepoint or handshake on a loop back edge. A strip mined poll is only taken when
+ * the given bit of induction variable flips, that is, once every so many iterations.
+ *
+ * @author kelthuzadx
+ */
+public class SafepointInstr extends StateInstr {
+    private PhiInstr induction;
+    private HirInstr next;
+    private int stripMiningBit;
+
+    public SafepointInstr(VmState stateBefore) {
+        this(stateBefore, null, null, 0);
+    }
+
+    public SafepointInstr(VmState stateBefore, PhiInstr induction, HirInstr next, int stripMiningBit) {
+        super(JavaKind.Illegal, stateBefore);
+        this.induction = induction;
+        this.next = next;
+        this.stripMiningBit = stripMiningBit;
+    }
+
+    public boolean isStripMined() {
+        return stripMiningBit != 0;
+    }
+
+    public PhiInstr getInduction() {
+        return induction;
+    }
+
+    public HirInstr getNextValue() {
+        return next;
+    }
+
+    public int getStripMiningBit() {
+        return stripMiningBit;
+    }
+
+    @Override
+    public String toString() {
+        if (isStripMined()) {
+            return Logger.format("i{}: safepoint when (i{}^i{})&{}", super.id, induction.id, next.id, stripMiningBit);
+        }
+        return Logger.format("i{}: safepoint", super.id);
+    }
+}
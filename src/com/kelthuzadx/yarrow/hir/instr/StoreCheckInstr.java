@@ -0,0 +1,35 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.hir.VmState;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Check whether value could be stored into reference array before aastore, ArrayStoreException
+ * is thrown if value is not an instance of array element type.
+ *
+ * @author kelthuzadx
+ */
+public class StoreCheckInstr extends StateInstr {
+    private HirInstr array;
+    private HirInstr value;
+
+    public StoreCheckInstr(VmState stateBefore, HirInstr array, HirInstr value) {
+        super(JavaKind.Illegal, stateBefore);
+        this.array = array;
+        this.value = value;
+    }
+
+    public HirInstr getArray() {
+        return array;
+    }
+
+    public HirInstr getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: store_check i{} -> i{}", super.id, value.id, array.id);
+    }
+}
@@ -11,6 +11,10 @@ public class StoreFieldInstr extends AccessFieldInstr {
         this.value = value;
     }
 
+    public HirInstr getValue() {
+        return value;
+    }
+
 
     @Override
     public String toString() {
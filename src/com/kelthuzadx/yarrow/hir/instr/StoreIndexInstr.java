@@ -17,6 +17,10 @@ public class StoreIndexInstr extends AccessArrayInstr {
         this.value = value;
     }
 
+    public HirInstr getValue() {
+        return value;
+    }
+
     public HirInstr getIndex() {
         return index;
     }
@@ -0,0 +1,35 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Raw memory access of Unsafe at object+offset. Object may be null, offset is then an
+ * absolute address of off-heap memory. Unlike field accesses, compiler doesn't know what
+ * is accessed, so it may alias with any field or array element.
+ *
+ * @author kelthuzadx
+ */
+public abstract class UnsafeAccessInstr extends HirInstr {
+    protected HirInstr object;
+    protected HirInstr offset;
+    protected JavaKind accessKind;
+
+    public UnsafeAccessInstr(JavaKind type, HirInstr object, HirInstr offset, JavaKind accessKind) {
+        super(type);
+        this.object = object;
+        this.offset = offset;
+        this.accessKind = accessKind;
+    }
+
+    public HirInstr getObject() {
+        return object;
+    }
+
+    public HirInstr getOffset() {
+        return offset;
+    }
+
+    public JavaKind getAccessKind() {
+        return accessKind;
+    }
+}
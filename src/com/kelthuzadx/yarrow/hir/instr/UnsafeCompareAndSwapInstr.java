@@ -0,0 +1,35 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Unsafe.compareAndSetX family, it produces whether new value was stored. Atomic update on
+ * x86 is a full fence as well, so every memory order is satisfied without any barrier.
+ *
+ * @author kelthuzadx
+ */
+public class UnsafeCompareAndSwapInstr extends UnsafeAccessInstr {
+    private HirInstr expected;
+    private HirInstr newValue;
+
+    public UnsafeCompareAndSwapInstr(HirInstr object, HirInstr offset, JavaKind accessKind, HirInstr expected, HirInstr newValue) {
+        super(JavaKind.Int, object, offset, accessKind);
+        this.expected = expected;
+        this.newValue = newValue;
+    }
+
+    public HirInstr getExpected() {
+        return expected;
+    }
+
+    public HirInstr getNewValue() {
+        return newValue;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: unsafe_cas [i{}+i{}] {}, i{}, i{}", super.id, object.id, offset.id,
+                accessKind.getJavaName(), expected.id, newValue.id);
+    }
+}
@@ -0,0 +1,45 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+import java.util.Objects;
+
+/**
+ * Unsafe.getX family. Only plain loads may be value numbered, opaque, acquiring and
+ * volatile loads must read memory every time.
+ *
+ * @author kelthuzadx
+ */
+public class UnsafeGetInstr extends UnsafeAccessInstr {
+    private boolean isPlain;
+
+    public UnsafeGetInstr(HirInstr object, HirInstr offset, JavaKind accessKind, boolean isPlain) {
+        super(accessKind.getStackKind(), object, offset, accessKind);
+        this.isPlain = isPlain;
+    }
+
+    public boolean isPlain() {
+        return isPlain;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UnsafeGetInstr)) return false;
+        var that = (UnsafeGetInstr) o;
+        return isPlain && that.isPlain && accessKind == that.accessKind &&
+                object.equals(that.object) && offset.equals(that.offset);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(object, offset, accessKind);
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: unsafe_get{} [i{}+i{}] {}", super.id, isPlain ? "" : "_ordered",
+                object.id, offset.id, accessKind.getJavaName());
+    }
+}
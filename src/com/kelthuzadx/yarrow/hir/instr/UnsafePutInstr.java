@@ -0,0 +1,28 @@
+package com.kelthuzadx.yarrow.hir.instr;
+
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Unsafe.putX family, ordering of non-plain stores is enforced by MemBarrierInstr around it
+ *
+ * @author kelthuzadx
+ */
+public class UnsafePutInstr extends UnsafeAccessInstr {
+    private HirInstr value;
+
+    public UnsafePutInstr(HirInstr object, HirInstr offset, JavaKind accessKind, HirInstr value) {
+        super(JavaKind.Illegal, object, offset, accessKind);
+        this.value = value;
+    }
+
+    public HirInstr getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: unsafe_put [i{}+i{}] {}, i{}", super.id, object.id, offset.id,
+                accessKind.getJavaName(), value.id);
+    }
+}
@@ -0,0 +1,109 @@
+package com.kelthuzadx.yarrow.lir;
+
+import com.kelthuzadx.yarrow.core.YarrowConfigAccess;
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.lir.operand.Address;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.operand.VirtualRegister;
+import com.kelthuzadx.yarrow.lir.stub.G1PostBarrierStub;
+import com.kelthuzadx.yarrow.lir.stub.G1PreBarrierStub;
+import com.kelthuzadx.yarrow.util.CompilerErrors;
+import jdk.vm.ci.amd64.AMD64;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * GC barriers around reference accesses, they depend on which collector VM runs with.
+ * <ul>
+ *     <li>Serial and Parallel dirty the card of every updated reference field</li>
+ *     <li>G1 records overwritten values during concurrent marking(SATB), and enqueues cards
+ *     of cross-region references</li>
+ *     <li>Epsilon never collects, so no barrier is needed</li>
+ * </ul>
+ * Collectors with load barriers, i.e. ZGC and Shenandoah, are not supported by JVMCI of
+ * current VM, compilation bails out under them.
+ *
+ * @author kelthuzadx
+ */
+public class BarrierSet {
+    private enum Kind {
+        None, CardTable, G1
+    }
+
+    private final Kind kind;
+
+    public BarrierSet() {
+        YarrowConfigAccess access = YarrowRuntime.access;
+        if (access.useG1GC) {
+            kind = Kind.G1;
+        } else if (access.useSerialGC || access.useParallelGC) {
+            kind = Kind.CardTable;
+        } else {
+            if (!access.useEpsilonGC) {
+                CompilerErrors.bailOut("Unsupported garbage collector");
+            }
+            kind = Kind.None;
+        }
+    }
+
+    /**
+     * Barrier before storing reference into address
+     *
+     * @param gen          lir generator
+     * @param address      the reference field or array element
+     * @param isInitialize whether it's the first store into a fresh object, previous value
+     *                     is then always null
+     */
+    public void emitPreBarrier(LirGenerator gen, Address address, boolean isInitialize) {
+        if (kind != Kind.G1 || isInitialize) {
+            return;
+        }
+        VirtualRegister preVal = new VirtualRegister(JavaKind.Object);
+        gen.emitG1PreBarrier(address, preVal, markingActive(), new G1PreBarrierStub(preVal));
+    }
+
+    /**
+     * Barrier after storing reference into address
+     *
+     * @param gen          lir generator
+     * @param address      the reference field or array element
+     * @param newVal       stored value
+     * @param isNull       whether stored value is known to be null
+     * @param isInitialize whether it's a store into an object allocated since last safepoint,
+     *                     the object is then known to be in young generation
+     */
+    public void emitPostBarrier(LirGenerator gen, Address address, LirOperand newVal, boolean isNull, boolean isInitialize) {
+        // Null never makes a reference from old generation or other regions
+        if (kind == Kind.None || isNull) {
+            return;
+        }
+        // Cards of fresh object are marked when it's allocated out of young generation
+        if (isInitialize && YarrowRuntime.access.reduceInitialCardMarks) {
+            return;
+        }
+        if (kind == Kind.CardTable) {
+            gen.emitCardMark(address, new VirtualRegister(JavaKind.Long));
+        } else {
+            VirtualRegister card = new VirtualRegister(JavaKind.Long);
+            gen.emitG1PostBarrier(address, newVal, new VirtualRegister(JavaKind.Long), card, new G1PostBarrierStub(card));
+        }
+    }
+
+    /**
+     * Referent of java.lang.ref.Reference loaded by mutator must be kept alive while
+     * marking, otherwise it could be cleared although it's strongly reachable now
+     *
+     * @param gen    lir generator
+     * @param loaded loaded referent
+     */
+    public void emitKeepAlive(LirGenerator gen, LirOperand loaded) {
+        if (kind != Kind.G1) {
+            return;
+        }
+        gen.emitG1PreBarrier(null, loaded, markingActive(), new G1PreBarrierStub(loaded));
+    }
+
+    private Address markingActive() {
+        VirtualRegister thread = new VirtualRegister(AMD64.r15);
+        return new Address(thread, YarrowRuntime.access.g1SatbQueueActiveOffset, JavaKind.Byte);
+    }
+}
@@ -0,0 +1,187 @@
+package com.kelthuzadx.yarrow.lir;
+
+import com.kelthuzadx.yarrow.core.YarrowError;
+import com.kelthuzadx.yarrow.hir.VmState;
+import com.kelthuzadx.yarrow.hir.instr.CallInstr;
+import com.kelthuzadx.yarrow.hir.instr.HirInstr;
+import com.kelthuzadx.yarrow.hir.instr.IdentityHashCodeInstr;
+import com.kelthuzadx.yarrow.hir.instr.StateInstr;
+import com.kelthuzadx.yarrow.lir.operand.ConstValue;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.operand.StackVar;
+import com.kelthuzadx.yarrow.lir.operand.VirtualRegister;
+import com.kelthuzadx.yarrow.optimize.InstructionVisitor;
+import jdk.vm.ci.code.BytecodeFrame;
+import jdk.vm.ci.code.DebugInfo;
+import jdk.vm.ci.code.StackLockValue;
+import jdk.vm.ci.code.VirtualObject;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.JavaValue;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.meta.Value;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translate VmState of state instructions into JVMCI DebugInfo, which tells HotSpot how to
+ * rebuild interpreter frame from compiled frame when deoptimizing, and where object
+ * references live at safepoints.
+ * <p>
+ * Locals, operand stack and locks are described in that order. The second slot of long and
+ * double values is always illegal. Values that were never materialized, i.e. scalar replaced
+ * allocations, are described as VirtualObjects and reallocated by deoptimization.
+ *
+ * @author kelthuzadx
+ */
+public class DebugInfoBuilder {
+    private final ResolvedJavaMethod method;
+    private final FrameMap frameMap;
+    private final InstructionVisitor visitor;
+    // Allocations that were scalar replaced, they only exist in debug info
+    private final Map<HirInstr, Virtual> virtuals;
+
+    // Virtual objects referenced by debug info under construction
+    private Map<HirInstr, VirtualObject> objects;
+    private List<HirInstr> pending;
+
+    public DebugInfoBuilder(ResolvedJavaMethod method, FrameMap frameMap, InstructionVisitor visitor) {
+        this.method = method;
+        this.frameMap = frameMap;
+        this.visitor = visitor;
+        this.virtuals = new HashMap<>();
+    }
+
+    /**
+     * Describe an allocation which never happens in compiled code
+     *
+     * @param instr     the allocation
+     * @param type      type of allocated object
+     * @param values    field values in the order of {@link ResolvedJavaType#getInstanceFields(boolean)}
+     *                  or array elements
+     * @param kinds     kinds of values
+     * @param isAutoBox whether the object is a box created by valueOf, it may then be
+     *                  replaced by a cached box when reallocating
+     */
+    public void virtualize(HirInstr instr, ResolvedJavaType type, HirInstr[] values, JavaKind[] kinds, boolean isAutoBox) {
+        YarrowError.guarantee(values.length == kinds.length, "Mismatched values and kinds");
+        virtuals.put(instr, new Virtual(type, values, kinds, isAutoBox));
+    }
+
+    public boolean isVirtual(HirInstr instr) {
+        return virtuals.containsKey(instr);
+    }
+
+    public DebugInfo build(StateInstr instr) {
+        VmState state = instr.getVmState();
+        YarrowError.guarantee(state != null, "State instruction without state");
+        objects = new IdentityHashMap<>();
+        pending = new ArrayList<>();
+
+        int numLocals = state.getLocalSize();
+        int numStack = state.getStackSize();
+        int numLocks = state.getLockSize();
+        JavaValue[] values = new JavaValue[numLocals + numStack + numLocks];
+        JavaKind[] slotKinds = new JavaKind[numLocals + numStack];
+
+        for (int i = 0; i < numLocals; i++) {
+            HirInstr val = state.get(i);
+            describe(values, slotKinds, i, val);
+            if (val != null && val.type().needsTwoSlots() && i + 1 < numLocals) {
+                // Whatever is kept in the other half, it's not a valid value
+                i++;
+                values[i] = Value.ILLEGAL;
+                slotKinds[i] = JavaKind.Illegal;
+            }
+        }
+        for (int i = 0; i < numStack; i++) {
+            describe(values, slotKinds, numLocals + i, state.getStack(i));
+        }
+        for (int i = 0; i < numLocks; i++) {
+            JavaValue owner = toJavaValue(state.getLock(i));
+            values[numLocals + numStack + i] = new StackLockValue(owner, frameMap.getMonitorSlot(i), false);
+        }
+
+        // Identity hash code replaces an invocation, runtime might deoptimize during it as well
+        boolean duringCall = instr instanceof CallInstr || instr instanceof IdentityHashCodeInstr;
+        BytecodeFrame frame = new BytecodeFrame(null, method, state.getBci(), false,
+                duringCall, values, slotKinds, numLocals, numStack, numLocks);
+        return new DebugInfo(frame, fillVirtualObjects());
+    }
+
+    private void describe(JavaValue[] values, JavaKind[] slotKinds, int index, HirInstr val) {
+        if (val == null) {
+            values[index] = Value.ILLEGAL;
+            slotKinds[index] = JavaKind.Illegal;
+            return;
+        }
+        values[index] = toJavaValue(val);
+        slotKinds[index] = val.type().getStackKind();
+    }
+
+    private JavaValue toJavaValue(HirInstr val) {
+        if (val == null) {
+            return Value.ILLEGAL;
+        }
+        if (virtuals.containsKey(val)) {
+            VirtualObject object = objects.get(val);
+            if (object == null) {
+                Virtual virtual = virtuals.get(val);
+                object = VirtualObject.get(virtual.type, objects.size(), virtual.isAutoBox);
+                objects.put(val, object);
+                pending.add(val);
+            }
+            return object;
+        }
+        LirOperand operand = val.loadOperand(visitor);
+        if (operand.isConstValue()) {
+            return ((ConstValue) operand).getConstant();
+        } else if (operand.isVirtualRegister()) {
+            return ((VirtualRegister) operand).getRegister().asValue(LirKind.of(val.type()));
+        } else if (operand.isStackVar()) {
+            return ((StackVar) operand).getStackSlot();
+        }
+        YarrowError.shouldNotReachHere();
+        return null;
+    }
+
+    private VirtualObject[] fillVirtualObjects() {
+        if (objects.isEmpty()) {
+            return null;
+        }
+        // Field values may refer to other virtual objects, which are appended to pending list
+        for (int i = 0; i < pending.size(); i++) {
+            HirInstr instr = pending.get(i);
+            Virtual virtual = virtuals.get(instr);
+            JavaValue[] fieldValues = new JavaValue[virtual.values.length];
+            for (int k = 0; k < fieldValues.length; k++) {
+                fieldValues[k] = toJavaValue(virtual.values[k]);
+            }
+            objects.get(instr).setValues(fieldValues, virtual.kinds);
+        }
+        VirtualObject[] result = new VirtualObject[pending.size()];
+        for (int i = 0; i < result.length; i++) {
+            // Id of virtual object must be its index
+            result[i] = objects.get(pending.get(i));
+        }
+        return result;
+    }
+
+    private static class Virtual {
+        private final ResolvedJavaType type;
+        private final HirInstr[] values;
+        private final JavaKind[] kinds;
+        private final boolean isAutoBox;
+
+        Virtual(ResolvedJavaType type, HirInstr[] values, JavaKind[] kinds, boolean isAutoBox) {
+            this.type = type;
+            this.values = values;
+            this.kinds = kinds;
+            this.isAutoBox = isAutoBox;
+        }
+    }
+}
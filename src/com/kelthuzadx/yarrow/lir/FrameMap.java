@@ -0,0 +1,55 @@
+package com.kelthuzadx.yarrow.lir;
+
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import jdk.vm.ci.code.StackSlot;
+
+/**
+ * Layout of fixed slots in compiled frame. Slots grow downward from the return address,
+ * the first ones are BasicLocks of monitors held by the method, one word for each nesting
+ * level of locking.
+ *
+ * @author kelthuzadx
+ */
+public class FrameMap {
+    private final int wordSize;
+    private final int returnAddressSize;
+    private int numOfMonitors;
+    private int outgoingSize;
+
+    public FrameMap() {
+        this.wordSize = YarrowRuntime.arch.getWordSize();
+        this.returnAddressSize = YarrowRuntime.arch.getReturnAddressSize();
+        this.numOfMonitors = 0;
+    }
+
+    /**
+     * Stack slot of BasicLock for monitor at given locking depth, slot is reserved
+     * on first request
+     */
+    public StackSlot getMonitorSlot(int index) {
+        numOfMonitors = Math.max(numOfMonitors, index + 1);
+        return StackSlot.get(LirKind.word(), -(returnAddressSize + (index + 1) * wordSize), true);
+    }
+
+    public int getNumOfMonitors() {
+        return numOfMonitors;
+    }
+
+    /**
+     * Reserve area at the bottom of frame for arguments passed on stack by a call
+     */
+    public void reserveOutgoing(int size) {
+        outgoingSize = Math.max(outgoingSize, size);
+    }
+
+    public int getOutgoingSize() {
+        return outgoingSize;
+    }
+
+    /**
+     * Size of all fixed slots, excluding return address
+     */
+    public int getFixedSize() {
+        return numOfMonitors * wordSize;
+    }
+}
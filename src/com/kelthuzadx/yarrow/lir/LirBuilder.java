@@ -5,35 +5,58 @@ import com.kelthuzadx.yarrow.core.YarrowConfigAccess;
 import com.kelthuzadx.yarrow.core.YarrowError;
 import com.kelthuzadx.yarrow.core.YarrowRuntime;
 import com.kelthuzadx.yarrow.hir.BlockFlag;
+import com.kelthuzadx.yarrow.hir.Cond;
 import com.kelthuzadx.yarrow.hir.Hir;
+import com.kelthuzadx.yarrow.hir.StaticType;
 import com.kelthuzadx.yarrow.hir.instr.*;
 import com.kelthuzadx.yarrow.lir.operand.Address;
 import com.kelthuzadx.yarrow.lir.operand.ConstValue;
 import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.operand.StackVar;
 import com.kelthuzadx.yarrow.lir.operand.VirtualRegister;
+import com.kelthuzadx.yarrow.lir.stub.ArrayStoreExStub;
 import com.kelthuzadx.yarrow.lir.stub.ClassCastExStub;
+import com.kelthuzadx.yarrow.lir.stub.IdentityHashCodeStub;
+import com.kelthuzadx.yarrow.lir.stub.MonitorEnterStub;
+import com.kelthuzadx.yarrow.lir.stub.MonitorExitStub;
 import com.kelthuzadx.yarrow.lir.stub.NewArrayStub;
 import com.kelthuzadx.yarrow.lir.stub.NewInstanceStub;
+import com.kelthuzadx.yarrow.lir.stub.UncommonTrapStub;
 import com.kelthuzadx.yarrow.lir.stub.VmStub;
 import com.kelthuzadx.yarrow.optimize.InstructionVisitor;
 import com.kelthuzadx.yarrow.optimize.Phase;
 import com.kelthuzadx.yarrow.util.CompilerErrors;
 import com.kelthuzadx.yarrow.util.Logger;
 import jdk.vm.ci.amd64.AMD64;
+import jdk.vm.ci.code.CallingConvention;
+import jdk.vm.ci.code.DebugInfo;
 import jdk.vm.ci.code.MemoryBarriers;
+import jdk.vm.ci.code.Register;
+import jdk.vm.ci.code.RegisterValue;
+import jdk.vm.ci.code.StackSlot;
+import jdk.vm.ci.code.ValueKindFactory;
+import jdk.vm.ci.hotspot.HotSpotCallingConventionType;
 import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.hotspot.HotSpotObjectConstant;
+import jdk.vm.ci.hotspot.HotSpotResolvedJavaMethod;
 import jdk.vm.ci.hotspot.HotSpotResolvedJavaType;
 import jdk.vm.ci.hotspot.HotSpotResolvedObjectType;
+import jdk.vm.ci.meta.AllocatableValue;
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.DeoptimizationReason;
 import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaField;
 import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.JavaType;
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayDeque;
 import java.util.HashSet;
 
 import static com.kelthuzadx.yarrow.core.YarrowProperties.Debug.PrintIR;
 import static com.kelthuzadx.yarrow.core.YarrowProperties.Debug.TraceLIRGeneration;
+import static com.kelthuzadx.yarrow.core.YarrowProperties.Optimize.ArrayCopyUnrollLimit;
 
 
 /**
@@ -45,12 +68,181 @@ public class LirBuilder extends InstructionVisitor implements Phase {
     private final Hir hir;
     private final Lir lir;
     private final LirGenerator gen;
+    private final FrameMap frameMap;
+    private final DebugInfoBuilder debugInfoBuilder;
+    private final BarrierSet barrierSet;
 
 
     public LirBuilder(Hir hir) {
         this.hir = hir;
         this.lir = new Lir();
         this.gen = new LirGenerator(lir);
+        this.frameMap = new FrameMap();
+        this.debugInfoBuilder = new DebugInfoBuilder(hir.getMethod(), frameMap, this);
+        this.barrierSet = new BarrierSet();
+    }
+
+    private DebugInfo stateFor(StateInstr instr) {
+        return debugInfoBuilder.build(instr);
+    }
+
+    private Address pollingPage() {
+        VirtualRegister thread = new VirtualRegister(AMD64.r15);
+        return new Address(thread, YarrowRuntime.access.threadPollingPageOffset, JavaKind.Long);
+    }
+
+    private LirOperand loadToReg(HirInstr instr) {
+        // Unlike loadOperandToReg, constants are materialized as well
+        LirOperand operand = instr.loadOperand(this);
+        if (operand.isVirtualRegister()) {
+            return operand;
+        }
+        VirtualRegister register = new VirtualRegister(instr.type());
+        gen.emitMov(register, operand);
+        return register;
+    }
+
+    private static long transcendentalStub(MathIntrinsicInstr.Op op) {
+        YarrowConfigAccess access = YarrowRuntime.access;
+        switch (op) {
+            case SIN:
+                return access.dsin;
+            case COS:
+                return access.dcos;
+            case TAN:
+                return access.dtan;
+            case LOG:
+                return access.dlog;
+            case LOG10:
+                return access.dlog10;
+            case EXP:
+                return access.dexp;
+            case POW:
+                return access.dpow;
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean isSignaturePolymorphic(ResolvedJavaMethod method) {
+        String holder = method.getDeclaringClass().getName();
+        return (holder.equals("Ljava/lang/invoke/MethodHandle;") || holder.equals("Ljava/lang/invoke/VarHandle;"))
+                && method.isNative() && method.isVarArgs();
+    }
+
+    private Address elementAddress(AccessArrayInstr instr, HirInstr index, JavaKind elementType) {
+        return elementAddress(loadToReg(instr.getArray()), index, 0, elementType);
+    }
+
+    /**
+     * Address of the element at {@code index+delta} of array
+     */
+    private Address elementAddress(LirOperand array, HirInstr index, int delta, JavaKind elementType) {
+        int base = YarrowRuntime.metaAccess.getArrayBaseOffset(elementType);
+        int scale = YarrowRuntime.metaAccess.getArrayIndexScale(elementType);
+        if (index instanceof ConstantInstr) {
+            long disp = base + ((long) ((ConstantInstr) index).getConstant().asInt() + delta) * scale;
+            if (disp == (int) disp) {
+                return new Address(array, (int) disp, elementType);
+            }
+        }
+        return new Address(array, loadToReg(index), scale, base + delta * scale, elementType);
+    }
+
+    private static long arraycopyStub(JavaKind elementType, int flags) {
+        YarrowConfigAccess access = YarrowRuntime.access;
+        boolean disjoint = (flags & ArrayCopyInstr.OVERLAPPING) == 0;
+        boolean uninit = (flags & ArrayCopyInstr.DST_UNINITIALIZED) != 0;
+        switch (elementType) {
+            case Boolean:
+            case Byte:
+                return disjoint ? access.jbyteDisjointArraycopy : access.jbyteArraycopy;
+            case Char:
+            case Short:
+                return disjoint ? access.jshortDisjointArraycopy : access.jshortArraycopy;
+            case Int:
+            case Float:
+                return disjoint ? access.jintDisjointArraycopy : access.jintArraycopy;
+            case Long:
+            case Double:
+                return disjoint ? access.jlongDisjointArraycopy : access.jlongArraycopy;
+            case Object:
+                if ((flags & ArrayCopyInstr.TYPE_CHECK) != 0) {
+                    // Elements are checked one by one, which only goes forward
+                    return uninit ? access.checkcastArraycopyUninit : access.checkcastArraycopy;
+                } else if (disjoint) {
+                    return uninit ? access.oopDisjointArraycopyUninit : access.oopDisjointArraycopy;
+                }
+                return uninit ? access.oopArraycopyUninit : access.oopArraycopy;
+            default:
+                YarrowError.shouldNotReachHere();
+        }
+        return 0;
+    }
+
+    private LirOperand storeValue(HirInstr value) {
+        // Memory can only be assigned with 32 bits immediate
+        LirOperand operand = value.loadOperand(this);
+        if (operand.isConstValue()) {
+            JavaConstant c = ((ConstValue) operand).getConstant();
+            switch (c.getJavaKind()) {
+                case Long:
+                    if (c.asLong() == (int) c.asLong()) {
+                        return operand;
+                    }
+                    break;
+                case Double:
+                    break;
+                case Object:
+                    if (c.isNull()) {
+                        return operand;
+                    }
+                    break;
+                default:
+                    return operand;
+            }
+        }
+        return value.loadOperandToReg(this, gen);
+    }
+
+    /**
+     * Whether store writes into an object allocated in the same block, and nothing in between
+     * could reach a safepoint or write to the same place. Such object is still in young
+     * generation, and the value being overwritten is null.
+     */
+    private static boolean isInitializingStore(HirInstr object, HirInstr store) {
+        if (!(object instanceof NewInstr || object instanceof NewObjectArrayInstr ||
+                object instanceof NewTypeArrayInstr || object instanceof NewMultiArrayInstr)) {
+            return false;
+        }
+        for (HirInstr i = object.getNext(); i != null; i = i.getNext()) {
+            if (i == store) {
+                return true;
+            }
+            // Block end is also a state instruction
+            if (i instanceof StateInstr) {
+                return false;
+            }
+            if (i instanceof StoreFieldInstr && store instanceof StoreFieldInstr) {
+                var other = (StoreFieldInstr) i;
+                if (other.getObject() == object && other.getOffset() == ((StoreFieldInstr) store).getOffset()) {
+                    return false;
+                }
+            } else if (i instanceof StoreIndexInstr && ((StoreIndexInstr) i).getArray() == object) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNullable(HirInstr object) {
+        StaticType type = StaticType.of(object);
+        return type == null || !type.isNonNull();
+    }
+
+    private static boolean isReferent(JavaField field) {
+        return field.getName().equals("referent") &&
+                field.getDeclaringClass().getName().equals("Ljava/lang/ref/Reference;");
     }
 
     private void transformBlock(BlockStartInstr block) {
@@ -97,29 +289,36 @@ public class LirBuilder extends InstructionVisitor implements Phase {
 
     @Override
     public void visitMemBarrierInstr(MemBarrierInstr instr) {
-        switch (instr.getBarrierType()) {
-            case MemoryBarriers.STORE_STORE:
-                gen.emitMembar(Mnemonic.MembarStoreStore);
-            case MemoryBarriers.LOAD_LOAD:
-                gen.emitMembar(Mnemonic.MembarLoadLoad);
-                return;
-            case MemoryBarriers.LOAD_STORE:
-                gen.emitMembar(Mnemonic.MembarLoadStore);
-                return;
-            case MemoryBarriers.STORE_LOAD:
-                gen.emitMembar(Mnemonic.MembarStoreStore);
-                return;
-            default:
-                YarrowError.unimplemented();
+        // x86 only reorders stores with later loads, StoreLoad is the only barrier which emits
+        // a fence, others merely keep code in order
+        int barriers = instr.getBarrierType();
+        if ((barriers & MemoryBarriers.STORE_LOAD) != 0) {
+            gen.emitMembar(Mnemonic.MembarStoreLoad);
+        } else if (barriers == (MemoryBarriers.LOAD_LOAD | MemoryBarriers.LOAD_STORE)) {
+            gen.emitMembar(Mnemonic.MembarAcquire);
+        } else if (barriers == (MemoryBarriers.LOAD_STORE | MemoryBarriers.STORE_STORE)) {
+            gen.emitMembar(Mnemonic.MembarRelease);
+        } else if (barriers == MemoryBarriers.STORE_STORE) {
+            gen.emitMembar(Mnemonic.MembarStoreStore);
+        } else if (barriers == MemoryBarriers.LOAD_LOAD) {
+            gen.emitMembar(Mnemonic.MembarLoadLoad);
+        } else if (barriers == MemoryBarriers.LOAD_STORE) {
+            gen.emitMembar(Mnemonic.MembarLoadStore);
+        } else {
+            // Any combination without StoreLoad is an acquire and release
+            gen.emitMembar(Mnemonic.MembarAcquire);
+            gen.emitMembar(Mnemonic.MembarRelease);
         }
+        instr.storeOperand(null); // MemBarrierInstr has no operand result
     }
 
     @Override
     public void visitInstanceOfInstr(InstanceOfInstr instr) {
-        LirOperand object = instr.getObject().loadOperandToReg(this, gen);
+        LirOperand object = loadToReg(instr.getObject());
         LirOperand result = new VirtualRegister(instr.type());
         instr.storeOperand(result);
-        gen.emitInstanceOf(result, object, instr.getKlass());
+        VirtualRegister objectKlass = new VirtualRegister(JavaKind.Long);
+        gen.emitInstanceOf(result, object, objectKlass, (HotSpotResolvedObjectType) instr.getKlass(), isNullable(instr.getObject()));
     }
 
     @Override
@@ -222,7 +421,7 @@ public class LirBuilder extends InstructionVisitor implements Phase {
 
         LirOperand ret = new VirtualRegister(YarrowRuntime.regConfig.getReturnRegister(instr.type()));
         Address stubAddr = new Address(new ConstValue(JavaConstant.forLong(VmStub.StubNewArray.getStubAddress())), LirOperand.illegal, 1, 0, JavaKind.Int);
-        gen.emitCallRt(ret, stubAddr, args);
+        gen.emitCallRt(ret, stubAddr, args, stateFor(instr));
         LirOperand result = new VirtualRegister(instr.type());
         gen.emitMov(result, ret);
         instr.storeOperand(result);
@@ -230,36 +429,114 @@ public class LirBuilder extends InstructionVisitor implements Phase {
 
     @Override
     public void visitStoreIndexInstr(StoreIndexInstr instr) {
-
+        LirOperand value = storeValue(instr.getValue());
+        Address address = elementAddress(instr, instr.getIndex(), instr.getElementType());
+        if (instr.getElementType() != JavaKind.Object) {
+            gen.emitMov(address, value);
+            instr.storeOperand(null); // StoreIndexInstr has no operand result
+            return;
+        }
+        boolean isInitialize = isInitializingStore(instr.getArray(), instr);
+        barrierSet.emitPreBarrier(gen, address, isInitialize);
+        gen.emitMov(address, value);
+        barrierSet.emitPostBarrier(gen, address, value, value.isConstValue(), isInitialize);
+        instr.storeOperand(null); // StoreIndexInstr has no operand result
     }
 
     @Override
     public void visitStoreFieldInstr(StoreFieldInstr instr) {
-
+        LirOperand value = storeValue(instr.getValue());
+        LirOperand object = loadToReg(instr.getObject());
+        Address address = new Address(object, instr.getOffset(), instr.getField().getJavaKind());
+        if (instr.getField().getJavaKind() != JavaKind.Object) {
+            gen.emitMov(address, value);
+            instr.storeOperand(null); // StoreFieldInstr has no operand result
+            return;
+        }
+        boolean isInitialize = isInitializingStore(instr.getObject(), instr);
+        barrierSet.emitPreBarrier(gen, address, isInitialize);
+        gen.emitMov(address, value);
+        barrierSet.emitPostBarrier(gen, address, value, value.isConstValue(), isInitialize);
+        instr.storeOperand(null); // StoreFieldInstr has no operand result
     }
 
     @Override
     public void visitPhiInstr(PhiInstr instr) {
-        YarrowError.shouldNotReachHere();
+        // Phi is resolved by moves at the end of predecessors, it only needs a register here
+        instr.storeOperand(new VirtualRegister(instr.type()));
     }
 
     @Override
     public void visitBlockStartInstr(BlockStartInstr instr) {
         gen.setCurrentBlockId(instr.id());
+        // Entry blocks end with a goto, which jumps to the real entry after everything
+        // in entry block, e.g. loading values from OSR buffer
         if (instr.getFlag() == BlockFlag.NormalEntry) {
             gen.emitNormalEntry();
             YarrowError.guarantee(instr.getBlockEnd().getSuccessor().size() == 1, "Expect one successor");
-            gen.emitJmp(instr.getBlockEnd().getSuccessor().get(0));
         } else if (instr.getFlag() == BlockFlag.OsrEntry) {
             gen.emitOsrEntry();
             YarrowError.guarantee(instr.getBlockEnd().getSuccessor().size() == 1, "Expect one successor");
-            gen.emitJmp(instr.getBlockEnd().getSuccessor().get(0));
         }
     }
 
     @Override
-    public void visitLoadFieldInstr(LoadFieldInstr instr) {
+    public void visitOsrEntryInstr(OsrEntryInstr instr) {
+        // Interpreter passes OSR buffer in the first Java argument register
+        Register bufferReg = YarrowRuntime.regConfig.getCallingConventionRegisters(
+                HotSpotCallingConventionType.JavaCall, JavaKind.Object).get(0);
+        VirtualRegister buffer = new VirtualRegister(instr.type());
+        gen.emitMov(buffer, new VirtualRegister(bufferReg));
+        instr.storeOperand(buffer);
+    }
 
+    @Override
+    public void visitOsrLocalInstr(OsrLocalInstr instr) {
+        LirOperand buffer = instr.getBuffer().loadOperandToReg(this, gen);
+        if (instr.isMonitor()) {
+            // Displaced header is right before the object
+            int wordSize = YarrowRuntime.arch.getWordSize();
+            VirtualRegister header = new VirtualRegister(JavaKind.Long);
+            gen.emitMov(header, new Address(buffer, LirOperand.illegal, 1, instr.getOffset() - wordSize, JavaKind.Long));
+            gen.emitMov(new StackVar(frameMap.getMonitorSlot(instr.getMonitorIndex())), header);
+        }
+        VirtualRegister result = new VirtualRegister(instr.type());
+        gen.emitMov(result, new Address(buffer, LirOperand.illegal, 1, instr.getOffset(), instr.type()));
+        instr.storeOperand(result);
+    }
+
+    @Override
+    public void visitOsrMigrationEndInstr(OsrMigrationEndInstr instr) {
+        VirtualRegister arg = new VirtualRegister(AMD64.rdi);
+        instr.getBuffer().loadOperandToReg(this, gen, arg);
+        Address stubAddr = new Address(new ConstValue(JavaConstant.forLong(VmStub.StubOsrMigrationEnd.getStubAddress())), LirOperand.illegal, 1, 0, JavaKind.Long);
+        gen.emitCallRt(LirOperand.illegal, stubAddr, new LirOperand[]{arg}, null);
+        instr.storeOperand(null); // OsrMigrationEndInstr has no operand result
+    }
+
+    @Override
+    public void visitSafepointInstr(SafepointInstr instr) {
+        VirtualRegister temp = new VirtualRegister(JavaKind.Long);
+        if (instr.isStripMined()) {
+            LirOperand induction = instr.getInduction().loadOperandToReg(this, gen);
+            LirOperand next = instr.getNextValue().loadOperandToReg(this, gen);
+            gen.emitSafepointPoll(pollingPage(), temp, induction, next, instr.getStripMiningBit(), stateFor(instr));
+        } else {
+            gen.emitSafepointPoll(pollingPage(), temp, stateFor(instr));
+        }
+        instr.storeOperand(null); // SafepointInstr has no operand result
+    }
+
+    @Override
+    public void visitLoadFieldInstr(LoadFieldInstr instr) {
+        LirOperand object = loadToReg(instr.getObject());
+        Address address = new Address(object, instr.getOffset(), instr.getField().getJavaKind());
+        LirOperand result = new VirtualRegister(instr.type());
+        instr.storeOperand(result);
+        gen.emitMov(result, address);
+        if (isReferent(instr.getField())) {
+            barrierSet.emitKeepAlive(gen, result);
+        }
     }
 
     @Override
@@ -284,6 +561,302 @@ public class LirBuilder extends InstructionVisitor implements Phase {
         }
     }
 
+    @Override
+    public void visitMathIntrinsicInstr(MathIntrinsicInstr instr) {
+        HirInstr[] args = instr.getArgs();
+        LirOperand result = new VirtualRegister(instr.type());
+        instr.storeOperand(result);
+        if (instr.getOp().isTranscendental()) {
+            long entry = transcendentalStub(instr.getOp());
+            if (entry == 0) {
+                CompilerErrors.bailOut("Missing stub for Math." + instr.getOp().name().toLowerCase());
+            }
+            // Leaf stubs take arguments from and return result in xmm registers
+            Register[] argRegs = {AMD64.xmm0, AMD64.xmm1};
+            LirOperand[] operands = new LirOperand[args.length];
+            for (int i = 0; i < args.length; i++) {
+                operands[i] = new VirtualRegister(argRegs[i]);
+                gen.emitMov(operands[i], args[i].loadOperand(this));
+            }
+            LirOperand ret = new VirtualRegister(AMD64.xmm0);
+            Address stubAddr = new Address(new ConstValue(JavaConstant.forLong(entry)), LirOperand.illegal, 1, 0, JavaKind.Int);
+            gen.emitCallRt(ret, stubAddr, operands, null);
+            gen.emitMov(result, ret);
+            return;
+        }
+
+        LirOperand x = loadToReg(args[0]);
+        switch (instr.getOp()) {
+            case ABS:
+                if (instr.type() == JavaKind.Int || instr.type() == JavaKind.Long) {
+                    // abs(x) = (x ^ (x >> 31)) - (x >> 31), without branching
+                    LirOperand sign = new VirtualRegister(instr.type());
+                    gen.emitMov(sign, x);
+                    gen.emitShr(sign, sign, new ConstValue(JavaConstant.forInt(instr.type() == JavaKind.Int ? 31 : 63)));
+                    gen.emitMov(result, x);
+                    gen.emitXor(result, result, sign);
+                    gen.emitSub(result, result, sign);
+                } else {
+                    // Clear sign bit
+                    gen.emitAbs(result, x);
+                }
+                break;
+            case SQRT:
+                gen.emitSqrt(result, x);
+                break;
+            case MIN:
+                gen.emitMov(result, x);
+                gen.emitMin(result, result, loadToReg(args[1]));
+                break;
+            case MAX:
+                gen.emitMov(result, x);
+                gen.emitMax(result, result, loadToReg(args[1]));
+                break;
+            case FMA:
+                gen.emitFma(result, x, loadToReg(args[1]), loadToReg(args[2]));
+                break;
+            default:
+                YarrowError.shouldNotReachHere();
+        }
+    }
+
+    @Override
+    public void visitArrayCopyInstr(ArrayCopyInstr instr) {
+        JavaKind elementType = instr.getElementType();
+        boolean isUninitialized = instr.hasFlag(ArrayCopyInstr.DST_UNINITIALIZED);
+        LirOperand src = loadToReg(instr.getSrc());
+        LirOperand dst = loadToReg(instr.getDst());
+        HirInstr length = instr.getLength();
+        if (!instr.needsChecks() && length instanceof ConstantInstr &&
+                ((ConstantInstr) length).getConstant().asInt() <= ArrayCopyUnrollLimit) {
+            // Everything is loaded before storing, so overlapping arrays are copied correctly
+            int count = ((ConstantInstr) length).getConstant().asInt();
+            LirOperand[] elements = new LirOperand[count];
+            for (int i = 0; i < count; i++) {
+                elements[i] = new VirtualRegister(elementType);
+                gen.emitMov(elements[i], elementAddress(src, instr.getSrcPos(), i, elementType));
+            }
+            for (int i = 0; i < count; i++) {
+                Address address = elementAddress(dst, instr.getDstPos(), i, elementType);
+                if (elementType == JavaKind.Object) {
+                    barrierSet.emitPreBarrier(gen, address, isUninitialized);
+                }
+                gen.emitMov(address, elements[i]);
+                if (elementType == JavaKind.Object) {
+                    barrierSet.emitPostBarrier(gen, address, elements[i], false, isUninitialized);
+                }
+            }
+            instr.storeOperand(null); // ArrayCopyInstr has no operand result
+            return;
+        }
+
+        long entry = arraycopyStub(elementType, instr.getFlags());
+        if (entry == 0) {
+            CompilerErrors.bailOut("Missing arraycopy stub");
+        }
+        UncommonTrapStub stub = null;
+        if (instr.needsChecks()) {
+            // Interpreter invokes the method again and throws the exception
+            JavaConstant trapRequest = YarrowRuntime.metaAccess.encodeDeoptActionAndReason(
+                    DeoptimizationAction.InvalidateRecompile, DeoptimizationReason.BoundsCheckException, 0);
+            stub = new UncommonTrapStub(trapRequest);
+            stub.setDebugInfo(stateFor(instr));
+        }
+        gen.emitArrayCopy(src, loadToReg(instr.getSrcPos()), dst, loadToReg(instr.getDstPos()), loadToReg(length),
+                new VirtualRegister(JavaKind.Long), elementType, instr.getFlags(), entry, stub);
+        instr.storeOperand(null); // ArrayCopyInstr has no operand result
+    }
+
+    @Override
+    public void visitBitIntrinsicInstr(BitIntrinsicInstr instr) {
+        HirInstr[] args = instr.getArgs();
+        LirOperand result = new VirtualRegister(instr.type());
+        instr.storeOperand(result);
+        if (instr.getOp().isRotate()) {
+            // Like shifts, variable rotate distance must be in cl
+            LirOperand count;
+            if (!(args[1] instanceof ConstantInstr) || instr.getOperandKind() == JavaKind.Long) {
+                count = args[1].loadOperandToReg(this, gen, new VirtualRegister(AMD64.rcx));
+            } else {
+                count = args[1].loadOperand(this);
+            }
+            LirOperand value = args[0].loadOperandToReg(this, gen);
+            if (instr.getOp() == BitIntrinsicInstr.Op.ROTATE_LEFT) {
+                gen.emitRol(result, value, count);
+            } else {
+                gen.emitRor(result, value, count);
+            }
+            return;
+        }
+        LirOperand value = loadToReg(args[0]);
+        switch (instr.getOp()) {
+            case BIT_COUNT:
+                gen.emitPopcnt(result, value);
+                break;
+            case LEADING_ZEROS:
+                gen.emitLzcnt(result, value);
+                break;
+            case TRAILING_ZEROS:
+                gen.emitTzcnt(result, value);
+                break;
+            case REVERSE_BYTES:
+                gen.emitBswap(result, value);
+                break;
+            default:
+                YarrowError.shouldNotReachHere();
+        }
+    }
+
+    private Address unsafeAddress(UnsafeAccessInstr instr) {
+        // Null object is zero, offset is then an absolute address
+        LirOperand object = loadToReg(instr.getObject());
+        LirOperand offset = loadToReg(instr.getOffset());
+        return new Address(object, offset, instr.getAccessKind());
+    }
+
+    @Override
+    public void visitUnsafeGetInstr(UnsafeGetInstr instr) {
+        Address address = unsafeAddress(instr);
+        LirOperand result = new VirtualRegister(instr.type());
+        instr.storeOperand(result);
+        gen.emitMov(result, address);
+    }
+
+    @Override
+    public void visitUnsafePutInstr(UnsafePutInstr instr) {
+        LirOperand value = storeValue(instr.getValue());
+        Address address = unsafeAddress(instr);
+        if (instr.getAccessKind() == JavaKind.Object) {
+            barrierSet.emitPreBarrier(gen, address, false);
+        }
+        gen.emitMov(address, value);
+        if (instr.getAccessKind() == JavaKind.Object) {
+            barrierSet.emitPostBarrier(gen, address, value, value.isConstValue(), false);
+        }
+        instr.storeOperand(null); // UnsafePutInstr has no operand result
+    }
+
+    @Override
+    public void visitUnsafeCompareAndSwapInstr(UnsafeCompareAndSwapInstr instr) {
+        Address address = unsafeAddress(instr);
+        // cmpxchg compares with rax implicitly
+        VirtualRegister expected = new VirtualRegister(AMD64.rax);
+        gen.emitMov(expected, instr.getExpected().loadOperand(this));
+        LirOperand newValue = loadToReg(instr.getNewValue());
+        LirOperand result = new VirtualRegister(instr.type());
+        instr.storeOperand(result);
+        if (instr.getAccessKind() == JavaKind.Object) {
+            barrierSet.emitPreBarrier(gen, address, false);
+        }
+        gen.emitCompareAndSwap(result, address, expected, newValue);
+        if (instr.getAccessKind() == JavaKind.Object) {
+            barrierSet.emitPostBarrier(gen, address, newValue, false, false);
+        }
+    }
+
+    @Override
+    public void visitIdentityHashCodeInstr(IdentityHashCodeInstr instr) {
+        LirOperand object = loadToReg(instr.getObject());
+        LirOperand result = new VirtualRegister(JavaKind.Int);
+        var stub = new IdentityHashCodeStub(object, result);
+        stub.setDebugInfo(stateFor(instr));
+        gen.emitIdentityHashCode(result, object, new VirtualRegister(JavaKind.Long), isNullable(instr.getObject()), stub);
+        instr.storeOperand(result);
+    }
+
+    @Override
+    public void visitBoxInstr(BoxInstr instr) {
+        if (instr.isEscaped()) {
+            visitCallInstr(instr);
+            return;
+        }
+        // Box only lives in debug info, it's only ever used as an object after deoptimization
+        ResolvedJavaField field = instr.getBoxType().getInstanceFields(true)[0];
+        debugInfoBuilder.virtualize(instr, instr.getBoxType(), new HirInstr[]{instr.getValue()},
+                new JavaKind[]{field.getJavaKind()}, true);
+        instr.storeOperand(null); // Box is not allocated at all
+    }
+
+    @Override
+    public void visitClassInitCheckInstr(ClassInitCheckInstr instr) {
+        VirtualRegister klass = new VirtualRegister(JavaKind.Long);
+        gen.emitMov(klass, new ConstValue(JavaConstant.forLong(getKlassPointer((HotSpotResolvedJavaType) instr.getKlass()))));
+        // Interpreter executes the access again, which initializes the class
+        JavaConstant trapRequest = YarrowRuntime.metaAccess.encodeDeoptActionAndReason(
+                DeoptimizationAction.InvalidateRecompile, DeoptimizationReason.Unresolved, 0);
+        var stub = new UncommonTrapStub(trapRequest);
+        stub.setDebugInfo(stateFor(instr));
+        gen.emitClassInitBarrier(klass, stub);
+        instr.storeOperand(null); // ClassInitCheckInstr has no operand result
+    }
+
+    @Override
+    public void visitNullCheckInstr(NullCheckInstr instr) {
+        LirOperand object = loadToReg(instr.getObject());
+        // Interpreter invokes the method again and throws NullPointerException
+        JavaConstant trapRequest = YarrowRuntime.metaAccess.encodeDeoptActionAndReason(
+                DeoptimizationAction.InvalidateRecompile, DeoptimizationReason.NullCheckException, 0);
+        var stub = new UncommonTrapStub(trapRequest);
+        stub.setDebugInfo(stateFor(instr));
+        gen.emitNullCheck(object, stub);
+        instr.storeOperand(null); // NullCheckInstr has no operand result
+    }
+
+    @Override
+    public void visitLeafCallInstr(LeafCallInstr instr) {
+        VmStub stub = instr.getFunction() == LeafCallInstr.Function.JavaTimeNanos ?
+                VmStub.StubJavatimenanos : VmStub.StubJavatimemillis;
+        // Leaf routines never block or safepoint, no debug info is needed
+        LirOperand ret = new VirtualRegister(AMD64.rax);
+        Address stubAddr = new Address(new ConstValue(JavaConstant.forLong(stub.getStubAddress())), LirOperand.illegal, 1, 0, JavaKind.Int);
+        gen.emitCallRt(ret, stubAddr, new LirOperand[0], null);
+        LirOperand result = new VirtualRegister(instr.type());
+        gen.emitMov(result, ret);
+        instr.storeOperand(result);
+    }
+
+    @Override
+    public void visitCurrentThreadInstr(CurrentThreadInstr instr) {
+        // JavaThread refers to its java.lang.Thread via an OopHandle, which points to the oop
+        VirtualRegister thread = new VirtualRegister(AMD64.r15);
+        VirtualRegister handle = new VirtualRegister(JavaKind.Long);
+        gen.emitMov(handle, new Address(thread, YarrowRuntime.access.threadObjOffset, JavaKind.Long));
+        LirOperand result = new VirtualRegister(JavaKind.Object);
+        gen.emitMov(result, new Address(handle, 0, JavaKind.Object));
+        instr.storeOperand(result);
+    }
+
+    @Override
+    public void visitExactArithmeticInstr(ExactArithmeticInstr instr) {
+        LirOperand left = loadToReg(instr.getLeft());
+        LirOperand right = instr.getRight().loadOperand(this);
+        LirOperand result = new VirtualRegister(instr.type());
+        instr.storeOperand(result);
+        gen.emitMov(result, left);
+        switch (instr.getOpcode()) {
+            case Bytecode.IADD:
+            case Bytecode.LADD:
+                gen.emitAdd(result, result, right);
+                break;
+            case Bytecode.ISUB:
+            case Bytecode.LSUB:
+                gen.emitSub(result, result, right);
+                break;
+            case Bytecode.IMUL:
+            case Bytecode.LMUL:
+                gen.emitMul(result, result, right);
+                break;
+            default:
+                YarrowError.shouldNotReachHere();
+        }
+        // Interpreter invokes the method again and throws ArithmeticException
+        JavaConstant trapRequest = YarrowRuntime.metaAccess.encodeDeoptActionAndReason(
+                DeoptimizationAction.InvalidateRecompile, DeoptimizationReason.ArithmeticException, 0);
+        var stub = new UncommonTrapStub(trapRequest);
+        stub.setDebugInfo(stateFor(instr));
+        gen.emitJmp(Cond.Overflow, stub);
+    }
+
     @Override
     public void visitNegateInstr(NegateInstr instr) {
         LirOperand value = instr.getValue().loadOperandToReg(this, gen);
@@ -309,11 +882,25 @@ public class LirBuilder extends InstructionVisitor implements Phase {
 
     @Override
     public void visitCheckCastInstr(CheckCastInstr instr) {
-        LirOperand object = instr.getObject().loadOperandToReg(this, gen);
+        LirOperand object = loadToReg(instr.getObject());
         LirOperand result = new VirtualRegister(instr.type());
         instr.storeOperand(result);
-        var stub = new ClassCastExStub(object);
-        gen.emitCheckCast(result, object, (HotSpotResolvedJavaType) instr.getKlass(), stub);
+        VirtualRegister objectKlass = new VirtualRegister(JavaKind.Long);
+        var stub = new ClassCastExStub(object, objectKlass);
+        stub.setDebugInfo(stateFor(instr));
+        gen.emitCheckCast(result, object, objectKlass, (HotSpotResolvedObjectType) instr.getKlass(), isNullable(instr.getObject()), stub);
+    }
+
+    @Override
+    public void visitStoreCheckInstr(StoreCheckInstr instr) {
+        LirOperand array = loadToReg(instr.getArray());
+        LirOperand value = loadToReg(instr.getValue());
+        VirtualRegister elementKlass = new VirtualRegister(JavaKind.Long);
+        VirtualRegister valueKlass = new VirtualRegister(JavaKind.Long);
+        var stub = new ArrayStoreExStub(elementKlass, valueKlass);
+        stub.setDebugInfo(stateFor(instr));
+        gen.emitStoreCheck(array, value, elementKlass, valueKlass, isNullable(instr.getValue()), stub);
+        instr.storeOperand(null); // StoreCheckInstr has no operand result
     }
 
     @Override
@@ -328,7 +915,10 @@ public class LirBuilder extends InstructionVisitor implements Phase {
 
     @Override
     public void visitLoadIndexInstr(LoadIndexInstr instr) {
-
+        Address address = elementAddress(instr, instr.getIndex(), instr.getElementType());
+        LirOperand result = new VirtualRegister(instr.type());
+        instr.storeOperand(result);
+        gen.emitMov(result, address);
     }
 
     @Override
@@ -390,12 +980,23 @@ public class LirBuilder extends InstructionVisitor implements Phase {
 
     @Override
     public void visitMonitorExitInstr(MonitorExitInstr instr) {
-
+        LirOperand object = loadToReg(instr.getLock());
+        StackVar lock = new StackVar(frameMap.getMonitorSlot(instr.getLockIndex()));
+        var stub = new MonitorExitStub(object, lock);
+        stub.setDebugInfo(stateFor(instr));
+        gen.emitUnlock(object, lock, new VirtualRegister(JavaKind.Long), stub);
+        instr.storeOperand(null); // MonitorExitInstr has no operand result
     }
 
     @Override
     public void visitMonitorEnterInstr(MonitorEnterInstr instr) {
-
+        LirOperand object = loadToReg(instr.getLock());
+        StackVar lock = new StackVar(frameMap.getMonitorSlot(instr.getLockIndex()));
+        var stub = new MonitorEnterStub(object, lock);
+        stub.setDebugInfo(stateFor(instr));
+        // cmpxchg compares with rax implicitly
+        gen.emitLock(object, lock, new VirtualRegister(AMD64.rax), stub);
+        instr.storeOperand(null); // MonitorEnterInstr has no operand result
     }
 
     @Override
@@ -416,6 +1017,7 @@ public class LirBuilder extends InstructionVisitor implements Phase {
         VirtualRegister metadataReg = new VirtualRegister(AMD64.rdx);
         gen.emitMov(metadataReg, new ConstValue(JavaConstant.forLong(klassPointer)));
         var stub = new NewInstanceStub((HotSpotResolvedObjectType) instr.getKlass(), metadataReg, retReg);
+        stub.setDebugInfo(stateFor(instr));
         gen.emitJmp(stub);
         gen.emitLabel(stub.getContinuation());
         VirtualRegister result = new VirtualRegister(instr.type());
@@ -463,6 +1065,7 @@ public class LirBuilder extends InstructionVisitor implements Phase {
         var klassPointer = getKlassPointer((HotSpotResolvedJavaType) instr.getKlass());
         gen.emitMov(klassReg, new ConstValue(JavaConstant.forLong(klassPointer)));
         var stub = new NewArrayStub(length, klassReg, retReg);
+        stub.setDebugInfo(stateFor(instr));
         gen.emitAllocateArray(stub, klassReg, retReg, length, temp1, temp2, temp3, temp4, JavaKind.Object);
         LirOperand result = new VirtualRegister(instr.type());
         gen.emitMov(result, retReg);
@@ -471,16 +1074,111 @@ public class LirBuilder extends InstructionVisitor implements Phase {
 
     @Override
     public void visitCallInstr(CallInstr instr) {
+        if (!(instr.getTarget() instanceof HotSpotResolvedJavaMethod)) {
+            CompilerErrors.bailOut("Unresolved call target " + instr.getTarget().getName());
+        }
+        var target = (HotSpotResolvedJavaMethod) instr.getTarget();
+        if (isSignaturePolymorphic(target)) {
+            // MethodHandle.invoke and friends are linked to adapters rather than called
+            CompilerErrors.bailOut("Unsupported signature polymorphic call " + target.getName());
+        }
+
+        // Receiver is passed as the first argument
+        HirInstr[] hirArgs = instr.getArgs();
+        int numArgs = hirArgs.length + (instr.getReceiver() != null ? 1 : 0);
+        HirInstr[] values = new HirInstr[numArgs];
+        JavaType[] types = new JavaType[numArgs];
+        int k = 0;
+        if (instr.getReceiver() != null) {
+            values[k] = instr.getReceiver();
+            types[k++] = target.getDeclaringClass();
+        }
+        for (int i = 0; i < hirArgs.length; i++) {
+            values[k] = hirArgs[i];
+            types[k++] = instr.getSignature().getParameterType(i, target.getDeclaringClass());
+        }
+        CallingConvention cc = YarrowRuntime.regConfig.getCallingConvention(HotSpotCallingConventionType.JavaCall,
+                instr.getSignature().getReturnType(target.getDeclaringClass()), types, (ValueKindFactory<LirKind>) LirKind::of);
+        frameMap.reserveOutgoing(cc.getStackSize());
+
+        // Values are loaded before any of argument registers is assigned, otherwise loading
+        // a value might clobber an argument that was already placed
+        LirOperand[] operands = new LirOperand[numArgs];
+        for (int i = 0; i < numArgs; i++) {
+            operands[i] = values[i].loadOperand(this);
+            if (operands[i].isStackVar()) {
+                operands[i] = loadToReg(values[i]);
+            }
+        }
+        LirOperand[] args = new LirOperand[numArgs];
+        for (int i = 0; i < numArgs; i++) {
+            AllocatableValue loc = cc.getArgument(i);
+            if (loc instanceof RegisterValue) {
+                args[i] = new VirtualRegister(((RegisterValue) loc).getRegister());
+            } else {
+                args[i] = new StackVar((StackSlot) loc);
+            }
+            gen.emitMov(args[i], operands[i]);
+        }
+
+        YarrowConfigAccess access = YarrowRuntime.access;
+        LirOperand ret = instr.type() == JavaKind.Void ? LirOperand.illegal :
+                new VirtualRegister(YarrowRuntime.regConfig.getReturnRegister(instr.type()));
+        LirOperand receiver = instr.getReceiver() != null ? args[0] : null;
+        DebugInfo info = stateFor(instr);
+        switch (instr.getOpcode()) {
+            case Bytecode.INVOKESTATIC:
+            case Bytecode.INVOKEDYNAMIC:
+                // Adapter of invokedynamic is a static method
+                gen.emitJavaCall(Mnemonic.DirectCall, ret, target, args, null, null, access.invokeStaticMark, 0, info);
+                break;
+            case Bytecode.INVOKESPECIAL:
+                gen.emitJavaCall(Mnemonic.DirectCall, ret, target, args, receiver, null, access.invokeSpecialMark, 0, info);
+                break;
+            case Bytecode.INVOKEVIRTUAL:
+                if (target.canBeStaticallyBound()) {
+                    // Final methods and methods of final classes have exactly one implementation
+                    gen.emitJavaCall(Mnemonic.DirectCall, ret, target, args, receiver, null, access.invokeSpecialMark, 0, info);
+                } else if (instr.isMegamorphic() && target.isInVirtualMethodTable(target.getDeclaringClass())) {
+                    // Inline cache would miss anyway, dispatch through vtable directly
+                    int offset = target.vtableEntryOffset(target.getDeclaringClass());
+                    gen.emitJavaCall(Mnemonic.VtableCall, ret, target, args, receiver,
+                            new VirtualRegister(AMD64.rbx), access.inlineInvokeMark, offset, info);
+                } else {
+                    gen.emitJavaCall(Mnemonic.IcCall, ret, target, args, receiver,
+                            new VirtualRegister(AMD64.rax), access.invokeVirtualMark, 0, info);
+                }
+                break;
+            case Bytecode.INVOKEINTERFACE:
+                // Megamorphic interface calls are dispatched by itable stub that VM patches in
+                gen.emitJavaCall(Mnemonic.IcCall, ret, target, args, receiver,
+                        new VirtualRegister(AMD64.rax), access.invokeInterfaceMark, 0, info);
+                break;
+            default:
+                YarrowError.shouldNotReachHere();
+        }
+
+        if (instr.type() == JavaKind.Void) {
+            instr.storeOperand(null); // Void call has no operand result
+        } else {
+            LirOperand result = new VirtualRegister(instr.type());
+            gen.emitMov(result, ret);
+            instr.storeOperand(result);
+        }
     }
 
     @Override
     public void visitGotoInstr(GotoInstr instr) {
-
+        gen.emitJmp(instr.getSuccessor().get(0));
+        instr.storeOperand(null); // GotoInstr has no operand result
     }
 
     @Override
     public void visitReturnInstr(ReturnInstr instr) {
+        // Returning to a frame that VM is inspecting is not allowed, poll before that
+        VirtualRegister temp = new VirtualRegister(JavaKind.Long);
         if (instr.isType(JavaKind.Void)) {
+            gen.emitReturnPoll(pollingPage(), temp);
             gen.emitReturn(LirOperand.illegal);
             instr.storeOperand(null); // ReturnInstr has no operand result
             return;
@@ -488,10 +1186,28 @@ public class LirBuilder extends InstructionVisitor implements Phase {
 
         VirtualRegister retReg = new VirtualRegister(YarrowRuntime.regConfig.getReturnRegister(instr.type()));
         LirOperand left = instr.getReturnValue().loadOperandToReg(this, gen, retReg);
+        gen.emitReturnPoll(pollingPage(), temp);
         gen.emitReturn(left);
         instr.storeOperand(null); // ReturnInstr has no operand result
     }
 
+    @Override
+    public void visitDeoptimizeInstr(DeoptimizeInstr instr) {
+        // Deoptimization blob picks up trap request from current thread, r15 always holds it
+        VirtualRegister thread = new VirtualRegister(AMD64.r15);
+        JavaConstant actionAndReason = YarrowRuntime.metaAccess.encodeDeoptActionAndReason(instr.getAction(), instr.getReason(), 0);
+        JavaConstant speculation = instr.getSpeculation() == null ? JavaConstant.LONG_0 :
+                YarrowRuntime.metaAccess.encodeSpeculation(instr.getSpeculation());
+        Address pendingDeopt = new Address(thread, LirOperand.illegal, 1, YarrowRuntime.access.pendingDeoptimizationOffset, JavaKind.Int);
+        Address pendingSpeculation = new Address(thread, LirOperand.illegal, 1, YarrowRuntime.access.pendingFailedSpeculationOffset, JavaKind.Long);
+        gen.emitMov(pendingDeopt, new ConstValue(actionAndReason));
+        gen.emitMov(pendingSpeculation, new ConstValue(speculation));
+        var stub = new UncommonTrapStub();
+        stub.setDebugInfo(stateFor(instr));
+        gen.emitJmp(stub);
+        instr.storeOperand(null); // DeoptimizeInstr has no operand result
+    }
+
     @Override
     public void visitOp2Instr(Op2Instr instr) {
         YarrowError.shouldNotReachHere();
@@ -515,6 +1231,7 @@ public class LirBuilder extends InstructionVisitor implements Phase {
         var klassPointer = getKlassPointer(instr.getElemementType().toJavaClass());
         gen.emitMov(klassReg, new ConstValue(JavaConstant.forLong(klassPointer)));
         var stub = new NewArrayStub(length, klassReg, retReg);
+        stub.setDebugInfo(stateFor(instr));
         gen.emitAllocateArray(stub, klassReg, retReg, length, temp1, temp2, temp3, temp4, instr.getElemementType());
         LirOperand result = new VirtualRegister(instr.type());
         gen.emitMov(result, retReg);
@@ -522,16 +1239,9 @@ public class LirBuilder extends InstructionVisitor implements Phase {
     }
 
     private long getKlassPointer(HotSpotResolvedJavaType klass) {
-        Class<?> javaClass = null;
-
-        try {
-            Method m = klass.getClass().getMethod("mirror");
-            m.setAccessible(true);
-            javaClass = (Class<?>) m.invoke(klass);
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
-        }
-        return getKlassPointer(javaClass);
+        // Mirror is the java.lang.Class object, which refers to its Klass
+        var mirror = (HotSpotObjectConstant) YarrowRuntime.constReflection.asJavaClass(klass);
+        return getKlassPointer(mirror.asObject(Class.class));
     }
 
     private long getKlassPointer(Class<?> javaClass) {
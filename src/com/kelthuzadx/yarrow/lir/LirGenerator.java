@@ -5,12 +5,21 @@ import com.kelthuzadx.yarrow.hir.instr.BlockStartInstr;
 import com.kelthuzadx.yarrow.lir.instr.*;
 import com.kelthuzadx.yarrow.lir.operand.Address;
 import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.stub.ArrayStoreExStub;
 import com.kelthuzadx.yarrow.lir.stub.ClassCastExStub;
+import com.kelthuzadx.yarrow.lir.stub.G1PostBarrierStub;
+import com.kelthuzadx.yarrow.lir.stub.G1PreBarrierStub;
+import com.kelthuzadx.yarrow.lir.stub.IdentityHashCodeStub;
+import com.kelthuzadx.yarrow.lir.stub.MonitorEnterStub;
+import com.kelthuzadx.yarrow.lir.stub.MonitorExitStub;
 import com.kelthuzadx.yarrow.lir.stub.NewArrayStub;
 import com.kelthuzadx.yarrow.lir.stub.RuntimeStub;
+import com.kelthuzadx.yarrow.lir.stub.UncommonTrapStub;
 import com.kelthuzadx.yarrow.util.Logger;
-import jdk.vm.ci.hotspot.HotSpotResolvedJavaType;
+import jdk.vm.ci.code.DebugInfo;
+import jdk.vm.ci.hotspot.HotSpotResolvedObjectType;
 import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
 
 import static com.kelthuzadx.yarrow.core.YarrowProperties.Debug.TraceLIRGeneration;
 
@@ -31,12 +40,45 @@ public class LirGenerator {
         this.currentBlockId = currentBlockId;
     }
 
-    public void emitCheckCast(LirOperand result, LirOperand object, HotSpotResolvedJavaType klassType, ClassCastExStub stub) {
-        appendToList(new JavaCheckCastInstr(result, object, klassType, stub));
+    public void emitCheckCast(LirOperand result, LirOperand object, LirOperand objectKlass, HotSpotResolvedObjectType klassType, boolean isNullable, ClassCastExStub stub) {
+        appendToList(new JavaCheckCastInstr(result, object, objectKlass, klassType, isNullable, stub));
     }
 
-    public void emitInstanceOf(LirOperand result, LirOperand object, HotSpotResolvedJavaType klass) {
-        appendToList(new JavaInstanceOfInstr(result, object, klass));
+    public void emitStoreCheck(LirOperand array, LirOperand value, LirOperand elementKlass, LirOperand valueKlass, boolean isNullable, ArrayStoreExStub stub) {
+        appendToList(new JavaStoreCheckInstr(array, value, elementKlass, valueKlass, isNullable, stub));
+    }
+
+    public void emitArrayCopy(LirOperand src, LirOperand srcPos, LirOperand dst, LirOperand dstPos, LirOperand length,
+                              LirOperand tmp, JavaKind elementType, int flags, long stubEntry, UncommonTrapStub stub) {
+        appendToList(new JavaArrayCopyInstr(src, srcPos, dst, dstPos, length, tmp, elementType, flags, stubEntry, stub));
+    }
+
+    public void emitIdentityHashCode(LirOperand result, LirOperand object, LirOperand tmp, boolean isNullable, IdentityHashCodeStub stub) {
+        appendToList(new JavaIdentityHashCodeInstr(result, object, tmp, isNullable, stub));
+    }
+
+    public void emitClassInitBarrier(LirOperand klass, UncommonTrapStub stub) {
+        appendToList(new ClassInitBarrierInstr(klass, stub));
+    }
+
+    public void emitNullCheck(LirOperand object, UncommonTrapStub stub) {
+        appendToList(new NullCheckTrapInstr(object, stub));
+    }
+
+    public void emitCompareAndSwap(LirOperand result, Address address, LirOperand expected, LirOperand newValue) {
+        appendToList(new CompareAndSwapInstr(result, address, expected, newValue));
+    }
+
+    public void emitLock(LirOperand object, LirOperand lock, LirOperand header, MonitorEnterStub stub) {
+        appendToList(new LockInstr(object, lock, header, stub));
+    }
+
+    public void emitUnlock(LirOperand object, LirOperand lock, LirOperand header, MonitorExitStub stub) {
+        appendToList(new UnlockInstr(object, lock, header, stub));
+    }
+
+    public void emitInstanceOf(LirOperand result, LirOperand object, LirOperand objectKlass, HotSpotResolvedObjectType klass, boolean isNullable) {
+        appendToList(new JavaInstanceOfInstr(result, object, objectKlass, klass, isNullable));
     }
 
     public void emitLcmp(LirOperand result, LirOperand left, LirOperand right) {
@@ -107,12 +149,65 @@ public class LirGenerator {
         appendToList(new Op2Instr(Mnemonic.REM, result, left, right));
     }
 
+    public void emitAbs(LirOperand result, LirOperand operand) {
+        appendToList(new Op1Instr(Mnemonic.ABS, result, operand));
+    }
+
+    public void emitPopcnt(LirOperand result, LirOperand operand) {
+        appendToList(new Op1Instr(Mnemonic.POPCNT, result, operand));
+    }
+
+    public void emitLzcnt(LirOperand result, LirOperand operand) {
+        appendToList(new Op1Instr(Mnemonic.LZCNT, result, operand));
+    }
+
+    public void emitTzcnt(LirOperand result, LirOperand operand) {
+        appendToList(new Op1Instr(Mnemonic.TZCNT, result, operand));
+    }
+
+    public void emitBswap(LirOperand result, LirOperand operand) {
+        appendToList(new Op1Instr(Mnemonic.BSWAP, result, operand));
+    }
+
+    public void emitRol(LirOperand dest, LirOperand value, LirOperand count) {
+        appendToList(new Op2Instr(Mnemonic.ROL, dest, value, count));
+    }
+
+    public void emitRor(LirOperand dest, LirOperand value, LirOperand count) {
+        appendToList(new Op2Instr(Mnemonic.ROR, dest, value, count));
+    }
+
+    public void emitSqrt(LirOperand result, LirOperand operand) {
+        appendToList(new Op1Instr(Mnemonic.SQRT, result, operand));
+    }
+
+    /**
+     * Unlike minss/minsd, float min and max return NaN if either operand is NaN, and
+     * order -0.0 below 0.0
+     */
+    public void emitMin(LirOperand result, LirOperand left, LirOperand right) {
+        appendToList(new Op2Instr(Mnemonic.MIN, result, left, right));
+    }
+
+    public void emitMax(LirOperand result, LirOperand left, LirOperand right) {
+        appendToList(new Op2Instr(Mnemonic.MAX, result, left, right));
+    }
+
+    public void emitFma(LirOperand result, LirOperand a, LirOperand b, LirOperand c) {
+        appendToList(new Op3Instr(Mnemonic.FMA, result, a, b, c));
+    }
+
     public void emitMov(LirOperand dest, LirOperand src) {
         appendToList(new Op1Instr(Mnemonic.MOV, dest, src));
     }
 
-    public void emitCallRt(LirOperand result, Address rountine, LirOperand[] argument) {
-        appendToList(new CallRtInstr(result, rountine, argument));
+    public void emitCallRt(LirOperand result, Address rountine, LirOperand[] argument, DebugInfo info) {
+        appendToList(new CallRtInstr(result, rountine, argument, info));
+    }
+
+    public void emitJavaCall(Mnemonic mnemonic, LirOperand result, ResolvedJavaMethod target, LirOperand[] args,
+                             LirOperand receiver, LirOperand temp, int markId, int vtableEntryOffset, DebugInfo info) {
+        appendToList(new JavaCallInstr(mnemonic, result, target, args, receiver, temp, markId, vtableEntryOffset, info));
     }
 
     public void emitMembar(Mnemonic mnemonic) {
@@ -127,11 +222,39 @@ public class LirGenerator {
         appendToList(new JmpInstr(Cond.Always, stub));
     }
 
+    public void emitJmp(Cond condition, RuntimeStub stub) {
+        appendToList(new JmpInstr(condition, stub));
+    }
+
     public void emitReturn(LirOperand ret) {
         appendToList(new Op1Instr(Mnemonic.RETURN, LirOperand.illegal, ret));
     }
 
 
+    public void emitSafepointPoll(Address pollingPage, LirOperand temp, DebugInfo info) {
+        appendToList(new SafepointPollInstr(pollingPage, temp, LirOperand.illegal, LirOperand.illegal, 0, false, info));
+    }
+
+    public void emitSafepointPoll(Address pollingPage, LirOperand temp, LirOperand induction, LirOperand next, int stripMiningBit, DebugInfo info) {
+        appendToList(new SafepointPollInstr(pollingPage, temp, induction, next, stripMiningBit, false, info));
+    }
+
+    public void emitReturnPoll(Address pollingPage, LirOperand temp) {
+        appendToList(new SafepointPollInstr(pollingPage, temp, LirOperand.illegal, LirOperand.illegal, 0, true, null));
+    }
+
+    public void emitCardMark(Address address, LirOperand temp) {
+        appendToList(new CardMarkInstr(address, temp));
+    }
+
+    public void emitG1PreBarrier(Address address, LirOperand preVal, Address markingActive, G1PreBarrierStub stub) {
+        appendToList(new G1PreBarrierInstr(address, preVal, markingActive, stub));
+    }
+
+    public void emitG1PostBarrier(Address address, LirOperand newVal, LirOperand temp, LirOperand card, G1PostBarrierStub stub) {
+        appendToList(new G1PostBarrierInstr(address, newVal, temp, card, stub));
+    }
+
     public void emitNormalEntry() {
         appendToList(new Op0Instr(Mnemonic.NormalEntry, LirOperand.illegal));
     }
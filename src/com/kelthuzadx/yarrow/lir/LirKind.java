@@ -0,0 +1,57 @@
+package com.kelthuzadx.yarrow.lir;
+
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.PlatformKind;
+import jdk.vm.ci.meta.ValueKind;
+
+/**
+ * Machine level kind of a value, it additionally remembers whether the value is an
+ * object reference so that GC can find it in debug info.
+ *
+ * @author kelthuzadx
+ */
+public class LirKind extends ValueKind<LirKind> {
+    private final boolean reference;
+
+    private LirKind(PlatformKind platformKind, boolean reference) {
+        super(platformKind);
+        this.reference = reference;
+    }
+
+    public static LirKind of(JavaKind kind) {
+        return new LirKind(YarrowRuntime.arch.getPlatformKind(kind), kind == JavaKind.Object);
+    }
+
+    public static LirKind word() {
+        return new LirKind(YarrowRuntime.arch.getWordKind(), false);
+    }
+
+    public boolean isReference() {
+        return reference;
+    }
+
+    @Override
+    public LirKind changeType(PlatformKind newPlatformKind) {
+        return new LirKind(newPlatformKind, reference);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof LirKind)) {
+            return false;
+        }
+        LirKind that = (LirKind) obj;
+        return getPlatformKind() == that.getPlatformKind() && reference == that.reference;
+    }
+
+    @Override
+    public int hashCode() {
+        return getPlatformKind().hashCode() * 31 + (reference ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return reference ? "ref" : getPlatformKind().toString();
+    }
+}
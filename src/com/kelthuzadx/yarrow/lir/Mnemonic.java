@@ -14,14 +14,35 @@ public enum Mnemonic {
     MembarAcquire,
     MembarRelease,
     CallRt,
+    DirectCall,
+    IcCall,
+    VtableCall,
     TypeCast,
     InstanceOf,
     CheckCast,
+    StoreCheck,
+    ArrayCopy,
+    IdentityHashCode,
+    ClassInitBarrier,
+    NullCheck,
+    CompareAndSwap,
+    Lock,
+    Unlock,
+    SafepointPoll,
+    CardMark,
+    G1PreBarrier,
+    G1PostBarrier,
 
     // 1 operand opcode
     MOV,
     JMP,
     RETURN,
+    ABS,
+    SQRT,
+    POPCNT,
+    LZCNT,
+    TZCNT,
+    BSWAP,
 
     // 2 operands opcode
     ADD,
@@ -38,6 +59,11 @@ public enum Mnemonic {
     NEG,
     FCMP,
     FCMPU,
-    LCMP
+    LCMP,
+    MIN,
+    MAX,
+    ROL,
+    ROR,
     // 3 operand opcode
+    FMA
 }
@@ -4,15 +4,22 @@ import com.kelthuzadx.yarrow.lir.Mnemonic;
 import com.kelthuzadx.yarrow.lir.operand.Address;
 import com.kelthuzadx.yarrow.lir.operand.LirOperand;
 import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.code.DebugInfo;
 
 public class CallRtInstr extends LirInstr {
     private Address routine;
     private LirOperand[] argument;
+    private DebugInfo debugInfo;
 
-    public CallRtInstr(LirOperand result, Address routine, LirOperand[] argument) {
+    public CallRtInstr(LirOperand result, Address routine, LirOperand[] argument, DebugInfo debugInfo) {
         super(Mnemonic.CallRt, result);
         this.routine = routine;
         this.argument = argument;
+        this.debugInfo = debugInfo;
+    }
+
+    public DebugInfo getDebugInfo() {
+        return debugInfo;
     }
 
     @Override
@@ -0,0 +1,33 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.Address;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.util.Logger;
+
+/**
+ * Dirty the card covering address after a reference store, i.e.
+ * {@code lea temp,address; shr temp,cardShift; mov byte [cardTableStart+temp],dirty}
+ */
+public class CardMarkInstr extends LirInstr {
+    private Address address;
+    private LirOperand temp;
+    private long cardTableStart;
+    private int cardShift;
+    private int dirtyValue;
+
+    public CardMarkInstr(Address address, LirOperand temp) {
+        super(Mnemonic.CardMark, LirOperand.illegal);
+        this.address = address;
+        this.temp = temp;
+        this.cardTableStart = YarrowRuntime.access.cardTableStart;
+        this.cardShift = YarrowRuntime.access.cardTableShift;
+        this.dirtyValue = YarrowRuntime.access.dirtyCardValue;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: card_mark {}", super.id, address);
+    }
+}
@@ -0,0 +1,45 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowConfigAccess;
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.stub.UncommonTrapStub;
+import com.kelthuzadx.yarrow.util.Logger;
+
+/**
+ * Continue only if class is initialized, or its static initializer is running on current thread:
+ * <pre>
+ *     cmpb [klass+initState], fully_initialized
+ *     je done
+ *     cmp [klass+initThread], r15
+ *     jne stub                        ; deoptimize, interpreter initializes the class
+ * done:
+ * </pre>
+ */
+public class ClassInitBarrierInstr extends LirInstr {
+    private LirOperand klass;
+    private UncommonTrapStub stub;
+    private int initStateOffset;
+    private int initThreadOffset;
+    private int fullyInitialized;
+
+    public ClassInitBarrierInstr(LirOperand klass, UncommonTrapStub stub) {
+        super(Mnemonic.ClassInitBarrier, null);
+        this.klass = klass;
+        this.stub = stub;
+        YarrowConfigAccess access = YarrowRuntime.access;
+        this.initStateOffset = access.instanceKlassInitStateOffset;
+        this.initThreadOffset = access.instanceKlassInitThreadOffset;
+        this.fullyInitialized = access.instanceKlassFullyInitialized;
+    }
+
+    public UncommonTrapStub getStub() {
+        return stub;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: class_init_barrier {}", super.id, klass);
+    }
+}
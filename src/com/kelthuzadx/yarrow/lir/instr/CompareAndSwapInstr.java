@@ -0,0 +1,32 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.Address;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.util.Logger;
+
+/**
+ * Atomically replace value at address if it's the expected one:
+ * <pre>
+ *     lock cmpxchg [address], newValue    ; compares with expected in rax
+ *     sete result
+ *     movzx result, result
+ * </pre>
+ */
+public class CompareAndSwapInstr extends LirInstr {
+    private Address address;
+    private LirOperand expected;
+    private LirOperand newValue;
+
+    public CompareAndSwapInstr(LirOperand result, Address address, LirOperand expected, LirOperand newValue) {
+        super(Mnemonic.CompareAndSwap, result);
+        this.address = address;
+        this.expected = expected;
+        this.newValue = newValue;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: cas {},{},{},{}", super.id, result, address, expected, newValue);
+    }
+}
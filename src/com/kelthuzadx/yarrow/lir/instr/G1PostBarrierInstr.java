@@ -0,0 +1,49 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.Address;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.stub.G1PostBarrierStub;
+import com.kelthuzadx.yarrow.util.Logger;
+
+/**
+ * Post barrier of G1, stores within the same region and stores of null are filtered inline,
+ * so is a card that belongs to young generation or is already dirty after a StoreLoad fence.
+ * Otherwise the card is dirtied and enqueued by stub.
+ */
+public class G1PostBarrierInstr extends LirInstr {
+    private Address address;
+    private LirOperand newVal;
+    private LirOperand temp;
+    private LirOperand card;
+    private G1PostBarrierStub stub;
+    private int regionShift;
+    private long cardTableStart;
+    private int cardShift;
+    private int youngValue;
+    private int dirtyValue;
+
+    public G1PostBarrierInstr(Address address, LirOperand newVal, LirOperand temp, LirOperand card, G1PostBarrierStub stub) {
+        super(Mnemonic.G1PostBarrier, LirOperand.illegal);
+        this.address = address;
+        this.newVal = newVal;
+        this.temp = temp;
+        this.card = card;
+        this.stub = stub;
+        this.regionShift = YarrowRuntime.access.logOfHeapRegionGrainBytes;
+        this.cardTableStart = YarrowRuntime.access.cardTableStart;
+        this.cardShift = YarrowRuntime.access.cardTableShift;
+        this.youngValue = YarrowRuntime.access.g1YoungCardValue;
+        this.dirtyValue = YarrowRuntime.access.dirtyCardValue;
+    }
+
+    public G1PostBarrierStub getStub() {
+        return stub;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: g1_post_barrier {},{}", super.id, address, newVal);
+    }
+}
@@ -0,0 +1,39 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.Address;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.stub.G1PreBarrierStub;
+import com.kelthuzadx.yarrow.util.Logger;
+
+/**
+ * SATB barrier of G1, it only checks whether concurrent marking is active, the rest is done
+ * in stub. If address is null, previous value is already in preVal, which is the case of
+ * keeping referent of java.lang.ref.Reference alive.
+ */
+public class G1PreBarrierInstr extends LirInstr {
+    private Address address;
+    private LirOperand preVal;
+    private Address markingActive;
+    private G1PreBarrierStub stub;
+
+    public G1PreBarrierInstr(Address address, LirOperand preVal, Address markingActive, G1PreBarrierStub stub) {
+        super(Mnemonic.G1PreBarrier, LirOperand.illegal);
+        this.address = address;
+        this.preVal = preVal;
+        this.markingActive = markingActive;
+        this.stub = stub;
+    }
+
+    public G1PreBarrierStub getStub() {
+        return stub;
+    }
+
+    @Override
+    public String toString() {
+        if (address == null) {
+            return Logger.format("i{}: g1_pre_barrier {}", super.id, preVal);
+        }
+        return Logger.format("i{}: g1_pre_barrier {}", super.id, address);
+    }
+}
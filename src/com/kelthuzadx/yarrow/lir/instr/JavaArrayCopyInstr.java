@@ -0,0 +1,78 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowConfigAccess;
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.hir.instr.ArrayCopyInstr;
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.stub.UncommonTrapStub;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Copy array elements by copy stub of VM. Checks required by flags of {@link ArrayCopyInstr}
+ * are done before calling the stub, it jumps to uncommon trap if any of them fails.
+ * <pre>
+ *     test src,src; jz trap                       ; SRC_NULL_CHECK
+ *     test srcPos,srcPos; jl trap                 ; SRC_POS_POSITIVE_CHECK
+ *     test length,length; jl trap                 ; LENGTH_POSITIVE_CHECK
+ *     lea tmp,[srcPos+length]
+ *     cmp tmp,[src+lengthOffset]; ja trap         ; SRC_RANGE_CHECK
+ *     ...                                         ; same for dst
+ *     lea c_rarg0,[src+srcPos*scale+base]
+ *     lea c_rarg1,[dst+dstPos*scale+base]
+ *     mov c_rarg2,length
+ *     call stubEntry
+ * </pre>
+ * With TYPE_CHECK, element klass of destination and its super check offset are passed to
+ * checkcast copy stub as well, stub returns non-zero if it stopped at an element that is not
+ * an instance of it.
+ */
+public class JavaArrayCopyInstr extends LirInstr {
+    private LirOperand src;
+    private LirOperand srcPos;
+    private LirOperand dst;
+    private LirOperand dstPos;
+    private LirOperand length;
+    private LirOperand tmp;
+    private JavaKind elementType;
+    private int flags;
+    private long stubEntry;
+    private UncommonTrapStub stub;
+    private int arrayLengthOffset;
+    private int arrayBaseOffset;
+    private int arrayIndexScale;
+    private int elementKlassOffset;
+    private int superCheckOffsetOffset;
+
+    public JavaArrayCopyInstr(LirOperand src, LirOperand srcPos, LirOperand dst, LirOperand dstPos, LirOperand length,
+                              LirOperand tmp, JavaKind elementType, int flags, long stubEntry, UncommonTrapStub stub) {
+        super(Mnemonic.ArrayCopy, LirOperand.illegal);
+        this.src = src;
+        this.srcPos = srcPos;
+        this.dst = dst;
+        this.dstPos = dstPos;
+        this.length = length;
+        this.tmp = tmp;
+        this.elementType = elementType;
+        this.flags = flags;
+        this.stubEntry = stubEntry;
+        this.stub = stub;
+        YarrowConfigAccess access = YarrowRuntime.access;
+        this.arrayLengthOffset = access.getArrayLengthOffset();
+        this.arrayBaseOffset = YarrowRuntime.metaAccess.getArrayBaseOffset(elementType);
+        this.arrayIndexScale = YarrowRuntime.metaAccess.getArrayIndexScale(elementType);
+        this.elementKlassOffset = access.elementKlassOffset;
+        this.superCheckOffsetOffset = access.superCheckOffsetOffset;
+    }
+
+    public UncommonTrapStub getStub() {
+        return stub;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: arraycopy {}[{}] -> {}[{}],{} {} flags={} stub=0x{}", super.id, src, srcPos,
+                dst, dstPos, length, elementType.getJavaName(), Integer.toBinaryString(flags), Long.toHexString(stubEntry));
+    }
+}
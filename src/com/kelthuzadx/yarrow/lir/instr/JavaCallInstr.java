@@ -0,0 +1,66 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowConfigAccess;
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.code.DebugInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Call to a Java method, arguments are already placed as calling convention requires.
+ * <ul>
+ *     <li>DirectCall is bound to the target when the call site is first resolved by VM</li>
+ *     <li>IcCall loads non-oop word into rax as inline cache, VM patches it with the
+ *     receiver klass seen at first call, and turns it into a vtable or itable stub call
+ *     when the call site becomes megamorphic</li>
+ *     <li>VtableCall loads target Method* from vtable of receiver klass and calls its
+ *     compiled entry, it's used when call site is known to be megamorphic already</li>
+ * </ul>
+ */
+public class JavaCallInstr extends LirInstr {
+    private ResolvedJavaMethod target;
+    private LirOperand[] args;
+    private LirOperand receiver;
+    private LirOperand temp;
+    private DebugInfo debugInfo;
+    private int markId;
+    private long nonOopBits;
+    private int vtableEntryOffset;
+    private int compiledEntryOffset;
+
+    public JavaCallInstr(Mnemonic mnemonic, LirOperand result, ResolvedJavaMethod target, LirOperand[] args,
+                         LirOperand receiver, LirOperand temp, int markId, int vtableEntryOffset, DebugInfo debugInfo) {
+        super(mnemonic, result);
+        this.target = target;
+        this.args = args;
+        this.receiver = receiver;
+        this.temp = temp;
+        this.markId = markId;
+        this.vtableEntryOffset = vtableEntryOffset;
+        this.debugInfo = debugInfo;
+        YarrowConfigAccess access = YarrowRuntime.access;
+        this.nonOopBits = access.nonOopBits;
+        this.compiledEntryOffset = access.methodCompiledEntryOffset;
+    }
+
+    public DebugInfo getDebugInfo() {
+        return debugInfo;
+    }
+
+    @Override
+    public String toString() {
+        String name = target.getDeclaringClass().getUnqualifiedName() + "." + target.getName();
+        switch (mnemonic) {
+            case DirectCall:
+                return Logger.format("i{}: call_direct {}", super.id, name);
+            case IcCall:
+                return Logger.format("i{}: call_ic {},{}", super.id, receiver, name);
+            case VtableCall:
+                return Logger.format("i{}: call_vtable {}[{}],{}", super.id, receiver, vtableEntryOffset, name);
+            default:
+                return Logger.format("i{}: call {}", super.id, name);
+        }
+    }
+}
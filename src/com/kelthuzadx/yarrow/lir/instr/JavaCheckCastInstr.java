@@ -4,23 +4,22 @@ import com.kelthuzadx.yarrow.lir.Mnemonic;
 import com.kelthuzadx.yarrow.lir.operand.LirOperand;
 import com.kelthuzadx.yarrow.lir.stub.ClassCastExStub;
 import com.kelthuzadx.yarrow.util.Logger;
-import jdk.vm.ci.hotspot.HotSpotResolvedJavaType;
+import jdk.vm.ci.hotspot.HotSpotResolvedObjectType;
 
-public class JavaCheckCastInstr extends LirInstr {
-    private LirOperand object;
-    private HotSpotResolvedJavaType klassType;
+public class JavaCheckCastInstr extends TypeCheckInstr {
     private ClassCastExStub stub;
 
-    public JavaCheckCastInstr(LirOperand result, LirOperand object, HotSpotResolvedJavaType klassType, ClassCastExStub stub) {
-        super(Mnemonic.CheckCast, result);
-        this.object = object;
-        this.klassType = klassType;
+    public JavaCheckCastInstr(LirOperand result, LirOperand object, LirOperand objectKlass, HotSpotResolvedObjectType klassType, boolean isNullable, ClassCastExStub stub) {
+        super(Mnemonic.CheckCast, result, object, objectKlass, klassType, isNullable);
         this.stub = stub;
     }
 
+    public ClassCastExStub getStub() {
+        return stub;
+    }
 
     @Override
     public String toString() {
-        return Logger.format("i{}: cast_obj {},{}", super.id, object.toString(), klassType.getName());
+        return Logger.format("i{}: cast_obj {},{} [{}]", super.id, object.toString(), klassType.getName(), checkKind());
     }
 }
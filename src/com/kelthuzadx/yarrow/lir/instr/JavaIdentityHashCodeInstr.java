@@ -0,0 +1,58 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowConfigAccess;
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.stub.IdentityHashCodeStub;
+import com.kelthuzadx.yarrow.util.Logger;
+
+/**
+ * Read identity hash code from mark word:
+ * <pre>
+ *     result = 0
+ *     test object, object             ; only if object is nullable
+ *     je done
+ *     tmp = [object+mark]
+ *     result = tmp & lockMask
+ *     cmp result, unlocked
+ *     jne stub                        ; displaced or inflated mark word
+ *     result = (tmp >> hashShift) & hashMask
+ *     je stub                         ; hash is not installed yet
+ * done:
+ * </pre>
+ */
+public class JavaIdentityHashCodeInstr extends LirInstr {
+    private LirOperand object;
+    private LirOperand tmp;
+    private boolean isNullable;
+    private IdentityHashCodeStub stub;
+    private int markOffset;
+    private long unlockedValue;
+    private long lockMask;
+    private int hashShift;
+    private long hashMask;
+
+    public JavaIdentityHashCodeInstr(LirOperand result, LirOperand object, LirOperand tmp, boolean isNullable, IdentityHashCodeStub stub) {
+        super(Mnemonic.IdentityHashCode, result);
+        this.object = object;
+        this.tmp = tmp;
+        this.isNullable = isNullable;
+        this.stub = stub;
+        YarrowConfigAccess access = YarrowRuntime.access;
+        this.markOffset = access.markOffset;
+        this.unlockedValue = access.unlockedValue;
+        this.lockMask = access.lockMaskInPlace;
+        this.hashShift = access.markWordHashShift;
+        this.hashMask = access.markWordHashMask;
+    }
+
+    public IdentityHashCodeStub getStub() {
+        return stub;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: identity_hash {},{}", super.id, result, object);
+    }
+}
@@ -3,20 +3,15 @@ package com.kelthuzadx.yarrow.lir.instr;
 import com.kelthuzadx.yarrow.lir.Mnemonic;
 import com.kelthuzadx.yarrow.lir.operand.LirOperand;
 import com.kelthuzadx.yarrow.util.Logger;
-import jdk.vm.ci.hotspot.HotSpotResolvedJavaType;
+import jdk.vm.ci.hotspot.HotSpotResolvedObjectType;
 
-public class JavaInstanceOfInstr extends LirInstr {
-    private LirOperand object;
-    private HotSpotResolvedJavaType klassType;
-
-    public JavaInstanceOfInstr(LirOperand result, LirOperand object, HotSpotResolvedJavaType klassType) {
-        super(Mnemonic.InstanceOf, result);
-        this.object = object;
-        this.klassType = klassType;
+public class JavaInstanceOfInstr extends TypeCheckInstr {
+    public JavaInstanceOfInstr(LirOperand result, LirOperand object, LirOperand objectKlass, HotSpotResolvedObjectType klassType, boolean isNullable) {
+        super(Mnemonic.InstanceOf, result, object, objectKlass, klassType, isNullable);
     }
 
     @Override
     public String toString() {
-        return Logger.format("i{}: type_check {},{}", super.id, object.toString(), klassType.getName());
+        return Logger.format("i{}: type_check {},{} [{}]", super.id, object.toString(), klassType.getName(), checkKind());
     }
 }
@@ -0,0 +1,52 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowConfigAccess;
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.stub.ArrayStoreExStub;
+import com.kelthuzadx.yarrow.util.Logger;
+
+/**
+ * Fast path of aastore check. Null is always storable, otherwise element klass of array is
+ * compared with klass of value, they are the same in most cases. Stub does the full subtype
+ * check if they are not.
+ */
+public class JavaStoreCheckInstr extends LirInstr {
+    private LirOperand array;
+    private LirOperand value;
+    private LirOperand elementKlass;
+    private LirOperand valueKlass;
+    private boolean isNullable;
+    private ArrayStoreExStub stub;
+    private int klassOffset;
+    private int elementKlassOffset;
+    private boolean isCompressed;
+    private long narrowKlassBase;
+    private int narrowKlassShift;
+
+    public JavaStoreCheckInstr(LirOperand array, LirOperand value, LirOperand elementKlass, LirOperand valueKlass, boolean isNullable, ArrayStoreExStub stub) {
+        super(Mnemonic.StoreCheck, LirOperand.illegal);
+        this.array = array;
+        this.value = value;
+        this.elementKlass = elementKlass;
+        this.valueKlass = valueKlass;
+        this.isNullable = isNullable;
+        this.stub = stub;
+        YarrowConfigAccess access = YarrowRuntime.access;
+        this.klassOffset = access.klassOffset;
+        this.elementKlassOffset = access.elementKlassOffset;
+        this.isCompressed = access.useCompressedClassPointers;
+        this.narrowKlassBase = access.narrowKlassBase;
+        this.narrowKlassShift = access.narrowKlassShift;
+    }
+
+    public ArrayStoreExStub getStub() {
+        return stub;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: store_check {},{}", super.id, value, array);
+    }
+}
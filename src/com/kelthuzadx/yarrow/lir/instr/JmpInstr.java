@@ -29,6 +29,10 @@ public class JmpInstr extends Op0Instr {
 
     @Override
     public String toString() {
-        return Logger.format("i{}: jmp {}", super.id, block == null ? stub.toString() : block.id());
+        String target = block == null ? stub.toString() : String.valueOf(block.id());
+        if (condition != Cond.Always) {
+            return Logger.format("i{}: jmp_{} {}", super.id, condition.name().toLowerCase(), target);
+        }
+        return Logger.format("i{}: jmp {}", super.id, target);
     }
 }
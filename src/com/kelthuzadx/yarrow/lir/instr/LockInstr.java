@@ -0,0 +1,58 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowConfigAccess;
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.stub.MonitorEnterStub;
+import com.kelthuzadx.yarrow.util.Logger;
+
+/**
+ * Stack locking fast path of monitorenter:
+ * <pre>
+ *     header = [object+mark] | unlocked
+ *     [lock] = header
+ *     cmpxchg [object+mark], lock     ; expects header, i.e. object is unlocked
+ *     je done
+ *     ; mark holds a BasicLock in current stack if it's a recursive locking
+ *     header = (header - rsp) & (~(pageSize-1) | lockMask)
+ *     [lock] = header
+ *     jne stub
+ * done:
+ * </pre>
+ * Runtime is only called if object is locked by other threads, inflated or biased.
+ */
+public class LockInstr extends LirInstr {
+    private LirOperand object;
+    private LirOperand lock;
+    private LirOperand header;
+    private MonitorEnterStub stub;
+    private int markOffset;
+    private int displacedHeaderOffset;
+    private long unlockedValue;
+    private long lockMask;
+    private int pageSize;
+
+    public LockInstr(LirOperand object, LirOperand lock, LirOperand header, MonitorEnterStub stub) {
+        super(Mnemonic.Lock, LirOperand.illegal);
+        this.object = object;
+        this.lock = lock;
+        this.header = header;
+        this.stub = stub;
+        YarrowConfigAccess access = YarrowRuntime.access;
+        this.markOffset = access.markOffset;
+        this.displacedHeaderOffset = access.basicLockDisplacedHeaderOffset;
+        this.unlockedValue = access.unlockedValue;
+        this.lockMask = access.lockMaskInPlace;
+        this.pageSize = access.vmPageSize;
+    }
+
+    public MonitorEnterStub getStub() {
+        return stub;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: lock {},{}", super.id, object, lock);
+    }
+}
@@ -0,0 +1,33 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.stub.UncommonTrapStub;
+import com.kelthuzadx.yarrow.util.Logger;
+
+/**
+ * Continue only if object is not null:
+ * <pre>
+ *     test object, object
+ *     jz stub                         ; deoptimize, interpreter throws NullPointerException
+ * </pre>
+ */
+public class NullCheckTrapInstr extends LirInstr {
+    private LirOperand object;
+    private UncommonTrapStub stub;
+
+    public NullCheckTrapInstr(LirOperand object, UncommonTrapStub stub) {
+        super(Mnemonic.NullCheck, null);
+        this.object = object;
+        this.stub = stub;
+    }
+
+    public UncommonTrapStub getStub() {
+        return stub;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: null_check {}", super.id, object);
+    }
+}
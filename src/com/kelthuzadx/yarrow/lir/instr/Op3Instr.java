@@ -0,0 +1,25 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.util.Logger;
+
+public class Op3Instr extends LirInstr {
+    private LirOperand firstOperand;
+    private LirOperand secondOperand;
+    private LirOperand thirdOperand;
+
+    public Op3Instr(Mnemonic mnemonic, LirOperand result, LirOperand firstOperand, LirOperand secondOperand, LirOperand thirdOperand) {
+        super(mnemonic, result);
+        this.firstOperand = firstOperand;
+        this.secondOperand = secondOperand;
+        this.thirdOperand = thirdOperand;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: {} {} {},{},{}", super.id, mnemonic.name().toLowerCase(), result.toString(),
+                firstOperand.toString(), secondOperand.toString(), thirdOperand.toString());
+
+    }
+}
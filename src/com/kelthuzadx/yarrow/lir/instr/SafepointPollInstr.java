@@ -0,0 +1,54 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.Address;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.util.Logger;
+import jdk.vm.ci.code.DebugInfo;
+
+/**
+ * Load polling page of current thread into temp and touch it. The page is protected when
+ * a safepoint or handshake is pending, the resulting fault is turned into a call to
+ * safepoint handler blob, which finds frame state by debug info of polling instruction.
+ * <p>
+ * A strip mined poll skips the page when {@code (induction ^ next) & stripMiningBit} is zero,
+ * a poll at method return happens after frame is removed and needs no debug info.
+ */
+public class SafepointPollInstr extends LirInstr {
+    private Address pollingPage;
+    private LirOperand temp;
+    private LirOperand induction;
+    private LirOperand next;
+    private int stripMiningBit;
+    private boolean atReturn;
+    private DebugInfo debugInfo;
+
+    public SafepointPollInstr(Address pollingPage, LirOperand temp, LirOperand induction, LirOperand next,
+                              int stripMiningBit, boolean atReturn, DebugInfo debugInfo) {
+        super(Mnemonic.SafepointPoll, LirOperand.illegal);
+        this.pollingPage = pollingPage;
+        this.temp = temp;
+        this.induction = induction;
+        this.next = next;
+        this.stripMiningBit = stripMiningBit;
+        this.atReturn = atReturn;
+        this.debugInfo = debugInfo;
+    }
+
+    public DebugInfo getDebugInfo() {
+        return debugInfo;
+    }
+
+    public boolean isAtReturn() {
+        return atReturn;
+    }
+
+    @Override
+    public String toString() {
+        String kind = atReturn ? "safepoint_poll_return" : "safepoint_poll";
+        if (stripMiningBit != 0) {
+            return Logger.format("i{}: {} {} when ({}^{})&{}", super.id, kind, pollingPage, induction, next, stripMiningBit);
+        }
+        return Logger.format("i{}: {} {}", super.id, kind, pollingPage);
+    }
+}
@@ -0,0 +1,56 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowConfigAccess;
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.hir.StaticType;
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import jdk.vm.ci.hotspot.HotSpotResolvedObjectType;
+
+/**
+ * Subtype check of HotSpot, klass of object is compared with checked klass in the cheapest
+ * way that is valid for the latter:
+ * <ul>
+ *     <li>A leaf klass has no subklass, klass pointers are compared directly</li>
+ *     <li>A class within the depth of primary super display is found at its super check
+ *     offset of object klass</li>
+ *     <li>Otherwise, e.g. interfaces, secondary super cache of object klass is compared, and
+ *     secondary supers are scanned only if cache misses</li>
+ * </ul>
+ * Object klass is compared with checked klass at first in all cases, since exact match is
+ * the most common.
+ */
+public abstract class TypeCheckInstr extends LirInstr {
+    protected LirOperand object;
+    protected LirOperand objectKlass;
+    protected HotSpotResolvedObjectType klassType;
+    protected boolean isNullable;
+    private boolean isExact;
+    private boolean isPrimary;
+    private int superCheckOffset;
+    private int secondarySuperCacheOffset;
+    private int secondarySupersOffset;
+    private int klassOffset;
+    private boolean isCompressed;
+
+    TypeCheckInstr(Mnemonic mnemonic, LirOperand result, LirOperand object, LirOperand objectKlass,
+                   HotSpotResolvedObjectType klassType, boolean isNullable) {
+        super(mnemonic, result);
+        this.object = object;
+        this.objectKlass = objectKlass;
+        this.klassType = klassType;
+        this.isNullable = isNullable;
+        this.isExact = StaticType.isLeaf(klassType);
+        this.isPrimary = klassType.isPrimaryType();
+        this.superCheckOffset = klassType.superCheckOffset();
+        YarrowConfigAccess access = YarrowRuntime.access;
+        this.secondarySuperCacheOffset = access.secondarySuperCacheOffset;
+        this.secondarySupersOffset = access.secondarySupersOffset;
+        this.klassOffset = access.klassOffset;
+        this.isCompressed = access.useCompressedClassPointers;
+    }
+
+    protected String checkKind() {
+        return isExact ? "exact" : isPrimary ? "primary" : "secondary";
+    }
+}
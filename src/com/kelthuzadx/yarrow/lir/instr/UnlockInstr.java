@@ -0,0 +1,47 @@
+package com.kelthuzadx.yarrow.lir.instr;
+
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.lir.Mnemonic;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+import com.kelthuzadx.yarrow.lir.stub.MonitorExitStub;
+import com.kelthuzadx.yarrow.util.Logger;
+
+/**
+ * Stack locking fast path of monitorexit:
+ * <pre>
+ *     header = [lock]
+ *     test header,header              ; recursive locking leaves nothing to restore
+ *     je done
+ *     rax = lock
+ *     cmpxchg [object+mark], header   ; expects object is still stack locked by us
+ *     jne stub
+ * done:
+ * </pre>
+ */
+public class UnlockInstr extends LirInstr {
+    private LirOperand object;
+    private LirOperand lock;
+    private LirOperand header;
+    private MonitorExitStub stub;
+    private int markOffset;
+    private int displacedHeaderOffset;
+
+    public UnlockInstr(LirOperand object, LirOperand lock, LirOperand header, MonitorExitStub stub) {
+        super(Mnemonic.Unlock, LirOperand.illegal);
+        this.object = object;
+        this.lock = lock;
+        this.header = header;
+        this.stub = stub;
+        this.markOffset = YarrowRuntime.access.markOffset;
+        this.displacedHeaderOffset = YarrowRuntime.access.basicLockDisplacedHeaderOffset;
+    }
+
+    public MonitorExitStub getStub() {
+        return stub;
+    }
+
+    @Override
+    public String toString() {
+        return Logger.format("i{}: unlock {},{}", super.id, object, lock);
+    }
+}
@@ -10,6 +10,10 @@ public class ConstValue extends LirOperand {
         this.constant = constant;
     }
 
+    public JavaConstant getConstant() {
+        return constant;
+    }
+
     @Override
     public JavaKind getJavaKind() {
         return constant.getJavaKind();
@@ -11,6 +11,14 @@ public class StackVar extends LirOperand {
         this.stackSlot = StackSlot.get(kind, offset, addFrameSize);
     }
 
+    public StackVar(StackSlot stackSlot) {
+        this.stackSlot = stackSlot;
+    }
+
+    public StackSlot getStackSlot() {
+        return stackSlot;
+    }
+
     @Override
     public JavaKind getJavaKind() {
         return null;
@@ -35,4 +43,9 @@ public class StackVar extends LirOperand {
     public boolean isAddress() {
         return false;
     }
+
+    @Override
+    public String toString() {
+        return stackSlot.toString();
+    }
 }
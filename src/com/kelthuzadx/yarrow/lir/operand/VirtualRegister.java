@@ -21,6 +21,10 @@ public class VirtualRegister extends LirOperand {
         this.register = register;
     }
 
+    public Register getRegister() {
+        return register;
+    }
+
     @Override
     public JavaKind getJavaKind() {
         return type;
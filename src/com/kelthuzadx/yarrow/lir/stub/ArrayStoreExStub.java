@@ -0,0 +1,23 @@
+package com.kelthuzadx.yarrow.lir.stub;
+
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+
+/**
+ * Slow path of aastore check, klass of value is checked against element klass through its
+ * primary and secondary supers. ArrayStoreException is thrown by runtime if that fails too.
+ */
+public class ArrayStoreExStub extends RuntimeStub {
+    private LirOperand elementKlass;
+    private LirOperand valueKlass;
+
+    public ArrayStoreExStub(LirOperand elementKlass, LirOperand valueKlass) {
+        super(VmStub.StubThrowKlassExternalNameException);
+        this.elementKlass = elementKlass;
+        this.valueKlass = valueKlass;
+    }
+
+    @Override
+    public String toString() {
+        return stub.toString();
+    }
+}
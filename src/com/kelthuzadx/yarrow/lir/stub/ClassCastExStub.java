@@ -2,12 +2,21 @@ package com.kelthuzadx.yarrow.lir.stub;
 
 import com.kelthuzadx.yarrow.lir.operand.LirOperand;
 
+/**
+ * Entered when checkcast fails, runtime throws ClassCastException naming the object klass
+ */
 public class ClassCastExStub extends RuntimeStub {
-    private VmStub stub;
-    private LirOperand result;
+    private LirOperand object;
+    private LirOperand objectKlass;
 
-    public ClassCastExStub(LirOperand result) {
+    public ClassCastExStub(LirOperand object, LirOperand objectKlass) {
         super(VmStub.StubThrowClassCastException);
-        this.result = result;
+        this.object = object;
+        this.objectKlass = objectKlass;
+    }
+
+    @Override
+    public String toString() {
+        return stub.toString();
     }
 }
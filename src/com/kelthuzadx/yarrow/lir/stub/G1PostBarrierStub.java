@@ -0,0 +1,26 @@
+package com.kelthuzadx.yarrow.lir.stub;
+
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+
+/**
+ * Slow path of G1 post barrier, the card is dirtied and pushed into dirty card queue of
+ * current thread, runtime is only called when queue is full.
+ */
+public class G1PostBarrierStub extends RuntimeStub {
+    private LirOperand card;
+    private int queueIndexOffset;
+    private int queueBufferOffset;
+
+    public G1PostBarrierStub(LirOperand card) {
+        super(VmStub.StubWriteBarrierPost);
+        this.card = card;
+        this.queueIndexOffset = YarrowRuntime.access.g1CardQueueIndexOffset;
+        this.queueBufferOffset = YarrowRuntime.access.g1CardQueueBufferOffset;
+    }
+
+    @Override
+    public String toString() {
+        return stub.toString();
+    }
+}
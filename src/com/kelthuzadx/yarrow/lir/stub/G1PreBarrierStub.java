@@ -0,0 +1,26 @@
+package com.kelthuzadx.yarrow.lir.stub;
+
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+
+/**
+ * Slow path of G1 SATB barrier. Previous value is loaded if needed, null is skipped, others
+ * are pushed into SATB queue of current thread, runtime is only called when queue is full.
+ */
+public class G1PreBarrierStub extends RuntimeStub {
+    private LirOperand preVal;
+    private int queueIndexOffset;
+    private int queueBufferOffset;
+
+    public G1PreBarrierStub(LirOperand preVal) {
+        super(VmStub.StubWriteBarrierPre);
+        this.preVal = preVal;
+        this.queueIndexOffset = YarrowRuntime.access.g1SatbQueueIndexOffset;
+        this.queueBufferOffset = YarrowRuntime.access.g1SatbQueueBufferOffset;
+    }
+
+    @Override
+    public String toString() {
+        return stub.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package com.kelthuzadx.yarrow.lir.stub;
+
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+
+/**
+ * Identity hash code which is not installed in mark word yet, or object is locked
+ */
+public class IdentityHashCodeStub extends RuntimeStub {
+    private LirOperand object;
+    private LirOperand result;
+
+    public IdentityHashCodeStub(LirOperand object, LirOperand result) {
+        super(VmStub.StubIdentityHashCode);
+        this.object = object;
+        this.result = result;
+    }
+
+    @Override
+    public String toString() {
+        return stub.toString();
+    }
+}
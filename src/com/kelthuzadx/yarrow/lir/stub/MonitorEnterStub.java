@@ -0,0 +1,22 @@
+package com.kelthuzadx.yarrow.lir.stub;
+
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+
+/**
+ * Contended or inflated locking, object and address of its BasicLock are passed to runtime
+ */
+public class MonitorEnterStub extends RuntimeStub {
+    private LirOperand object;
+    private LirOperand lock;
+
+    public MonitorEnterStub(LirOperand object, LirOperand lock) {
+        super(VmStub.StubMonitorenter);
+        this.object = object;
+        this.lock = lock;
+    }
+
+    @Override
+    public String toString() {
+        return stub.toString();
+    }
+}
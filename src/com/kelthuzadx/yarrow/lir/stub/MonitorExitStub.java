@@ -0,0 +1,22 @@
+package com.kelthuzadx.yarrow.lir.stub;
+
+import com.kelthuzadx.yarrow.lir.operand.LirOperand;
+
+/**
+ * Unlocking an inflated monitor, object and address of its BasicLock are passed to runtime
+ */
+public class MonitorExitStub extends RuntimeStub {
+    private LirOperand object;
+    private LirOperand lock;
+
+    public MonitorExitStub(LirOperand object, LirOperand lock) {
+        super(VmStub.StubMonitorexit);
+        this.object = object;
+        this.lock = lock;
+    }
+
+    @Override
+    public String toString() {
+        return stub.toString();
+    }
+}
@@ -1,14 +1,21 @@
 package com.kelthuzadx.yarrow.lir.stub;
 
 import com.kelthuzadx.yarrow.lir.instr.LabelInstr;
+import com.kelthuzadx.yarrow.util.CompilerErrors;
+import jdk.vm.ci.code.DebugInfo;
 
 @SuppressWarnings("unused")
 public class RuntimeStub {
     protected VmStub stub;
     private LabelInstr trampoline;
     private LabelInstr continuation;
+    // Frame state at the point stub is entered, since runtime call may safepoint or deoptimize
+    private DebugInfo debugInfo;
 
     public RuntimeStub(VmStub stub) {
+        if (!stub.isAvailable()) {
+            CompilerErrors.bailOut("Missing runtime stub " + stub);
+        }
         this.stub = stub;
         this.trampoline = new LabelInstr();
         this.continuation = new LabelInstr();
@@ -22,4 +29,12 @@ public class RuntimeStub {
     public LabelInstr getContinuation() {
         return continuation;
     }
+
+    public DebugInfo getDebugInfo() {
+        return debugInfo;
+    }
+
+    public void setDebugInfo(DebugInfo debugInfo) {
+        this.debugInfo = debugInfo;
+    }
 }
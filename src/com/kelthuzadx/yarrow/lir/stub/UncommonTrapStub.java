@@ -0,0 +1,38 @@
+package com.kelthuzadx.yarrow.lir.stub;
+
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import jdk.vm.ci.meta.JavaConstant;
+
+/**
+ * Compiled code enters deoptimization blob rather than calling Deoptimization::uncommon_trap
+ * directly, the blob unpacks current frame into interpreter frames. Trap request and failed
+ * speculation must be stored into current JavaThread before jumping here.
+ */
+public class UncommonTrapStub extends RuntimeStub {
+    private long entry;
+    // Stored by the stub itself when it's entered from the middle of a block, otherwise null
+    private JavaConstant trapRequest;
+
+    public UncommonTrapStub() {
+        super(VmStub.StubUncommonTrap);
+        this.entry = YarrowRuntime.access.deoptBlobUncommonTrap;
+    }
+
+    public UncommonTrapStub(JavaConstant trapRequest) {
+        this();
+        this.trapRequest = trapRequest;
+    }
+
+    public JavaConstant getTrapRequest() {
+        return trapRequest;
+    }
+
+    public long getEntry() {
+        return entry;
+    }
+
+    @Override
+    public String toString() {
+        return stub.toString();
+    }
+}
@@ -1,109 +1,111 @@
 package com.kelthuzadx.yarrow.lir.stub;
 
 import com.kelthuzadx.yarrow.core.YarrowRuntime;
+import com.kelthuzadx.yarrow.util.CompilerErrors;
 
 public enum VmStub {
-    StubRtldDefault("RTLD_DEFAULT", YarrowRuntime.access.getAddress("RTLD_DEFAULT")),
+    // Stubs missing from current VM are left as 0, compiling a call to them bails out
+    StubRtldDefault("RTLD_DEFAULT", YarrowRuntime.access.getAddress("RTLD_DEFAULT", 0L)),
 
-    StubBackedgeEvent("CompilerRuntime::backedge_event", YarrowRuntime.access.getAddress("CompilerRuntime::backedge_event")),
+    StubBackedgeEvent("CompilerRuntime::backedge_event", YarrowRuntime.access.getAddress("CompilerRuntime::backedge_event", 0L)),
 
-    StubInitializeKlassBySymbol("CompilerRuntime::initialize_klass_by_symbol", YarrowRuntime.access.getAddress("CompilerRuntime::initialize_klass_by_symbol")),
+    StubInitializeKlassBySymbol("CompilerRuntime::initialize_klass_by_symbol", YarrowRuntime.access.getAddress("CompilerRuntime::initialize_klass_by_symbol", 0L)),
 
-    StubInvocationEvent("CompilerRuntime::invocation_event", YarrowRuntime.access.getAddress("CompilerRuntime::invocation_event")),
+    StubInvocationEvent("CompilerRuntime::invocation_event", YarrowRuntime.access.getAddress("CompilerRuntime::invocation_event", 0L)),
 
-    StubResolveDynamicInvoke("CompilerRuntime::resolve_dynamic_invoke", YarrowRuntime.access.getAddress("CompilerRuntime::resolve_dynamic_invoke")),
+    StubResolveDynamicInvoke("CompilerRuntime::resolve_dynamic_invoke", YarrowRuntime.access.getAddress("CompilerRuntime::resolve_dynamic_invoke", 0L)),
 
-    StubResolveKlassBySymbol("CompilerRuntime::resolve_klass_by_symbol", YarrowRuntime.access.getAddress("CompilerRuntime::resolve_klass_by_symbol")),
+    StubResolveKlassBySymbol("CompilerRuntime::resolve_klass_by_symbol", YarrowRuntime.access.getAddress("CompilerRuntime::resolve_klass_by_symbol", 0L)),
 
-    StubResolveMethodBySymbolAndLoadCounters("CompilerRuntime::resolve_method_by_symbol_and_load_counters", YarrowRuntime.access.getAddress("CompilerRuntime::resolve_method_by_symbol_and_load_counters")),
+    StubResolveMethodBySymbolAndLoadCounters("CompilerRuntime::resolve_method_by_symbol_and_load_counters", YarrowRuntime.access.getAddress("CompilerRuntime::resolve_method_by_symbol_and_load_counters", 0L)),
 
-    StubResolveStringBySymbol("CompilerRuntime::resolve_string_by_symbol", YarrowRuntime.access.getAddress("CompilerRuntime::resolve_string_by_symbol")),
+    StubResolveStringBySymbol("CompilerRuntime::resolve_string_by_symbol", YarrowRuntime.access.getAddress("CompilerRuntime::resolve_string_by_symbol", 0L)),
 
-    StubFetchUnrollInfo("Deoptimization::fetch_unroll_info", YarrowRuntime.access.getAddress("Deoptimization::fetch_unroll_info")),
+    StubFetchUnrollInfo("Deoptimization::fetch_unroll_info", YarrowRuntime.access.getAddress("Deoptimization::fetch_unroll_info", 0L)),
 
-    StubUncommonTrap("Deoptimization::uncommon_trap", YarrowRuntime.access.getAddress("Deoptimization::uncommon_trap")),
+    StubUncommonTrap("Deoptimization::uncommon_trap", YarrowRuntime.access.getAddress("Deoptimization::uncommon_trap", 0L)),
 
-    StubUnpackFrames("Deoptimization::unpack_frames", YarrowRuntime.access.getAddress("Deoptimization::unpack_frames")),
+    StubUnpackFrames("Deoptimization::unpack_frames", YarrowRuntime.access.getAddress("Deoptimization::unpack_frames", 0L)),
 
-    StubDynamicNewArray("JVMCIRuntime::dynamic_new_array", YarrowRuntime.access.getAddress("JVMCIRuntime::dynamic_new_array")),
+    StubDynamicNewArray("JVMCIRuntime::dynamic_new_array", YarrowRuntime.access.getAddress("JVMCIRuntime::dynamic_new_array", 0L)),
 
-    StubDynamicNewArrayOrNull("JVMCIRuntime::dynamic_new_array_or_null", YarrowRuntime.access.getAddress("JVMCIRuntime::dynamic_new_array_or_null")),
+    StubDynamicNewArrayOrNull("JVMCIRuntime::dynamic_new_array_or_null", YarrowRuntime.access.getAddress("JVMCIRuntime::dynamic_new_array_or_null", 0L)),
 
-    StubDynamicNewInstance("JVMCIRuntime::dynamic_new_instance", YarrowRuntime.access.getAddress("JVMCIRuntime::dynamic_new_instance")),
+    StubDynamicNewInstance("JVMCIRuntime::dynamic_new_instance", YarrowRuntime.access.getAddress("JVMCIRuntime::dynamic_new_instance", 0L)),
 
-    StubDynamicNewInstanceOrNull("JVMCIRuntime::dynamic_new_instance_or_null", YarrowRuntime.access.getAddress("JVMCIRuntime::dynamic_new_instance_or_null")),
+    StubDynamicNewInstanceOrNull("JVMCIRuntime::dynamic_new_instance_or_null", YarrowRuntime.access.getAddress("JVMCIRuntime::dynamic_new_instance_or_null", 0L)),
 
-    StubExceptionHandlerForPc("JVMCIRuntime::exception_handler_for_pc", YarrowRuntime.access.getAddress("JVMCIRuntime::exception_handler_for_pc")),
+    StubExceptionHandlerForPc("JVMCIRuntime::exception_handler_for_pc", YarrowRuntime.access.getAddress("JVMCIRuntime::exception_handler_for_pc", 0L)),
 
-    StubIdentityHashCode("JVMCIRuntime::identity_hash_code", YarrowRuntime.access.getAddress("JVMCIRuntime::identity_hash_code")),
+    StubIdentityHashCode("JVMCIRuntime::identity_hash_code", YarrowRuntime.access.getAddress("JVMCIRuntime::identity_hash_code", 0L)),
 
-    StubLoadAndClearException("JVMCIRuntime::load_and_clear_exception", YarrowRuntime.access.getAddress("JVMCIRuntime::load_and_clear_exception")),
+    StubLoadAndClearException("JVMCIRuntime::load_and_clear_exception", YarrowRuntime.access.getAddress("JVMCIRuntime::load_and_clear_exception", 0L)),
 
-    StubLogObject("JVMCIRuntime::log_object", YarrowRuntime.access.getAddress("JVMCIRuntime::log_object")),
+    StubLogObject("JVMCIRuntime::log_object", YarrowRuntime.access.getAddress("JVMCIRuntime::log_object", 0L)),
 
-    StubLogPrimitive("JVMCIRuntime::log_primitive", YarrowRuntime.access.getAddress("JVMCIRuntime::log_primitive")),
+    StubLogPrimitive("JVMCIRuntime::log_primitive", YarrowRuntime.access.getAddress("JVMCIRuntime::log_primitive", 0L)),
 
-    StubLogPrintf("JVMCIRuntime::log_printf", YarrowRuntime.access.getAddress("JVMCIRuntime::log_printf")),
+    StubLogPrintf("JVMCIRuntime::log_printf", YarrowRuntime.access.getAddress("JVMCIRuntime::log_printf", 0L)),
 
-    StubMonitorenter("JVMCIRuntime::monitorenter", YarrowRuntime.access.getAddress("JVMCIRuntime::monitorenter")),
+    StubMonitorenter("JVMCIRuntime::monitorenter", YarrowRuntime.access.getAddress("JVMCIRuntime::monitorenter", 0L)),
 
-    StubMonitorexit("JVMCIRuntime::monitorexit", YarrowRuntime.access.getAddress("JVMCIRuntime::monitorexit")),
+    StubMonitorexit("JVMCIRuntime::monitorexit", YarrowRuntime.access.getAddress("JVMCIRuntime::monitorexit", 0L)),
 
-    StubNewArray("JVMCIRuntime::new_array", YarrowRuntime.access.getAddress("JVMCIRuntime::new_array")),
+    StubNewArray("JVMCIRuntime::new_array", YarrowRuntime.access.getAddress("JVMCIRuntime::new_array", 0L)),
 
-    StubNewArrayOrNull("JVMCIRuntime::new_array_or_null", YarrowRuntime.access.getAddress("JVMCIRuntime::new_array_or_null")),
+    StubNewArrayOrNull("JVMCIRuntime::new_array_or_null", YarrowRuntime.access.getAddress("JVMCIRuntime::new_array_or_null", 0L)),
 
-    StubNewInstance("JVMCIRuntime::new_instance", YarrowRuntime.access.getAddress("JVMCIRuntime::new_instance")),
+    StubNewInstance("JVMCIRuntime::new_instance", YarrowRuntime.access.getAddress("JVMCIRuntime::new_instance", 0L)),
 
-    StubNewInstanceOrNull("JVMCIRuntime::new_instance_or_null", YarrowRuntime.access.getAddress("JVMCIRuntime::new_instance_or_null")),
+    StubNewInstanceOrNull("JVMCIRuntime::new_instance_or_null", YarrowRuntime.access.getAddress("JVMCIRuntime::new_instance_or_null", 0L)),
 
-    StubNewMultiArray("JVMCIRuntime::new_multi_array", YarrowRuntime.access.getAddress("JVMCIRuntime::new_multi_array")),
+    StubNewMultiArray("JVMCIRuntime::new_multi_array", YarrowRuntime.access.getAddress("JVMCIRuntime::new_multi_array", 0L)),
 
-    StubNewMultiArrayOrNull("JVMCIRuntime::new_multi_array_or_null", YarrowRuntime.access.getAddress("JVMCIRuntime::new_multi_array_or_null")),
+    StubNewMultiArrayOrNull("JVMCIRuntime::new_multi_array_or_null", YarrowRuntime.access.getAddress("JVMCIRuntime::new_multi_array_or_null", 0L)),
 
-    StubObjectNotify("JVMCIRuntime::object_notify", YarrowRuntime.access.getAddress("JVMCIRuntime::object_notify")),
+    StubObjectNotify("JVMCIRuntime::object_notify", YarrowRuntime.access.getAddress("JVMCIRuntime::object_notify", 0L)),
 
-    StubObjectNotifyall("JVMCIRuntime::object_notifyAll", YarrowRuntime.access.getAddress("JVMCIRuntime::object_notifyAll")),
+    StubObjectNotifyall("JVMCIRuntime::object_notifyAll", YarrowRuntime.access.getAddress("JVMCIRuntime::object_notifyAll", 0L)),
 
-    StubTestDeoptimizeCallInt("JVMCIRuntime::test_deoptimize_call_int", YarrowRuntime.access.getAddress("JVMCIRuntime::test_deoptimize_call_int")),
+    StubTestDeoptimizeCallInt("JVMCIRuntime::test_deoptimize_call_int", YarrowRuntime.access.getAddress("JVMCIRuntime::test_deoptimize_call_int", 0L)),
 
-    StubThreadIsInterrupted("JVMCIRuntime::thread_is_interrupted", YarrowRuntime.access.getAddress("JVMCIRuntime::thread_is_interrupted")),
+    StubThreadIsInterrupted("JVMCIRuntime::thread_is_interrupted", YarrowRuntime.access.getAddress("JVMCIRuntime::thread_is_interrupted", 0L)),
 
-    StubThrowAndPostJvmtiException("JVMCIRuntime::throw_and_post_jvmti_exception", YarrowRuntime.access.getAddress("JVMCIRuntime::throw_and_post_jvmti_exception")),
+    StubThrowAndPostJvmtiException("JVMCIRuntime::throw_and_post_jvmti_exception", YarrowRuntime.access.getAddress("JVMCIRuntime::throw_and_post_jvmti_exception", 0L)),
 
-    StubThrowClassCastException("JVMCIRuntime::throw_class_cast_exception", YarrowRuntime.access.getAddress("JVMCIRuntime::throw_class_cast_exception")),
+    StubThrowClassCastException("JVMCIRuntime::throw_class_cast_exception", YarrowRuntime.access.getAddress("JVMCIRuntime::throw_class_cast_exception", 0L)),
 
-    StubThrowKlassExternalNameException("JVMCIRuntime::throw_klass_external_name_exception", YarrowRuntime.access.getAddress("JVMCIRuntime::throw_klass_external_name_exception")),
+    StubThrowKlassExternalNameException("JVMCIRuntime::throw_klass_external_name_exception", YarrowRuntime.access.getAddress("JVMCIRuntime::throw_klass_external_name_exception", 0L)),
 
-    StubValidateObject("JVMCIRuntime::validate_object", YarrowRuntime.access.getAddress("JVMCIRuntime::validate_object")),
+    StubValidateObject("JVMCIRuntime::validate_object", YarrowRuntime.access.getAddress("JVMCIRuntime::validate_object", 0L)),
 
-    StubVmError("JVMCIRuntime::vm_error", YarrowRuntime.access.getAddress("JVMCIRuntime::vm_error")),
+    StubVmError("JVMCIRuntime::vm_error", YarrowRuntime.access.getAddress("JVMCIRuntime::vm_error", 0L)),
 
-    StubVmMessage("JVMCIRuntime::vm_message", YarrowRuntime.access.getAddress("JVMCIRuntime::vm_message")),
+    StubVmMessage("JVMCIRuntime::vm_message", YarrowRuntime.access.getAddress("JVMCIRuntime::vm_message", 0L)),
 
-    StubWriteBarrierPost("JVMCIRuntime::write_barrier_post", YarrowRuntime.access.getAddress("JVMCIRuntime::write_barrier_post")),
+    StubWriteBarrierPost("JVMCIRuntime::write_barrier_post", YarrowRuntime.access.getAddress("JVMCIRuntime::write_barrier_post", 0L)),
 
-    StubWriteBarrierPre("JVMCIRuntime::write_barrier_pre", YarrowRuntime.access.getAddress("JVMCIRuntime::write_barrier_pre")),
+    StubWriteBarrierPre("JVMCIRuntime::write_barrier_pre", YarrowRuntime.access.getAddress("JVMCIRuntime::write_barrier_pre", 0L)),
 
-    StubOsrMigrationEnd("SharedRuntime::OSR_migration_end", YarrowRuntime.access.getAddress("SharedRuntime::OSR_migration_end")),
+    StubOsrMigrationEnd("SharedRuntime::OSR_migration_end", YarrowRuntime.access.getAddress("SharedRuntime::OSR_migration_end", 0L)),
 
-    StubDrem("SharedRuntime::drem", YarrowRuntime.access.getAddress("SharedRuntime::drem")),
+    StubDrem("SharedRuntime::drem", YarrowRuntime.access.getAddress("SharedRuntime::drem", 0L)),
 
-    StubEnableStackReservedZone("SharedRuntime::enable_stack_reserved_zone", YarrowRuntime.access.getAddress("SharedRuntime::enable_stack_reserved_zone")),
+    StubEnableStackReservedZone("SharedRuntime::enable_stack_reserved_zone", YarrowRuntime.access.getAddress("SharedRuntime::enable_stack_reserved_zone", 0L)),
 
-    StubExceptionHandlerForReturnAddress("SharedRuntime::exception_handler_for_return_address", YarrowRuntime.access.getAddress("SharedRuntime::exception_handler_for_return_address")),
+    StubExceptionHandlerForReturnAddress("SharedRuntime::exception_handler_for_return_address", YarrowRuntime.access.getAddress("SharedRuntime::exception_handler_for_return_address", 0L)),
 
-    StubFrem("SharedRuntime::frem", YarrowRuntime.access.getAddress("SharedRuntime::frem")),
+    StubFrem("SharedRuntime::frem", YarrowRuntime.access.getAddress("SharedRuntime::frem", 0L)),
 
-    StubRegisterFinalizer("SharedRuntime::register_finalizer", YarrowRuntime.access.getAddress("SharedRuntime::register_finalizer")),
+    StubRegisterFinalizer("SharedRuntime::register_finalizer", YarrowRuntime.access.getAddress("SharedRuntime::register_finalizer", 0L)),
 
-    StubDllLoad("os::dll_load", YarrowRuntime.access.getAddress("os::dll_load")),
+    StubDllLoad("os::dll_load", YarrowRuntime.access.getAddress("os::dll_load", 0L)),
 
-    StubDllLookup("os::dll_lookup", YarrowRuntime.access.getAddress("os::dll_lookup")),
+    StubDllLookup("os::dll_lookup", YarrowRuntime.access.getAddress("os::dll_lookup", 0L)),
 
-    StubJavatimemillis("os::javaTimeMillis", YarrowRuntime.access.getAddress("os::javaTimeMillis")),
+    StubJavatimemillis("os::javaTimeMillis", YarrowRuntime.access.getAddress("os::javaTimeMillis", 0L)),
 
-    StubJavatimenanos("os::javaTimeNanos", YarrowRuntime.access.getAddress("os::javaTimeNanos"));
+    StubJavatimenanos("os::javaTimeNanos", YarrowRuntime.access.getAddress("os::javaTimeNanos", 0L));
 
     private String name;
 
@@ -115,7 +117,14 @@ public enum VmStub {
     }
 
 
+    public boolean isAvailable() {
+        return stubAddress != 0;
+    }
+
     public long getStubAddress() {
+        if (!isAvailable()) {
+            CompilerErrors.bailOut("Missing runtime stub " + name);
+        }
         return stubAddress;
     }
 
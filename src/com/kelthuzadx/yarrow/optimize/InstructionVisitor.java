@@ -32,6 +32,26 @@ public abstract class InstructionVisitor {
 
     public abstract void visitNegateInstr(NegateInstr instr);
 
+    public abstract void visitMathIntrinsicInstr(MathIntrinsicInstr instr);
+
+    public abstract void visitBitIntrinsicInstr(BitIntrinsicInstr instr);
+
+    public abstract void visitExactArithmeticInstr(ExactArithmeticInstr instr);
+
+    public abstract void visitArrayCopyInstr(ArrayCopyInstr instr);
+
+    public abstract void visitUnsafeGetInstr(UnsafeGetInstr instr);
+
+    public abstract void visitUnsafePutInstr(UnsafePutInstr instr);
+
+    public abstract void visitUnsafeCompareAndSwapInstr(UnsafeCompareAndSwapInstr instr);
+
+    public abstract void visitIdentityHashCodeInstr(IdentityHashCodeInstr instr);
+
+    public abstract void visitLeafCallInstr(LeafCallInstr instr);
+
+    public abstract void visitCurrentThreadInstr(CurrentThreadInstr instr);
+
     public abstract void visitConstantInstr(ConstantInstr instr);
 
     public abstract void visitTableSwitchInstr(TableSwitchInstr instr);
@@ -72,9 +92,27 @@ public abstract class InstructionVisitor {
 
     public abstract void visitReturnInstr(ReturnInstr instr);
 
+    public abstract void visitDeoptimizeInstr(DeoptimizeInstr instr);
+
+    public abstract void visitOsrEntryInstr(OsrEntryInstr instr);
+
+    public abstract void visitOsrLocalInstr(OsrLocalInstr instr);
+
+    public abstract void visitOsrMigrationEndInstr(OsrMigrationEndInstr instr);
+
+    public abstract void visitSafepointInstr(SafepointInstr instr);
+
     public abstract void visitOp2Instr(Op2Instr instr);
 
     public abstract void visitThrowInstr(ThrowInstr instr);
 
     public abstract void visitNewTypeArrayInstr(NewTypeArrayInstr instr);
+
+    public abstract void visitStoreCheckInstr(StoreCheckInstr instr);
+
+    public abstract void visitBoxInstr(BoxInstr instr);
+
+    public abstract void visitClassInitCheckInstr(ClassInitCheckInstr instr);
+
+    public abstract void visitNullCheckInstr(NullCheckInstr instr);
 }
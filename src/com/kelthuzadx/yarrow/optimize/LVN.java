@@ -2,80 +2,130 @@ package com.kelthuzadx.yarrow.optimize;
 
 import com.kelthuzadx.yarrow.core.YarrowError;
 import com.kelthuzadx.yarrow.hir.instr.*;
+import jdk.vm.ci.meta.JavaKind;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Local value numbering. Memory is partitioned into alias classes, a store only kills loads of
+ * the class it may write:
+ * <ul>
+ *     <li>each field, no matter which object it belongs to</li>
+ *     <li>elements of arrays of each element kind</li>
+ *     <li>raw memory accessed by Unsafe, which may be any field or array element</li>
+ * </ul>
+ * Killing a class bumps its version, loads numbered with an older version are then stale. Calls,
+ * monitors and barriers kill all classes at once by starting a new epoch.
+ */
 public class LVN {
-    private Set<HirInstr> valueSet;
+    // Unsafe accesses are in this alias class
+    private static final Object RAW_MEMORY = new Object();
+
+    private Map<HirInstr, HirInstr> values;
+    // Current version of each alias class
+    private Map<Object, Integer> versions;
+    // Epoch and alias class version when each memory load was numbered
+    private Map<HirInstr, Long> loadStamps;
+    private int epoch;
     private HirInstr replacement;
 
     public LVN() {
-        valueSet = new HashSet<>();
+        values = new HashMap<>();
+        versions = new HashMap<>();
+        loadStamps = new HashMap<>();
+        epoch = 0;
+    }
+
+    /**
+     * Alias class of memory that instruction reads or writes, or null if it doesn't access
+     * memory by itself
+     */
+    private static Object aliasClass(HirInstr instr) {
+        if (instr instanceof LoadFieldInstr || instr instanceof StoreFieldInstr) {
+            return ((AccessFieldInstr) instr).getField();
+        } else if (instr instanceof LoadIndexInstr) {
+            return arrayClass(((LoadIndexInstr) instr).getElementType());
+        } else if (instr instanceof StoreIndexInstr) {
+            return arrayClass(((StoreIndexInstr) instr).getElementType());
+        } else if (instr instanceof ArrayCopyInstr) {
+            return arrayClass(((ArrayCopyInstr) instr).getElementType());
+        } else if (instr instanceof UnsafeGetInstr) {
+            return RAW_MEMORY;
+        }
+        return null;
+    }
+
+    private static JavaKind arrayClass(JavaKind elementType) {
+        // baload and bastore access both boolean and byte arrays
+        return elementType == JavaKind.Boolean ? JavaKind.Byte : elementType;
+    }
+
+    private static boolean isLoad(HirInstr instr) {
+        return instr instanceof LoadFieldInstr || instr instanceof LoadIndexInstr || instr instanceof UnsafeGetInstr;
     }
 
+    private long stamp(Object aliasClass) {
+        return ((long) epoch << 32) | versions.getOrDefault(aliasClass, 0);
+    }
+
+    /**
+     * Whether numbered value is still the same, a load is stale once its memory was written
+     */
+    private boolean isAvailable(HirInstr instr) {
+        if (!isLoad(instr)) {
+            return true;
+        }
+        return loadStamps.get(instr) == stamp(aliasClass(instr));
+    }
+
+    private void kill(Object aliasClass) {
+        versions.merge(aliasClass, 1, Integer::sum);
+    }
 
     /**
-     * Assignment instruction and monitor instruction may kill instructions in valueSet.
+     * Assignment instruction and monitor instruction may kill instructions in value set.
      *
-     * @param instr instruction may kill other instructions in the value setz
+     * @param instr instruction may kill other instructions in the value set
      */
     private void killValue(HirInstr instr) {
         // long a = obj.field;
-        // obj.field = ...
-        // long b = obj.field;  prevent from LVN
-        if (instr instanceof StoreFieldInstr) {
-            var temp = (StoreFieldInstr) instr;
-            var iter = valueSet.iterator();
-            while (iter.hasNext()) {
-                var i = iter.next();
-                if (i instanceof LoadFieldInstr) {
-                    var existing = (LoadFieldInstr) i;
-                    if (existing.getOffset() == temp.getOffset() &&
-                            existing.getObject().equals(temp.getObject()) &&
-                            existing.getField().equals(temp.getField())) {
-                        iter.remove();
-                    }
-                }
-            }
-        }
-        // long a = arr[2];
-        // arr[..] = ...
-        // long b = arr[2];  prevent from LVN, kill the whole array
-        else if (instr instanceof StoreIndexInstr) {
-            var temp = (StoreIndexInstr) instr;
-            var iter = valueSet.iterator();
-            while (iter.hasNext()) {
-                var i = iter.next();
-                if (i instanceof LoadIndexInstr) {
-                    var existing = (LoadIndexInstr) i;
-                    if (existing.getArray().equals(temp.getArray()) &&
-                            existing.getElementType() == temp.getElementType()) {
-                        iter.remove();
-                    }
-                }
-            }
+        // other.field = ...
+        // long b = obj.field;  prevent from LVN, other might be obj. Stores to fields and
+        // arrays are also seen by Unsafe
+        if (instr instanceof StoreFieldInstr || instr instanceof StoreIndexInstr || instr instanceof ArrayCopyInstr) {
+            kill(aliasClass(instr));
+            kill(RAW_MEMORY);
         }
         // long a = obj.field;
         // invokestatic <class.method>
-        // long b = obj.field; prevent from LVN, kill the whole memory
+        // long b = obj.field; prevent from LVN, kill the whole memory. Unsafe stores might
+        // write anything, and loads can not float above acquiring barriers
         else if (instr instanceof MonitorEnterInstr ||
                 instr instanceof MonitorExitInstr ||
-                instr instanceof CallInstr) {
-            valueSet.removeIf(i -> i instanceof LoadIndexInstr || i instanceof LoadFieldInstr);
+                instr instanceof CallInstr ||
+                instr instanceof UnsafePutInstr ||
+                instr instanceof UnsafeCompareAndSwapInstr ||
+                instr instanceof MemBarrierInstr) {
+            epoch++;
         }
     }
 
     public boolean hasReplacement(HirInstr instr) {
-        for (HirInstr i : valueSet) {
-            if (i.hashCode() == instr.hashCode() && i.equals(instr)) {
-                YarrowError.guarantee(!(instr instanceof BlockEndInstr), "should never value numbering BlockEndInstr and its subclasses");
-                replacement = i;
-                killValue(instr);
-                return true;
-            }
+        HirInstr existing = values.get(instr);
+        if (existing != null && isAvailable(existing)) {
+            YarrowError.guarantee(!(instr instanceof BlockEndInstr), "should never value numbering BlockEndInstr and its subclasses");
+            replacement = existing;
+            killValue(instr);
+            return true;
+        }
+        // Stale value is replaced by the new one
+        values.remove(instr);
+        values.put(instr, instr);
+        if (isLoad(instr)) {
+            loadStamps.remove(instr);
+            loadStamps.put(instr, stamp(aliasClass(instr)));
         }
-        valueSet.add(instr);
         killValue(instr);
         return false;
     }
@@ -0,0 +1,48 @@
+package com.kelthuzadx.yarrow.test;
+
+import java.util.Arrays;
+
+public class ArrayCopyTest {
+    public static void main(String[] args) {
+        int[] ints = new int[20];
+        String[] strs = new String[20];
+        for (int i = 0; i < 999998; i++) {
+            yarrow_arraycopy(ints, strs, new Object[20], i % 8);
+            yarrow_copyOf(i % 8);
+            yarrow_nullableCopyOf(ints, strs);
+            try {
+                yarrow_nullableCopyOf(null, strs);
+            } catch (NullPointerException e) {
+                // expected
+            }
+        }
+    }
+
+    public static int yarrow_arraycopy(int[] ia, String[] sa, Object[] oa, int n) {
+        // Small constant length of fresh arrays is moved inline without checks
+        byte[] b = new byte[16];
+        byte[] c = new byte[16];
+        System.arraycopy(b, 0, c, 2, 4);
+        // Nullable arrays and unknown positions are checked before copying
+        System.arraycopy(ia, n, ia, 0, n);
+        System.arraycopy(sa, 0, oa, 0, 3);
+        System.arraycopy(oa, 1, sa, 0, 4);
+        return c.length;
+    }
+
+    public static int yarrow_copyOf(int n) {
+        // Non-null originals are copied by intrinsic
+        int[] x = new int[8];
+        int[] y = Arrays.copyOf(x, n);
+        long[] z = Arrays.copyOfRange(new long[4], 1, 3);
+        int[] w = x.clone();
+        return y.length + z.length + w.length;
+    }
+
+    public static int yarrow_nullableCopyOf(int[] ia, String[] sa) {
+        // Originals might be null, they are left as calls which throw NullPointerException
+        int[] x = Arrays.copyOf(ia, 4);
+        String[] y = sa.clone();
+        return x.length + y.length;
+    }
+}
@@ -4,6 +4,8 @@ public class BitTest {
     public static void main(String[] args) {
         for (int i = 0; i < 999998; i++) {
             new BitTest().yarrow_bitShift(i);
+            yarrow_bitCount(i, i);
+            yarrow_rotate(i, i);
         }
     }
 
@@ -16,4 +18,15 @@ public class BitTest {
         val &= 32;
         val >>>= 5;
     }
+
+    public static int yarrow_bitCount(int x, long y) {
+        return Integer.bitCount(x) + Long.numberOfLeadingZeros(y) + Integer.numberOfTrailingZeros(x) +
+                (int) Long.reverseBytes(y);
+    }
+
+    public static int yarrow_rotate(int x, int n) {
+        int a = (x << n) | (x >>> (32 - n));
+        int b = (x >>> 3) | (x << 29);
+        return a ^ b ^ Integer.rotateRight(x, n);
+    }
 }
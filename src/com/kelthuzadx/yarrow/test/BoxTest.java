@@ -0,0 +1,37 @@
+package com.kelthuzadx.yarrow.test;
+
+public class BoxTest {
+    private static Object sink;
+
+    public static void main(String[] args) {
+        for (int i = 0; i < 999998; i++) {
+            yarrow_roundTrip(i, 'c');
+            yarrow_escape(i);
+            yarrow_deopt(i);
+        }
+    }
+
+    public static int yarrow_roundTrip(int k, char ch) {
+        // Neither box is allocated, unboxing yields the boxed value
+        Integer a = Integer.valueOf(k);
+        Long l = (long) k;
+        Character c = ch;
+        // Constant boxes are folded to cached ones
+        Integer b = 100;
+        return a + (int) (long) l + c + b.intValue();
+    }
+
+    public static Object yarrow_escape(int k) {
+        // Stored and returned boxes escape, they are allocated by valueOf
+        Integer a = k;
+        sink = Integer.valueOf(k + 1);
+        return a;
+    }
+
+    public static int yarrow_deopt(int k) {
+        // Box only lives in debug info of the call, deoptimization reallocates it
+        Integer a = k;
+        String.valueOf(k);
+        return a;
+    }
+}
@@ -35,6 +35,30 @@ public class ControlTest {
         }
     }
 
+    static int yarrow_shortCountedLoop(int k) {
+        // Takes at most 100 iterations, back edge needs no safepoint poll
+        for (int i = 0; i <= 99; i++) {
+            k += i;
+        }
+        for (int i = 64; i >= 0; i -= 2) {
+            k ^= i;
+        }
+        return k;
+    }
+
+    static long yarrow_longCountedLoop(int n) {
+        // Polls once every LoopStripMiningIter iterations
+        long s = 0;
+        for (int i = 0; i < 5000000; i++) {
+            s += i;
+        }
+        // Trip count is unknown, polls on every back edge
+        for (int i = 0; i < n; i++) {
+            s -= i;
+        }
+        return s;
+    }
+
     static void yarrow_complex(int k) {
         int val = 12;
         if (k >= 100) {
@@ -80,6 +104,8 @@ public class ControlTest {
             yarrow_forLoop2(i);
             yarrow_forLoopWithIf(i);
             yarrow_complex(i);
+            yarrow_shortCountedLoop(i);
+            yarrow_longCountedLoop(i);
         }
     }
 }
@@ -60,6 +60,18 @@ public class LVNTest {
             long v2 = arr[2];
             long v3 = v1 + v2;
         }
+        { // OK
+            double dd1 = d1;
+            d2 = 456; // a different field never aliases d1
+            double dd2 = d1;
+            double dd3 = dd1 + dd2;
+        }
+        { // OK
+            long v1 = arr[2];
+            arr2[0] = 1.5f; // float arrays never alias long arrays
+            long v2 = arr[2];
+            long v3 = v1 + v2;
+        }
         { // OK
             arr2 = new float[n];
             int len1 = arr2.length;
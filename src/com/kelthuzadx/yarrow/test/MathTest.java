@@ -0,0 +1,30 @@
+package com.kelthuzadx.yarrow.test;
+
+public class MathTest {
+    public static void main(String[] args) {
+        for (int i = 0; i < 999998; i++) {
+            yarrow_minMax(i, i);
+            yarrow_exact(i, i);
+            yarrow_floating(i, i);
+        }
+    }
+
+    public static long yarrow_minMax(int a, long b) {
+        return Math.abs(a) + Math.max(a, 3) + Math.min(b, 7L) + Math.abs(b) + Math.floorMod(b, 8L) +
+                Math.floorDiv(a, 4);
+    }
+
+    public static long yarrow_exact(int a, long b) {
+        try {
+            // Overflow branches to the slow path which throws ArithmeticException
+            return Math.addExact(a, 7) + Math.subtractExact(a, 1) + Math.multiplyExact(b, b);
+        } catch (ArithmeticException e) {
+            return -1;
+        }
+    }
+
+    public static double yarrow_floating(double c, float f) {
+        return Math.sqrt(c) + Math.min(c, 1.0) + Math.abs(f) + Math.fma(c, c, c) + StrictMath.sin(c) +
+                Math.pow(c, 2.0) + Math.sqrt(4.0);
+    }
+}
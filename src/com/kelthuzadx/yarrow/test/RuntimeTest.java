@@ -0,0 +1,43 @@
+package com.kelthuzadx.yarrow.test;
+
+public class RuntimeTest {
+    private static final Object LOCK = new Object();
+
+    private static final class Worker extends Thread {
+    }
+
+    public static void main(String[] args) {
+        for (int i = 0; i < 999998; i++) {
+            yarrow_identityHashCode(i % 2 == 0 ? null : LOCK);
+            yarrow_nullableHashCode(LOCK);
+            try {
+                yarrow_nullableHashCode(null);
+            } catch (NullPointerException e) {
+                // expected
+            }
+            yarrow_time(i);
+            yarrow_isInterrupted(new Worker());
+        }
+    }
+
+    public static int yarrow_identityHashCode(Object o) {
+        // Identity hash code of null is 0, allocated object never overrides hashCode
+        return System.identityHashCode(o) + new Object().hashCode();
+    }
+
+    public static int yarrow_nullableHashCode(Object o) {
+        // Receiver might be null and might override hashCode, it's left as virtual call
+        return o.hashCode();
+    }
+
+    public static boolean yarrow_isInterrupted(Worker w) {
+        // Worker is final and doesn't override isInterrupted, its interrupted field is read
+        // after checking w is not null. Current thread might be of any subclass, it's left
+        // as virtual call
+        return w.isInterrupted() || Thread.currentThread().isInterrupted();
+    }
+
+    public static long yarrow_time(int k) {
+        return System.nanoTime() + System.currentTimeMillis() + (Thread.currentThread() == null ? 1 : k);
+    }
+}
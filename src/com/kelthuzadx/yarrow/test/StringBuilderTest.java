@@ -0,0 +1,20 @@
+package com.kelthuzadx.yarrow.test;
+
+public class StringBuilderTest {
+    public static void main(String[] args) {
+        for (int i = 0; i < 999998; i++) {
+            yarrow_chain(i, "s");
+            yarrow_constantAppends('c');
+        }
+    }
+
+    public static String yarrow_chain(int k, String s) {
+        // Builder is allocated with the estimated length of all appended values
+        return new StringBuilder().append("key=").append(k).append(',').append(s).append(7L).toString();
+    }
+
+    public static String yarrow_constantAppends(char c) {
+        // Adjacent constants are appended as one string
+        return new StringBuilder().append("a").append("b").append(1).append('x').append(c).append(true).toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.kelthuzadx.yarrow.test;
+
+import com.kelthuzadx.yarrow.core.YarrowRuntime;
+
+public class UnsafeTest {
+    private static final long FLAG_OFFSET;
+    private static final long NAME_OFFSET;
+    private static final long BYTES_BASE;
+    private static final long CHARS_BASE;
+
+    static {
+        YarrowRuntime.initialize();
+        try {
+            FLAG_OFFSET = YarrowRuntime.unsafe.objectFieldOffset(UnsafeTest.class.getDeclaredField("flag"));
+            NAME_OFFSET = YarrowRuntime.unsafe.objectFieldOffset(UnsafeTest.class.getDeclaredField("name"));
+        } catch (NoSuchFieldException e) {
+            throw new Error(e);
+        }
+        BYTES_BASE = YarrowRuntime.unsafe.arrayBaseOffset(byte[].class);
+        CHARS_BASE = YarrowRuntime.unsafe.arrayBaseOffset(char[].class);
+    }
+
+    private boolean flag;
+    private String name = "yarrow";
+
+    public static void main(String[] args) {
+        UnsafeTest t = new UnsafeTest();
+        byte[] ring = new byte[64];
+        char[] chars = new char[64];
+        for (int i = 0; i < 999998; i++) {
+            yarrow_ringBuffer(ring, i);
+            yarrow_flag(t, i % 2 == 0);
+            yarrow_putChar(chars, i);
+            yarrow_getObject(t);
+        }
+    }
+
+    public static int yarrow_ringBuffer(byte[] ring, int seq) {
+        long slot = BYTES_BASE + (seq & 63);
+        byte old = YarrowRuntime.unsafe.getByte(ring, slot);
+        YarrowRuntime.unsafe.putByte(ring, slot, (byte) (old + 1));
+        return YarrowRuntime.unsafe.getByteVolatile(ring, slot) + old;
+    }
+
+    public static boolean yarrow_flag(UnsafeTest t, boolean value) {
+        boolean old = YarrowRuntime.unsafe.getBoolean(t, FLAG_OFFSET);
+        YarrowRuntime.unsafe.putBoolean(t, FLAG_OFFSET, value);
+        return old != value;
+    }
+
+    public static void yarrow_putChar(char[] chars, int seq) {
+        YarrowRuntime.unsafe.putChar(chars, CHARS_BASE + ((seq & 63) << 1), (char) seq);
+    }
+
+    public static Object yarrow_getObject(UnsafeTest t) {
+        // Constant offset is never referent of a Reference, it's loaded without keep alive check
+        return YarrowRuntime.unsafe.getObject(t, NAME_OFFSET);
+    }
+}
@@ -2,6 +2,7 @@ package com.kelthuzadx.yarrow.util;
 
 import com.kelthuzadx.yarrow.core.YarrowError;
 import com.kelthuzadx.yarrow.hir.VmState;
+import com.kelthuzadx.yarrow.hir.instr.HirInstr;
 
 public class Constraint {
 
@@ -17,18 +18,21 @@ public class Constraint {
                 a.getLockSize() != b.getLockSize()) {
             throw new YarrowError("two VmState should be identical");
         }
-        var stackA = a.getStack();
-        var stackB = b.getStack();
-        for (int i = 0; i < stackA.size(); i++) {
-            if (!stackB.get(i).isType(stackA.get(i).type())) {
+        for (int i = 0; i < a.getStackSize(); i++) {
+            HirInstr valA = a.getStack(i);
+            HirInstr valB = b.getStack(i);
+            if (valA == null || valB == null) {
+                // Second slot of long or double
+                if (valA != valB) {
+                    throw new YarrowError("two VmState should be identical");
+                }
+            } else if (!valB.isType(valA.type())) {
                 throw new YarrowError("two VmState should be identical");
             }
         }
 
-        var lockA = a.getLock();
-        var lockB = b.getLock();
-        for (int i = 0; i < lockA.size(); i++) {
-            if (lockA.get(i) != lockB.get(i)) {
+        for (int i = 0; i < a.getLockSize(); i++) {
+            if (a.getLock(i) == null || b.getLock(i) == null) {
                 throw new YarrowError("two VmState should be identical");
             }
         }
@@ -60,7 +60,7 @@ def pascalCase(st):
     return st
 
 def gen(klass,method):
-    content = """Stub{}("{}::{}",YarrowRuntime.access.getAddress("{}::{}")),
+    content = """Stub{}("{}::{}",YarrowRuntime.access.getAddress("{}::{}", 0L)),
 """.format(pascalCase(method),klass,method,klass,method)
     return content
 